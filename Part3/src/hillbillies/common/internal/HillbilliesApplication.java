@@ -33,6 +33,11 @@ public abstract class HillbilliesApplication<O extends HillbilliesOptions, F, V
 	private Stage stage;
 	private final ExecutorService exec = Executors.newSingleThreadExecutor();
 
+	/**
+	 * The in-game time of one tick, in seconds.
+	 */
+	private static final double TICK_LENGTH = 1.0 / 60;
+
 	protected abstract F createFacade();
 
 	protected abstract O createOptions();
@@ -126,7 +131,10 @@ public abstract class HillbilliesApplication<O extends HillbilliesOptions, F, V
 				stage.setScene(scene);
 				stage.centerOnScreen();
 				GameLoop loop = new GameLoop(game);
-				loop.setMaxTimeStep(0.20);
+				loop.setTickLength(TICK_LENGTH);
+				loop.timeScaleProperty().bind(game.timeScaleProperty());
+				if (game.isSimulationThreaded())
+					loop.useSimulationThread();
 				loop.start();
 			});
 
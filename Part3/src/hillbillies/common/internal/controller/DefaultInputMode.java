@@ -86,6 +86,17 @@ public class DefaultInputMode implements InputMode {
 			gameController.exit();
 			e.consume();
 			break;
+		case PLUS:
+		case ADD:
+		case EQUALS:
+			gameController.speedUp();
+			e.consume();
+			break;
+		case MINUS:
+		case SUBTRACT:
+			gameController.slowDown();
+			e.consume();
+			break;
 		default:
 			break;
 		}
@@ -2,6 +2,8 @@ package hillbillies.common.internal.controller;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import hillbillies.common.internal.inputmodes.InputMode;
 import hillbillies.common.internal.inputmodes.UserInputHandler;
@@ -12,25 +14,62 @@ import hillbillies.common.internal.selection.Selection;
 import hillbillies.common.internal.ui.IHillbilliesView;
 import hillbillies.common.internal.ui.ViewProviders;
 import javafx.application.Platform;
+import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.SetChangeListener;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
+import ogp.framework.game.GameLoop;
+import ogp.framework.game.IConcurrentGameController;
 import ogp.framework.util.ModelException;
+import ogp.framework.util.internal.LockingProxy;
 
-public abstract class GameController<V extends IHillbilliesView> implements HillbilliesGameController<V> {
+public abstract class GameController<V extends IHillbilliesView>
+		implements HillbilliesGameController<V>, IConcurrentGameController<V> {
 
 	private final Object facade;
 	private V view;
 	private final HillbilliesOptions options;
 
+	/**
+	 * Fair, so that the render thread gets its turn even when the simulation thread runs ticks back to back.
+	 */
+	private final Lock modelLock = new ReentrantLock(true);
+	/**
+	 * Whether the model is updated on a simulation thread. The option is read once, when the game is created.
+	 */
+	private final boolean simulationThreaded;
+
 	public GameController(Object facade, HillbilliesOptions options) {
-		this.facade = facade;
 		this.options = options;
+		this.simulationThreaded = options.simulationThreadEnabled().getValue();
+		// with a simulation thread, every call to the facade holds the model lock
+		this.facade = simulationThreaded ? LockingProxy.wrap(facade, modelLock) : facade;
 		switchInputMode(createDefaultInputMode());
 	}
 
+	/**
+	 * Returns true iff the model is updated on a simulation thread, so the view must render snapshots.
+	 */
+	public boolean isSimulationThreaded() {
+		return simulationThreaded;
+	}
+
+	@Override
+	public Lock getModelLock() {
+		return modelLock;
+	}
+
+	@Override
+	public void publishSnapshot() {
+	}
+
+	@Override
+	public void consumeSnapshot() {
+	}
+
 	@Override
 	public HillbilliesOptions getOptions() {
 		return options;
@@ -66,6 +105,39 @@ public abstract class GameController<V extends IHillbilliesView> implements Hill
 	public void setView(V view) {
 		this.view = view;
 		view.setUserInputHandler(inputHander);
+		view.timeScaleProperty().bind(timeScale);
+	}
+
+	/**
+	 * The time scales that speedUp and slowDown switch between.
+	 */
+	private static final double[] TIME_SCALES = { 1, 4, 16, GameLoop.UNLIMITED };
+
+	private final DoubleProperty timeScale = new SimpleDoubleProperty(1);
+
+	@Override
+	public DoubleProperty timeScaleProperty() {
+		return timeScale;
+	}
+
+	@Override
+	public void speedUp() {
+		for (double scale : TIME_SCALES) {
+			if (scale > timeScale.get()) {
+				timeScale.set(scale);
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void slowDown() {
+		for (int i = TIME_SCALES.length - 1; i >= 0; i--) {
+			if (TIME_SCALES[i] < timeScale.get()) {
+				timeScale.set(TIME_SCALES[i]);
+				return;
+			}
+		}
 	}
 
 	@Override
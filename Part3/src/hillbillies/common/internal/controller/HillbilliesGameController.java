@@ -6,6 +6,7 @@ import hillbillies.common.internal.providers.ActionExecutor;
 import hillbillies.common.internal.providers.SelectionProvider;
 import hillbillies.common.internal.providers.WorldInfoProvider;
 import hillbillies.common.internal.ui.IHillbilliesView;
+import javafx.beans.property.DoubleProperty;
 import ogp.framework.game.IGameController;
 
 public interface HillbilliesGameController<V extends IHillbilliesView> extends IGameController<V> {
@@ -23,4 +24,19 @@ public interface HillbilliesGameController<V extends IHillbilliesView> extends I
 	void switchInputMode(InputMode newMode);
 	
 	HillbilliesOptions getOptions();
+
+	/**
+	 * The number of in-game seconds per wall-clock second, or GameLoop.UNLIMITED to run as fast as possible.
+	 */
+	DoubleProperty timeScaleProperty();
+
+	/**
+	 * Switches to the next faster time scale, if any.
+	 */
+	void speedUp();
+
+	/**
+	 * Switches to the next slower time scale, if any.
+	 */
+	void slowDown();
 }
@@ -14,6 +14,8 @@ import hillbillies.common.internal.ui.viewparts.LevelSlider;
 import hillbillies.common.internal.ui.viewparts.MiniMap;
 import hillbillies.common.internal.ui.viewparts.WorldView;
 import javafx.beans.binding.Bindings;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
 import javafx.geometry.Insets;
 import javafx.scene.Parent;
 import javafx.scene.control.Label;
@@ -21,6 +23,7 @@ import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import ogp.framework.game.GameLoop;
 import ogp.framework.ui.FPSCounter;
 
 public abstract class HillbilliesView implements IHillbilliesView {
@@ -37,6 +40,7 @@ public abstract class HillbilliesView implements IHillbilliesView {
 	private final ViewProviders providers;
 	private final Label status;
 	private final HillbilliesOptions options;
+	private final DoubleProperty timeScale = new SimpleDoubleProperty(1);
 	private InfoArea infoArea;
 
 	public HillbilliesView(ViewProviders providers, HillbilliesOptions options) {
@@ -68,6 +72,11 @@ public abstract class HillbilliesView implements IHillbilliesView {
 		debugInfo.textProperty().bind(Bindings.format("%.1f fps", fps.fpsEstimateProperty()));
 		leftPanel.getChildren().add(debugInfo);
 
+		Label speed = new Label();
+		speed.textProperty().bind(Bindings.createStringBinding(() -> timeScale.get() == GameLoop.UNLIMITED
+				? "speed: as fast as possible (-)" : String.format("speed: x%.0f (+/-)", timeScale.get()), timeScale));
+		leftPanel.getChildren().add(speed);
+
 		this.infoArea = createInfoArea();
 		leftPanel.getChildren().add(infoArea.getRoot());
 
@@ -129,6 +138,11 @@ public abstract class HillbilliesView implements IHillbilliesView {
 		return viewModel;
 	}
 
+	@Override
+	public DoubleProperty timeScaleProperty() {
+		return timeScale;
+	}
+
 	protected abstract InfoArea createInfoArea();
 
 	protected WorldView createWorldView() {
@@ -153,7 +167,10 @@ public abstract class HillbilliesView implements IHillbilliesView {
 		status.setText(getStatusText());
 	}
 
-	private String statusText = "";
+	/**
+	 * Volatile, because errors are reported on the simulation thread.
+	 */
+	private volatile String statusText = "";
 
 	public String getStatusText() {
 		return statusText;
@@ -2,6 +2,7 @@ package hillbillies.common.internal.ui;
 
 import hillbillies.common.internal.inputmodes.UserInputHandler;
 import hillbillies.common.internal.ui.viewmodel.IViewModel;
+import javafx.beans.property.DoubleProperty;
 import javafx.scene.Parent;
 import ogp.framework.game.IGameView;
 
@@ -20,5 +21,10 @@ public interface IHillbilliesView extends IGameView {
 	void setHighlightCurrentTile(boolean b);
 
 	Parent getRoot();
+
+	/**
+	 * The time scale the view shows, which is usually bound to the time scale of the game.
+	 */
+	DoubleProperty timeScaleProperty();
 	
 }
@@ -9,6 +9,7 @@ import hillbillies.model.world.Faction;
 import hillbillies.model.world.Unit;
 import hillbillies.model.world.World;
 import hillbillies.part3.programs.SourceLocation;
+import hillbillies.util.PackedCube;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -40,8 +41,15 @@ public class Task {
 	private String name;
 	private Unit assignedUnit;
 	private World world;
-	private int[] selected;
+	/**
+	 * The selected cube, packed as in PackedCube, or PackedCube.NONE.
+	 */
+	private long selected;
 	private boolean terminated;
+	/**
+	 * The program text this task was parsed from, or null.
+	 */
+	private String source;
 	
 	private Map<String, Expression<?>> variables;
 	
@@ -56,12 +64,13 @@ public class Task {
 	 *@param activities
 	 * 				The list of activities in the task.
 	 * @param selected
+	 * 				The selected cube {x, y, z}, or null.
 	 */
 	public Task(int priority, String name, ArrayList<Statement> activities, int[] selected){
 		//this.activities = activities;
 		setPriority(priority);
 		setName(name);
-		setSelected(selected);
+		setSelected(PackedCube.pack(selected));
 		variables = new HashMap<String, Expression<?>>();
 		
 		SourceLocation beginLocation = new SourceLocation(-1, 1);
@@ -116,7 +125,8 @@ public class Task {
 				continue;
 			
 			this.getCurrentlyExecuting().execute(this);
-			if (this.getCurrentlyExecuting().isExecutableByUnit()) 
+			// A statement that fails stops the task, which resets it to its beginning.
+			if (!this.beingExecuted() || this.getCurrentlyExecuting().isExecutableByUnit()) 
 				return;
 		}
 	}
@@ -178,6 +188,22 @@ public class Task {
 		this.name = name;
 	}
 	
+	/**
+	 * @return the program text this task was parsed from, or null if it is not known
+	 */
+	@Basic
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 * @param source the program text this task was parsed from, or null
+	 */
+	@Basic
+	public void setSource(String source) {
+		this.source = source;
+	}
+	
 	/**
 	 * @return the assignedUnit
 	 */
@@ -195,16 +221,16 @@ public class Task {
 	}
 
 	/**
-	 * @return the selected
+	 * @return the selected cube, packed as in PackedCube, or PackedCube.NONE
 	 */
-	public int[] getSelected() {
+	public long getSelected() {
 		return selected;
 	}
 
 	/**
-	 * @param selected the selected to set
+	 * @param selected the selected cube to set, packed as in PackedCube, or PackedCube.NONE
 	 */
-	public void setSelected(int[] selected) {
+	public void setSelected(long selected) {
 		this.selected = selected;
 	}
 
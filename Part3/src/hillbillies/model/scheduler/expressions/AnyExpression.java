@@ -4,10 +4,7 @@ import hillbillies.model.scheduler.Task;
 import hillbillies.model.world.Unit;
 import hillbillies.part3.programs.SourceLocation;
 
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Random;
-import java.util.Set;
+import hillbillies.model.world.UnitRegistry;
 
 public class AnyExpression extends UnitExpression {
 
@@ -17,22 +14,16 @@ public class AnyExpression extends UnitExpression {
 
 	@Override
 	public Unit evaluate(Task task) {
-		Set<Unit> all = new HashSet<Unit>(task.getWorld().getUnits());
-		all.remove(task.getAssignedUnit());
-		if (all.isEmpty())
+		UnitRegistry units = task.getWorld().getUnitRegistry();
+		int self = units.indexOf(task.getAssignedUnit());
+		int nbOthers = self < 0 ? units.size() : units.size() - 1;
+		if (nbOthers == 0)
 			return null;
-		Iterator<Unit> ite = all.iterator();
-		Random rand = new Random();
-		int stopIndex = rand.nextInt(all.size());
-		int i = 0;
-		while (ite.hasNext()) {
-			Unit next = ite.next();
-			if (i == stopIndex)
-				return next;
-			i++;
-		}
-		//Should never happen
-		return null;
+		int index = getRandom(task).nextInt(nbOthers);
+		// Skip the position of the assigned unit.
+		if (self >= 0 && index >= self)
+			index++;
+		return units.get(index);
 	}
 
 	@Override
@@ -5,9 +5,6 @@ import hillbillies.model.world.Faction;
 import hillbillies.model.world.Unit;
 import hillbillies.part3.programs.SourceLocation;
 
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Random;
 import java.util.Set;
 
 public class EnemyExpression extends UnitExpression {
@@ -19,22 +16,27 @@ public class EnemyExpression extends UnitExpression {
 	@Override
 	public Unit evaluate(Task task) {
 		Unit unit = task.getAssignedUnit();
-		Set<Unit> enemies = new HashSet<Unit>();
+		int nbEnemies = 0;
 		for (Faction faction : task.getWorld().getFactions()) {
 			if (unit.getFaction() != faction)
-				enemies.addAll(faction.getUnits());
+				nbEnemies += faction.getUnits().size();
 		}
-		if (enemies.isEmpty())
+		if (nbEnemies == 0)
 			return null;
-		Iterator<Unit> ite = enemies.iterator();
-		Random rand = new Random();
-		int stopIndex = rand.nextInt(enemies.size());
-		int i = 0;
-		while (ite.hasNext()) {
-			Unit next = ite.next();
-			if (i == stopIndex)
-				return next;
-			i++;
+		int stopIndex = getRandom(task).nextInt(nbEnemies);
+		for (Faction faction : task.getWorld().getFactions()) {
+			if (unit.getFaction() == faction)
+				continue;
+			Set<Unit> enemies = faction.getUnits();
+			if (stopIndex >= enemies.size()) {
+				stopIndex -= enemies.size();
+				continue;
+			}
+			for (Unit next : enemies) {
+				if (stopIndex == 0)
+					return next;
+				stopIndex--;
+			}
 		}
 		//Should never happen
 		return null;
@@ -4,9 +4,6 @@ import hillbillies.model.scheduler.Task;
 import hillbillies.model.world.Unit;
 import hillbillies.part3.programs.SourceLocation;
 
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Random;
 import java.util.Set;
 
 public class FriendExpression extends UnitExpression {
@@ -17,19 +14,18 @@ public class FriendExpression extends UnitExpression {
 
 	@Override
 	public Unit evaluate(Task task) {
-		Set<Unit> friends = new HashSet<Unit>(task.getAssignedUnit().getFaction().getUnits());
-		friends.remove(task.getAssignedUnit());
-		if (friends.isEmpty())
+		Unit self = task.getAssignedUnit();
+		Set<Unit> units = self.getFaction().getUnits();
+		int nbFriends = units.contains(self) ? units.size() - 1 : units.size();
+		if (nbFriends == 0)
 			return null;
-		Iterator<Unit> ite = friends.iterator();
-		Random rand = new Random();
-		int stopIndex = rand.nextInt(friends.size());
-		int i = 0;
-		while (ite.hasNext()) {
-			Unit next = ite.next();
-			if (i == stopIndex)
+		int stopIndex = getRandom(task).nextInt(nbFriends);
+		for (Unit next : units) {
+			if (next == self)
+				continue;
+			if (stopIndex == 0)
 				return next;
-			i++;
+			stopIndex--;
 		}
 		//Should never happen
 		return null;
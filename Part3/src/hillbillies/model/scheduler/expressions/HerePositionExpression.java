@@ -1,7 +1,9 @@
 package hillbillies.model.scheduler.expressions;
 
 import hillbillies.model.scheduler.Task;
+import hillbillies.model.world.Unit;
 import hillbillies.part3.programs.SourceLocation;
+import hillbillies.util.PackedCube;
 
 public class HerePositionExpression extends PositionExpression {
 
@@ -10,8 +12,9 @@ public class HerePositionExpression extends PositionExpression {
 	}
 
 	@Override
-	public int[] evaluate(Task task) {
-		return task.getAssignedUnit().getPosition().toIntArray();
+	public long evaluatePacked(Task task) {
+		Unit unit = task.getAssignedUnit();
+		return PackedCube.pack(unit.getCubeX(), unit.getCubeY(), unit.getCubeZ());
 	}
 
 	@Override
@@ -3,6 +3,7 @@ package hillbillies.model.scheduler.expressions;
 import ogp.framework.util.ModelException;
 import hillbillies.model.scheduler.Task;
 import hillbillies.part3.programs.SourceLocation;
+import hillbillies.util.PackedCube;
 
 
 public class IsPassableExpression extends BooleanExpression {
@@ -15,9 +16,11 @@ public class IsPassableExpression extends BooleanExpression {
 	//TODO: Is passable not solid of is da walkable?
 	@Override
 	public Boolean evaluate(Task task) {
-		int[] pos = (int[]) this.getSubExpressions()[0].evaluate(task);
+		long pos = ((PositionExpression) this.getSubExpressions()[0]).evaluatePacked(task);
+		if (pos == PackedCube.NONE)
+			return false;
 		try {
-			return !task.getWorld().getCube(pos[0], pos[1], pos[2]).isSolid();
+			return !task.getWorld().getCube(PackedCube.getX(pos), PackedCube.getY(pos), PackedCube.getZ(pos)).isSolid();
 		} catch (ModelException e) {
 			System.out.println("Something went wrong in expressionding");
 			e.printStackTrace();
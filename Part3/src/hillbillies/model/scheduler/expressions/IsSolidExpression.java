@@ -2,6 +2,7 @@ package hillbillies.model.scheduler.expressions;
 
 import hillbillies.model.scheduler.Task;
 import hillbillies.part3.programs.SourceLocation;
+import hillbillies.util.PackedCube;
 import ogp.framework.util.ModelException;
 
 public class IsSolidExpression extends BooleanExpression {
@@ -13,9 +14,11 @@ public class IsSolidExpression extends BooleanExpression {
 
 	@Override
 	public Boolean evaluate(Task task) {
-		int[] pos = (int[]) this.getSubExpressions()[0].evaluate(task);
+		long pos = ((PositionExpression) this.getSubExpressions()[0]).evaluatePacked(task);
+		if (pos == PackedCube.NONE)
+			return false;
 		try {
-			return task.getWorld().getCube(pos[0], pos[1], pos[2]).isSolid();
+			return task.getWorld().getCube(PackedCube.getX(pos), PackedCube.getY(pos), PackedCube.getZ(pos)).isSolid();
 		} catch (ModelException e) {
 			System.out.println("Something went wrong in IsSolidExpression");
 			e.printStackTrace();
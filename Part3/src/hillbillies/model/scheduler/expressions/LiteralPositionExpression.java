@@ -2,30 +2,34 @@ package hillbillies.model.scheduler.expressions;
 
 import hillbillies.model.scheduler.Task;
 import hillbillies.part3.programs.SourceLocation;
+import hillbillies.util.PackedCube;
 
 public class LiteralPositionExpression extends PositionExpression {
 
-	private final int[] position;
+	/**
+	 * The position, packed as in PackedCube.
+	 */
+	private final long position;
 	
 	public LiteralPositionExpression(SourceLocation sourceLocation, int x, int y, int z) {
 		super(sourceLocation);
-		this.position = new int[]{x, y, z};
+		this.position = PackedCube.pack(x, y, z);
 	}
 
 	@Override
-	public int[] evaluate(Task task) {
+	public long evaluatePacked(Task task) {
 		return position;
 	}
 
 	@Override
 	public String getString(Task task) {
-		return Expression.positionToString(this.getPosition());
+		return PackedCube.toString(this.getPosition());
 	}
 
 	/**
-	 * @return the position
+	 * @return the position, packed as in PackedCube
 	 */
-	protected int[] getPosition() {
+	protected long getPosition() {
 		return position;
 	}
 
@@ -1,13 +1,9 @@
 package hillbillies.model.scheduler.expressions;
 
 import hillbillies.model.scheduler.Task;
-import hillbillies.model.world.Log;
 import hillbillies.model.world.Unit;
-import hillbillies.model.world.Vector;
 import hillbillies.part3.programs.SourceLocation;
 
-import java.util.Set;
-
 public class LogPositionExpression extends PositionExpression {
 
 	public LogPositionExpression(SourceLocation sourceLocation) {
@@ -21,20 +17,9 @@ public class LogPositionExpression extends PositionExpression {
 	 * @return
 	 */
 	@Override
-	public int[] evaluate(Task task) {
+	public long evaluatePacked(Task task) {
 		Unit unit = task.getAssignedUnit();
-		Set<Log> logs = unit.getWorld().getLogs();
-		double minimumDistance = Double.MAX_VALUE;
-		int[] minimumLog = null;
-		for (Log log : logs) {
-			Vector deltaPos = unit.getPosition().subtract(log.getPosition());
-			double distance = deltaPos.length();
-			if (distance < minimumDistance) {
-				minimumDistance = distance;
-				minimumLog = log.getPosition().toIntArray();
-			}
-		}
-		return minimumLog;
+		return unit.getWorld().getNearestLog(unit.getPosition());
 	}
 
 	@Override
@@ -2,6 +2,7 @@ package hillbillies.model.scheduler.expressions;
 
 import hillbillies.model.scheduler.Task;
 import hillbillies.part3.programs.SourceLocation;
+import hillbillies.util.PackedCube;
 
 public class NextToPositionExpression extends PositionExpression {
 
@@ -15,19 +16,22 @@ public class NextToPositionExpression extends PositionExpression {
 	 * Returns null if there are no walkable cubes next to this cube. 
 	 */
 	@Override
-	public int[] evaluate(Task task) {
-		int[] pos = (int[]) this.getSubExpressions()[0].evaluate(task);
+	public long evaluatePacked(Task task) {
+		long pos = ((PositionExpression) this.getSubExpressions()[0]).evaluatePacked(task);
+		if (pos == PackedCube.NONE)
+			return PackedCube.NONE;
+		int posX = PackedCube.getX(pos), posY = PackedCube.getY(pos), posZ = PackedCube.getZ(pos);
 		for (int x = -1; x <= 1; x++) {
 			for (int y = -1; y <= 1; y++) {
 				for (int z = -1; z <= 1; z++) {
 					if (x == 0 && y == 0)
 						continue;
-					if (task.getWorld().isWalkable(new int[]{pos[0] + x, pos[1] + y, pos[2] + z}))
-						return new int[]{pos[0] + x, pos[1] + y, pos[2] + z};
+					if (task.getWorld().isWalkable(posX + x, posY + y, posZ + z))
+						return PackedCube.pack(posX + x, posY + y, posZ + z);
 				}
 			}
 		}
-		return null;
+		return PackedCube.NONE;
 	}
 
 	@Override
@@ -1,7 +1,15 @@
 package hillbillies.model.scheduler.expressions;
 
+import hillbillies.model.scheduler.Task;
 import hillbillies.part3.programs.SourceLocation;
+import hillbillies.util.PackedCube;
 
+/**
+ * An expression that evaluates to a cube.
+ * 
+ * Subclasses compute the cube packed in a long, see PackedCube, so statements that only need its coordinates do
+ * not make an array for it. evaluate unpacks it for the generic callers.
+ */
 public abstract class PositionExpression extends Expression<int[]> {
 
 	public PositionExpression(SourceLocation sourceLocation,
@@ -12,4 +20,17 @@ public abstract class PositionExpression extends Expression<int[]> {
 	public PositionExpression(SourceLocation sourceLocation) {
 		super(sourceLocation);
 	}
+	
+	/**
+	 * Returns the cube this expression evaluates to, packed as in PackedCube, or PackedCube.NONE if there is none.
+	 */
+	public abstract long evaluatePacked(Task task);
+	
+	/**
+	 * @return	| result == PackedCube.toArray(evaluatePacked(task))
+	 */
+	@Override
+	public final int[] evaluate(Task task) {
+		return PackedCube.toArray(evaluatePacked(task));
+	}
 }
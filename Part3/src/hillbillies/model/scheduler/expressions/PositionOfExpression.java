@@ -3,6 +3,7 @@ package hillbillies.model.scheduler.expressions;
 import hillbillies.model.scheduler.Task;
 import hillbillies.model.world.Unit;
 import hillbillies.part3.programs.SourceLocation;
+import hillbillies.util.PackedCube;
 
 public class PositionOfExpression extends PositionExpression {
 
@@ -12,8 +13,9 @@ public class PositionOfExpression extends PositionExpression {
 	}
 
 	@Override
-	public int[] evaluate(Task task) {
-		return ((Unit) this.getSubExpressions()[0].evaluate(task)).getPosition().toIntArray();
+	public long evaluatePacked(Task task) {
+		Unit unit = (Unit) this.getSubExpressions()[0].evaluate(task);
+		return PackedCube.pack(unit.getCubeX(), unit.getCubeY(), unit.getCubeZ());
 	}
 
 	@Override
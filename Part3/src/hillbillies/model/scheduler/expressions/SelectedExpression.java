@@ -10,7 +10,7 @@ public class SelectedExpression extends PositionExpression {
 	}
 
 	@Override
-	public int[] evaluate(Task task) {
+	public long evaluatePacked(Task task) {
 		return task.getSelected();
 	}
 
@@ -1,5 +1,8 @@
 package hillbillies.model.scheduler.expressions;
 
+import java.util.SplittableRandom;
+
+import hillbillies.model.scheduler.Task;
 import hillbillies.model.world.Unit;
 import hillbillies.part3.programs.SourceLocation;
 
@@ -13,4 +16,12 @@ public abstract class UnitExpression extends Expression<Unit> {
 	public UnitExpression(SourceLocation sourceLocation) {
 		super(sourceLocation);
 	}
+	
+	/**
+	 * Returns the random stream of the unit that executes the given task, or that of its world if no unit does.
+	 */
+	protected SplittableRandom getRandom(Task task) {
+		Unit unit = task.getAssignedUnit();
+		return unit != null ? unit.getRandom() : task.getWorld().getRandom();
+	}
 }
@@ -1,13 +1,9 @@
 package hillbillies.model.scheduler.expressions;
 
 import hillbillies.model.scheduler.Task;
-import hillbillies.model.world.CubeType;
 import hillbillies.model.world.Unit;
-import hillbillies.model.world.Vector;
 import hillbillies.part3.programs.SourceLocation;
 
-import java.util.Set;
-
 public class WorkshopPositionExpression extends PositionExpression {
 
 	public WorkshopPositionExpression(SourceLocation sourceLocation) {
@@ -15,20 +11,9 @@ public class WorkshopPositionExpression extends PositionExpression {
 	}
 
 	@Override
-	public int[] evaluate(Task task) {
+	public long evaluatePacked(Task task) {
 		Unit unit = task.getAssignedUnit();
-		Set<int[]> workshops = unit.getWorld().getCubesOfType(CubeType.WORKSHOP);
-		double minimumDistance = Double.MAX_VALUE;
-		int[] minimumWorkshop = null;
-		for (int[] pos : workshops) {
-			Vector deltaPos = unit.getPosition().subtract(new Vector(pos[0], pos[1], pos[2]));
-			double distance = deltaPos.length();
-			if (distance < minimumDistance) {
-				minimumDistance = distance;
-				minimumWorkshop = pos;
-			}
-		}
-		return minimumWorkshop;
+		return unit.getWorld().getNearestWorkshop(unit.getPosition());
 	}
 
 	@Override
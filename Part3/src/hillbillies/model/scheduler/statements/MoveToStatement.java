@@ -3,6 +3,7 @@ package hillbillies.model.scheduler.statements;
 import hillbillies.model.scheduler.Task;
 import hillbillies.model.scheduler.expressions.PositionExpression;
 import hillbillies.part3.programs.SourceLocation;
+import hillbillies.util.PackedCube;
 import ogp.framework.util.ModelException;
 
 public class MoveToStatement extends Statement {
@@ -13,14 +14,14 @@ public class MoveToStatement extends Statement {
 
 	@Override
 	public void execute(Task task) {
-		int[] position = (int[]) this.getExpression().evaluate(task);
-		if (position == null) {
+		long position = ((PositionExpression) this.getExpression()).evaluatePacked(task);
+		if (position == PackedCube.NONE) {
 			System.out.println("Something went wrong (class MoveToStatement, method execute(Task))");
 			task.getAssignedUnit().stopTask();
 			return;
 		}
 		try {
-			task.getAssignedUnit().moveTo(position[0], position[1], position[2]);
+			task.getAssignedUnit().moveTo(PackedCube.getX(position), PackedCube.getY(position), PackedCube.getZ(position));
 		} catch (ModelException e) {
 		}
 	}
@@ -3,6 +3,7 @@ package hillbillies.model.scheduler.statements;
 import hillbillies.model.scheduler.Task;
 import hillbillies.model.scheduler.expressions.PositionExpression;
 import hillbillies.part3.programs.SourceLocation;
+import hillbillies.util.PackedCube;
 
 public class WorkStatement extends Statement {
 
@@ -12,12 +13,12 @@ public class WorkStatement extends Statement {
 
 	@Override
 	public void execute(Task task) {
-		int[] position = (int[]) this.getExpression().evaluate(task);
-		if (position == null) {
+		long position = ((PositionExpression) this.getExpression()).evaluatePacked(task);
+		if (position == PackedCube.NONE) {
 			task.getAssignedUnit().stopTask();
 			return;
 		}
-		task.getAssignedUnit().startWork(position[0], position[1], position[2]);
+		task.getAssignedUnit().startWork(PackedCube.getX(position), PackedCube.getY(position), PackedCube.getZ(position));
 	}
 	
 	public boolean isExecutableByUnit() {
@@ -19,6 +19,18 @@ public class Boulder extends Carryable {
 	public Boulder(Vector position) {
 		super(position);
 	}
+	
+	/**
+	 * Constructor for the Boulder class with the given weight.
+	 * 
+	 * @param position
+	 * 			The position of this Boulder.
+	 * @param weight
+	 * 			The weight of this Boulder, between 10 and 50 (inclusive).
+	 */
+	public Boulder(Vector position, int weight) {
+		super(position, weight);
+	}
 
 	
 	/**
@@ -1,6 +1,6 @@
 package hillbillies.model.world;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import ogp.framework.util.ModelException;
 import be.kuleuven.cs.som.annotate.Basic;
@@ -21,11 +21,19 @@ public abstract class Carryable {
 	private int weight;
 	private World world;
 	private static final Vector FALL_VELOCITY = new Vector(0,0,-3);
+	/**
+	 * The bounds of the weight of a carryable, inclusive.
+	 */
+	static final int MIN_WEIGHT = 10, MAX_WEIGHT = 50;
 	private boolean terminated;
 	/**
 	 * Variable to signify that the Carryable has been picked up by a Unit.
 	 */
 	private boolean pickedUp;
+	/**
+	 * Variable to signify that there was no solid cube under this Carryable at its last tick.
+	 */
+	private boolean falling;
 	public enum CarryableType{
 		LOG, BOULDER
 	};
@@ -42,13 +50,28 @@ public abstract class Carryable {
 	 */
 	@Model
 	protected Carryable(Vector position){
+		this(position, ThreadLocalRandom.current().nextInt(MIN_WEIGHT, MAX_WEIGHT + 1));
+	}
+	
+	/**
+	 * Constructor for the Carryable class with the given weight.
+	 * 
+	 * @param position
+	 * 			The position of this Carryable.
+	 * @param weight
+	 * 			The weight of this Carryable, between 10 and 50 (inclusive).
+	 * @post	| new.getWeight() == weight
+	 * @post	| new.isPickedUp() == false
+	 * @post	| new.isTerminated() == false
+	 */
+	@Model
+	protected Carryable(Vector position, int weight){
 		try {
 			setPosition(position.add(new Vector(0.5d, 0.5d, 0.5d)));
 		} catch (ModelException e) {
 			e.printStackTrace();
 		}
-		Random rand = new Random();
-		setWeight(rand.nextInt(41) + 10);
+		setWeight(weight);
 		terminated = false;
 		pickedUp = false;
 	}
@@ -58,6 +81,7 @@ public abstract class Carryable {
 	 * 
 	 * @param deltaT
 	 * 			Time since the last time advanceTime was called.
+	 * @post	| new.isFalling() == (the cube under the Carryable is not solid)
 	 * @effect	If the cube under the Carryable is not solid, the Carryable falls.
 	 * @throws 	ModelException
 	 * 			| if (deltaT <= 0 or deltaT > 0.2)
@@ -66,15 +90,17 @@ public abstract class Carryable {
 		if (deltaT <=0 || deltaT >0.2)
 			throw new ModelException();
 		int[] cubePosition = this.getPosition().toIntArray();
-		if (cubePosition[2] != 0) {
-			try {
-				CubeType cube = world.getCube(cubePosition[0], cubePosition[1], cubePosition[2]-1);
-				if (!cube.isSolid())
-					fall(deltaT);
-			} catch (ModelException e) {
-				e.printStackTrace();
-			}
-		}
+		falling = cubePosition[2] != 0 && !world.isSolidAt(cubePosition[0], cubePosition[1], cubePosition[2]-1);
+		if (falling)
+			fall(deltaT);
+	}
+	
+	/**
+	 * Returns true iff there was no solid cube under this carryable at its last tick, so that it fell.
+	 */
+	@Basic
+	public final boolean isFalling() {
+		return falling;
 	}
 	
 	/**
@@ -91,23 +117,31 @@ public abstract class Carryable {
 	
 	/**
 	 * This Carryable is being picked up by a unit.
+	 * @effect	This carryable is removed from the index of its world.
 	 */
 	public final void beingPickedUp(){
 		pickedUp = true;
+		if (world != null)
+			world.removeFromIndex(this);
 	}
 	
 	/**
 	 * This Carryable is dropped by a unit.
+	 * @effect	This carryable is indexed at its position in its world.
 	 */
 	public final void beingDropped() {
 		pickedUp = false;
+		updateIndex();
 	}
 	
 	/**
 	 * Terminate this carryable.
+	 * @effect	This carryable is removed from the index of its world.
 	 */
 	public final void terminate(){
 		terminated = true;
+		if (world != null)
+			world.removeFromIndex(this);
 	}
 	
 	/**
@@ -128,6 +162,7 @@ public abstract class Carryable {
 	/**
 	 * Sets the position of this carryable equal to the given position.
 	 * @param position
+	 * @effect	If this carryable lies in a world, it is indexed at its new position.
 	 * @throws ModelException
 	 * 			If the given position is invalid, throw a ModelException.
 	 */
@@ -135,6 +170,15 @@ public abstract class Carryable {
 		if (!World.isValidPosition(position, world))
 			throw new ModelException("The carryable object has an invalid position.");
 		this.position = position;
+		updateIndex();
+	}
+	
+	/**
+	 * Indexes this carryable at its position in its world, unless it is picked up or terminated.
+	 */
+	private void updateIndex() {
+		if (world != null && !pickedUp && !terminated)
+			world.updateIndex(this);
 	}
 	
 	/**
@@ -181,9 +225,10 @@ public abstract class Carryable {
 
 	/**
 	 * @param world the world to set
+	 * @effect	This carryable is indexed at its position in the given world.
 	 */
-	@Basic
 	public final void setWorld(World world) {
 		this.world = world;
+		updateIndex();
 	}
 }
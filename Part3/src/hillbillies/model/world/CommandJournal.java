@@ -0,0 +1,379 @@
+package hillbillies.model.world;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import hillbillies.model.scheduler.Scheduler;
+import hillbillies.model.scheduler.Task;
+
+/**
+ * Records a session of a world, so that it can be replayed without a display by a JournalReplayer.
+ *
+ * A journal starts with the seed and the terrain of the world, before it has any units. After that, it holds every
+ * command that is given to the world from outside, between the ticks in which it was given. A run of ticks of the
+ * same length takes one record, so the tick of every command follows from the records before it. Units are
+ * identified by their id, factions by their place in the factions of the world and tasks by the order in which they
+ * were scheduled; all of them come out the same in a replay, because the world then draws the same random numbers.
+ * A scheduled task is recorded by its source, so a task that was not parsed from program text cannot be recorded.
+ * A recorded world cannot have a coarse step, because which units are ticked at that step depends on the view.
+ *
+ * The journal ends with a hash of the state of the world, so that a replay can tell whether it ended in the same
+ * state. A replay that does not has diverged, for instance because the world was changed without the journal.
+ *
+ * The journal is a gzipped stream of DataOutput records. All methods are synchronized, so commands may be recorded
+ * from other threads than the one that advances the world. Commands that are recorded after the journal is closed
+ * are ignored.
+ *
+ * @author HF corp.
+ * @version 1.0
+ */
+public class CommandJournal implements Closeable {
+
+	static final int MAGIC = 0x48424a4e;
+	static final byte VERSION = 2;
+
+	static final byte TICKS = 0;
+	static final byte MOVE_TO_ADJACENT = 1;
+	static final byte MOVE_TO = 2;
+	static final byte WORK = 3;
+	static final byte WORK_AT = 4;
+	static final byte FIGHT = 5;
+	static final byte REST = 6;
+	static final byte START_SPRINTING = 7;
+	static final byte STOP_SPRINTING = 8;
+	static final byte DEFAULT_BEHAVIOR = 9;
+	static final byte SPAWN_UNIT = 10;
+	static final byte ADD_UNIT = 11;
+	static final byte SCHEDULE = 12;
+	static final byte REPLACE = 13;
+	static final byte END = -1;
+
+	private final World world;
+	private final DataOutputStream out;
+	/**
+	 * The number of every task that was scheduled, in the order in which they were scheduled.
+	 */
+	private final Map<Task, Integer> tasks = new IdentityHashMap<>();
+
+	private long nbTicks;
+	/**
+	 * The run of ticks of the same length that has not been written yet.
+	 */
+	private int pendingTicks;
+	private double pendingStep;
+	private boolean closed;
+
+	/**
+	 * Creates a new journal of the given world, which writes to the given stream.
+	 *
+	 * @effect	| world.setSeed(seed)
+	 * @post	| world.isRecorded()
+	 * @throws	IllegalArgumentException
+	 * 			If the world already has units, has already advanced or has a coarse step.
+	 * @throws	IOException
+	 * 			If the header cannot be written.
+	 */
+	public CommandJournal(World world, long seed, OutputStream out) throws IOException {
+		if (!world.getUnits().isEmpty() || world.getTime() != 0)
+			throw new IllegalArgumentException("A journal must start before the world has units or has advanced");
+		if (world.getCoarseStep() != 0)
+			throw new IllegalArgumentException("A journal cannot record a world with a coarse step");
+		this.world = world;
+		this.out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(out)));
+		world.setSeed(seed);
+		this.out.writeInt(MAGIC);
+		this.out.writeByte(VERSION);
+		this.out.writeLong(seed);
+		this.out.writeInt(world.getSizeX());
+		this.out.writeInt(world.getSizeY());
+		this.out.writeInt(world.getSizeZ());
+		this.out.write(world.copyTerrain());
+		world.setJournal(this);
+	}
+
+	/**
+	 * Creates a new journal of the given world, which writes to the given file.
+	 *
+	 * @effect	| this(world, seed, Files.newOutputStream(path))
+	 */
+	public CommandJournal(World world, long seed, Path path) throws IOException {
+		this(world, seed, Files.newOutputStream(path));
+	}
+
+	/**
+	 * Returns the world of this journal.
+	 */
+	public World getWorld() {
+		return world;
+	}
+
+	/**
+	 * Returns true iff this journal is closed.
+	 */
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Returns the number of ticks that was recorded so far.
+	 */
+	public synchronized long getNbTicks() {
+		return nbTicks;
+	}
+
+	/**
+	 * Records a tick of the given length.
+	 */
+	public synchronized void advanceTime(double dt) {
+		if (closed)
+			return;
+		if (pendingTicks > 0 && (dt != pendingStep || pendingTicks == Integer.MAX_VALUE))
+			flushTicks();
+		pendingStep = dt;
+		pendingTicks++;
+		nbTicks++;
+	}
+
+	public synchronized void moveToAdjacent(Unit unit, int dx, int dy, int dz) {
+		if (start(MOVE_TO_ADJACENT, unit))
+			writeCube(dx, dy, dz);
+	}
+
+	public synchronized void moveTo(Unit unit, int[] cube) {
+		if (start(MOVE_TO, unit))
+			writeCube(cube[0], cube[1], cube[2]);
+	}
+
+	public synchronized void work(Unit unit) {
+		start(WORK, unit);
+	}
+
+	public synchronized void workAt(Unit unit, int x, int y, int z) {
+		if (start(WORK_AT, unit))
+			writeCube(x, y, z);
+	}
+
+	public synchronized void fight(Unit attacker, Unit defender) {
+		if (isRecorded(defender) && start(FIGHT, attacker))
+			writeInt(defender.getId());
+	}
+
+	public synchronized void rest(Unit unit) {
+		start(REST, unit);
+	}
+
+	public synchronized void startSprinting(Unit unit) {
+		start(START_SPRINTING, unit);
+	}
+
+	public synchronized void stopSprinting(Unit unit) {
+		start(STOP_SPRINTING, unit);
+	}
+
+	public synchronized void setDefaultBehaviorEnabled(Unit unit, boolean value) {
+		if (start(DEFAULT_BEHAVIOR, unit))
+			writeBoolean(value);
+	}
+
+	/**
+	 * Records that a unit was spawned in the world of this journal.
+	 */
+	public synchronized void spawnUnit(boolean enableDefaultBehavior) {
+		if (start(SPAWN_UNIT))
+			writeBoolean(enableDefaultBehavior);
+	}
+
+	/**
+	 * Records that the given unit, which is not in a world yet, is added to the world of this journal.
+	 */
+	public synchronized void addUnit(Unit unit) {
+		if (!start(ADD_UNIT))
+			return;
+		int[] cube = unit.getPosition().toIntArray();
+		try {
+			out.writeUTF(unit.getName());
+			writeCube(cube[0], cube[1], cube[2]);
+			out.writeInt(unit.getWeight());
+			out.writeInt(unit.getStrength());
+			out.writeInt(unit.getAgility());
+			out.writeInt(unit.getToughness());
+			out.writeBoolean(unit.isDefaultBehaviorEnabled());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Records that the given task is scheduled by the given scheduler.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			If the task has no source.
+	 */
+	public synchronized void schedule(Scheduler scheduler, Task task) {
+		if (task.getSource() == null)
+			throw new IllegalArgumentException("Cannot record a task without a source: " + task.getName());
+		if (start(SCHEDULE))
+			writeTask(scheduler, task);
+	}
+
+	/**
+	 * Records that the given scheduler replaces the given original task by the given replacement.
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			If the replacement has no source.
+	 */
+	public synchronized void replace(Scheduler scheduler, Task original, Task replacement) {
+		if (replacement.getSource() == null)
+			throw new IllegalArgumentException("Cannot record a task without a source: " + replacement.getName());
+		Integer number = tasks.get(original);
+		if (number == null || !start(REPLACE))
+			return;
+		writeInt(number);
+		writeTask(scheduler, replacement);
+	}
+
+	/**
+	 * Writes the pending ticks, an end mark and the hash of the state of the world, and closes the stream of this
+	 * journal.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed)
+			return;
+		if (pendingTicks > 0)
+			flushTicks();
+		closed = true;
+		out.writeByte(END);
+		out.writeLong(hashState(world));
+		out.close();
+	}
+
+	/**
+	 * Returns a hash of the time, the terrain, the units and the carryables of the given world. Two worlds that
+	 * replay the same session have the same hash.
+	 */
+	static long hashState(World world) {
+		long hash = Double.doubleToLongBits(world.getTime());
+		hash = 31 * hash + Arrays.hashCode(world.copyTerrain());
+		UnitRegistry units = world.getUnitRegistry();
+		for (int i = 0; i < units.size(); i++) {
+			Unit unit = units.get(i);
+			hash = 31 * hash + unit.getId();
+			hash = 31 * hash + hashPosition(unit.getPosition());
+			hash = 31 * hash + unit.getState().ordinal();
+			hash = 31 * hash + Double.doubleToLongBits(unit.getCurrentHealth());
+			hash = 31 * hash + Double.doubleToLongBits(unit.getCurrentStamina());
+			hash = 31 * hash + unit.getExperience();
+		}
+		for (Carryable carryable : world.getCarryables())
+			hash = 31 * hash + hashPosition(carryable.getPosition());
+		return hash;
+	}
+
+	private static long hashPosition(Vector position) {
+		long hash = Double.doubleToLongBits(position.getX());
+		hash = 31 * hash + Double.doubleToLongBits(position.getY());
+		return 31 * hash + Double.doubleToLongBits(position.getZ());
+	}
+
+	/**
+	 * Returns true iff commands to the given unit can be recorded, which is when it is in the world of this journal.
+	 */
+	private boolean isRecorded(Unit unit) {
+		return unit != null && world.getUnitRegistry().contains(unit);
+	}
+
+	/**
+	 * Writes the pending ticks and the given opcode, if this journal is not closed.
+	 *
+	 * @return	True iff the opcode was written.
+	 */
+	private boolean start(byte opcode) {
+		if (closed)
+			return false;
+		if (pendingTicks > 0)
+			flushTicks();
+		try {
+			out.writeByte(opcode);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the pending ticks, the given opcode and the id of the given unit, if this journal is not closed and the
+	 * unit is in its world.
+	 *
+	 * @return	True iff the command was written.
+	 */
+	private boolean start(byte opcode, Unit unit) {
+		if (!isRecorded(unit) || !start(opcode))
+			return false;
+		writeInt(unit.getId());
+		return true;
+	}
+
+	private void flushTicks() {
+		try {
+			out.writeByte(TICKS);
+			out.writeInt(pendingTicks);
+			out.writeDouble(pendingStep);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		pendingTicks = 0;
+	}
+
+	private void writeTask(Scheduler scheduler, Task task) {
+		int faction = 0;
+		for (Faction other : world.getFactions()) {
+			if (other == scheduler.getFaction())
+				break;
+			faction++;
+		}
+		tasks.put(task, tasks.size());
+		try {
+			out.writeInt(faction);
+			out.writeLong(task.getSelected());
+			byte[] source = task.getSource().getBytes(StandardCharsets.UTF_8);
+			out.writeInt(source.length);
+			out.write(source);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeCube(int x, int y, int z) {
+		writeInt(x);
+		writeInt(y);
+		writeInt(z);
+	}
+
+	private void writeInt(int value) {
+		try {
+			out.writeInt(value);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeBoolean(boolean value) {
+		try {
+			out.writeBoolean(value);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
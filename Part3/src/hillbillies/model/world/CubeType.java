@@ -14,6 +14,20 @@ public enum CubeType {
 	private final int typeInt;
 	private final boolean solid;
 	
+	/**
+	 * The CubeTypes indexed by their typeInt, so looking one up does not clone values().
+	 */
+	private static final CubeType[] BY_TYPE_INT;
+	
+	static {
+		int maxTypeInt = 0;
+		for (CubeType type : values())
+			maxTypeInt = Math.max(maxTypeInt, type.getTypeInt());
+		BY_TYPE_INT = new CubeType[maxTypeInt + 1];
+		for (CubeType type : values())
+			BY_TYPE_INT[type.getTypeInt()] = type;
+	}
+	
 	/**
 	 * Constructor for CubeType.
 	 * @param typeInt
@@ -43,4 +57,16 @@ public enum CubeType {
 	public boolean isSolid() {
 		return solid;
 	}
+	
+	/**
+	 * Returns the CubeType with the given typeInt, or null if there is none.
+	 * @param typeInt
+	 * @return	| if for some type in values(): type.getTypeInt() == typeInt then result == type
+	 * 			| else result == null
+	 */
+	public static CubeType fromTypeInt(int typeInt) {
+		if (typeInt < 0 || typeInt >= BY_TYPE_INT.length)
+			return null;
+		return BY_TYPE_INT[typeInt];
+	}
 }
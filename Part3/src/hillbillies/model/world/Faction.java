@@ -2,7 +2,7 @@ package hillbillies.model.world;
 
 import hillbillies.model.scheduler.Scheduler;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -31,7 +31,7 @@ public class Faction {
 	 * @effect	new.getWorld() == world
 	 */
 	public Faction(World world) {
-		units = new HashSet<Unit>();
+		units = new LinkedHashSet<Unit>();
 		setWorld(world);
 		setScheduler(new Scheduler(this));
 		
@@ -40,12 +40,15 @@ public class Faction {
 	/**
 	 * Advances the time with the given deltaT.
 	 * @param deltaT
-	 * @effect	All units in this faction advance time with the given deltaT.
+	 * @effect	All units in this faction that are awake advance through a tick with the given deltaT.
+	 * 			| for unit in units do if not unit.isAsleep() then unit.tick(deltaT)
 	 */
 	public void advanceTime(double deltaT) {
 		for (Unit unit : units) {
+			if (unit.isAsleep())
+				continue;
 			try {
-				unit.advanceTime(deltaT);
+				unit.tick(deltaT);
 			} catch (ModelException e) {
 				e.printStackTrace();
 			}
@@ -63,13 +66,16 @@ public class Faction {
 	}
 	
 	/**
-	 * Removes all terminated units from this faction.
+	 * Removes all terminated units from this faction and from the unit registry of its world.
 	 */
 	public void checkTerminated() {
 		Iterator<Unit> iterator = units.iterator();
 		while (iterator.hasNext()) {
-			if (iterator.next().isTerminated())
+			Unit unit = iterator.next();
+			if (unit.isTerminated()) {
 				iterator.remove();
+				this.getWorld().unregisterUnit(unit);
+			}
 		}
 		if (this.getUnits().isEmpty())
 			this.terminate();
@@ -80,7 +86,8 @@ public class Faction {
 	 * @param unit
 	 * 			The unit to add to this faction.
 	 * @effect	If this faction does not have 50 units yet, add the given unit and set its faction equal to this
-	 * 			and its world equal to this.getWorld().
+	 * 			and its world equal to this.getWorld(). If that world accepts the unit, register it in the unit 
+	 * 			registry of that world.
 	 */
 	public void addUnit(Unit unit){
 		if (units.size() < 50) {
@@ -88,6 +95,7 @@ public class Faction {
 			unit.setFaction(this);
 			try {
 				unit.setWorld(this.getWorld());
+				this.getWorld().registerUnit(unit);
 			} catch (ModelException e) {
 				e.printStackTrace();
 			}
@@ -0,0 +1,440 @@
+package hillbillies.model.world;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+import hillbillies.model.scheduler.Task;
+import hillbillies.part3.programs.TaskFactory;
+import hillbillies.part3.programs.TaskParser;
+import hillbillies.util.PackedCube;
+import ogp.framework.util.ModelException;
+
+/**
+ * Replays a CommandJournal on a new world without a display, as fast as possible, and measures every tick.
+ *
+ * The replayer builds a world with the seed and the terrain of the journal, and gives it every recorded command
+ * before the tick in which it was given, in the same way as the facade did. It times every call to
+ * World.advanceTime, but not the commands in between. A command that failed in the recorded session fails again in
+ * the replay; the replay counts such commands and goes on. At the end, the replayer compares the state of its world
+ * with the hash that ends the journal; if they differ, the replay has diverged from the recorded session and its
+ * timings are not those of the same game.
+ *
+ * The timings of a replay can be written to a file with one line "tick nanoseconds" per tick. Two such files, for
+ * example of the same journal on two versions, can be compared tick by tick, which lists the ticks that got slower
+ * the most. Replaying a journal several times and keeping the fastest time of every tick takes out most of the noise.
+ *
+ * Usage: JournalReplayer journal [-repeat n] [-out file]
+ *    or: JournalReplayer -compare base other [-top n]
+ *
+ * @author HF corp.
+ * @version 1.0
+ */
+public class JournalReplayer {
+
+	private static final String USAGE = "Usage: JournalReplayer journal [-repeat n] [-out file]\n"
+			+ "   or: JournalReplayer -compare base other [-top n]";
+
+	private final DataInputStream in;
+	private final World world;
+	/**
+	 * The tasks that were scheduled so far, in the order in which they were scheduled.
+	 */
+	private final List<Task> tasks = new ArrayList<>();
+	private final TaskFactory taskFactory = new TaskFactory();
+
+	private long[] nanos = new long[1024];
+	private int nbTicks;
+	private int nbCommands, nbFailed;
+	private boolean diverged;
+
+	/**
+	 * Creates a new replayer of the journal in the given stream, and reads the world from its header.
+	 *
+	 * @throws	IOException
+	 * 			If the stream cannot be read or does not hold a journal.
+	 * @throws	ModelException
+	 * 			If the terrain of the journal is not valid.
+	 */
+	public JournalReplayer(InputStream in) throws IOException, ModelException {
+		this.in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+		if (this.in.readInt() != CommandJournal.MAGIC)
+			throw new IOException("Not a journal");
+		byte version = this.in.readByte();
+		if (version != CommandJournal.VERSION)
+			throw new IOException("Unsupported journal version " + version);
+		long seed = this.in.readLong();
+		int sizeX = this.in.readInt();
+		int sizeY = this.in.readInt();
+		int sizeZ = this.in.readInt();
+		byte[] terrain = new byte[sizeX * sizeY * sizeZ];
+		this.in.readFully(terrain);
+		world = new World(sizeX, sizeY, sizeZ, ByteBuffer.wrap(terrain), (x, y, z) -> {});
+		world.setSeed(seed);
+	}
+
+	/**
+	 * Creates a new replayer of the journal in the given file.
+	 *
+	 * @effect	| this(Files.newInputStream(path))
+	 */
+	public JournalReplayer(Path path) throws IOException, ModelException {
+		this(Files.newInputStream(path));
+	}
+
+	/**
+	 * Returns the world that is replayed.
+	 */
+	public World getWorld() {
+		return world;
+	}
+
+	/**
+	 * Returns the number of commands that was replayed so far.
+	 */
+	public int getNbCommands() {
+		return nbCommands;
+	}
+
+	/**
+	 * Returns the number of replayed commands that failed.
+	 */
+	public int getNbFailedCommands() {
+		return nbFailed;
+	}
+
+	/**
+	 * Returns true iff the replay ended in another state than the recorded session.
+	 */
+	public boolean hasDiverged() {
+		return diverged;
+	}
+
+	/**
+	 * Replays the rest of the journal, and checks that its world ends in the recorded state.
+	 *
+	 * @return	The wall-clock time of every tick of the journal in nanoseconds, in the order of the ticks.
+	 * @throws	IOException
+	 * 			If the journal cannot be read, or ends before its end mark.
+	 * @throws	ModelException
+	 * 			If a tick length of the journal is not a valid deltaT for World.advanceTime.
+	 */
+	public long[] replay() throws IOException, ModelException {
+		try {
+			while (true) {
+				byte opcode = in.readByte();
+				if (opcode == CommandJournal.END) {
+					diverged = in.readLong() != CommandJournal.hashState(world);
+					break;
+				}
+				if (opcode == CommandJournal.TICKS) {
+					int count = in.readInt();
+					double step = in.readDouble();
+					for (int i = 0; i < count; i++)
+						tick(step);
+				} else {
+					replayCommand(opcode);
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return Arrays.copyOf(nanos, nbTicks);
+	}
+
+	private void tick(double step) throws ModelException {
+		long start = System.nanoTime();
+		world.advanceTime(step);
+		long time = System.nanoTime() - start;
+		if (nbTicks == nanos.length)
+			nanos = Arrays.copyOf(nanos, 2 * nbTicks);
+		nanos[nbTicks++] = time;
+	}
+
+	/**
+	 * Reads the arguments of a command with the given opcode and gives it to the world, like the facade did.
+	 */
+	private void replayCommand(byte opcode) throws IOException {
+		nbCommands++;
+		switch (opcode) {
+		case CommandJournal.MOVE_TO_ADJACENT: {
+			Unit unit = readUnit();
+			int dx = in.readInt(), dy = in.readInt(), dz = in.readInt();
+			run(() -> {
+				int[] pos = unit.getPosition().toIntArray();
+				unit.moveTo(pos[0] + dx, pos[1] + dy, pos[2] + dz);
+			});
+			break;
+		}
+		case CommandJournal.MOVE_TO: {
+			Unit unit = readUnit();
+			int x = in.readInt(), y = in.readInt(), z = in.readInt();
+			run(() -> unit.moveTo(x, y, z));
+			break;
+		}
+		case CommandJournal.WORK: {
+			Unit unit = readUnit();
+			run(() -> {
+				int[] pos = unit.getPosition().toIntArray();
+				unit.startWork(pos[0], pos[1], pos[2]);
+			});
+			break;
+		}
+		case CommandJournal.WORK_AT: {
+			Unit unit = readUnit();
+			int x = in.readInt(), y = in.readInt(), z = in.readInt();
+			run(() -> unit.startWork(x, y, z));
+			break;
+		}
+		case CommandJournal.FIGHT: {
+			Unit attacker = readUnit();
+			Unit defender = readUnit();
+			run(() -> attacker.attack(defender));
+			break;
+		}
+		case CommandJournal.REST: {
+			Unit unit = readUnit();
+			run(() -> unit.startRest());
+			break;
+		}
+		case CommandJournal.START_SPRINTING: {
+			Unit unit = readUnit();
+			run(() -> unit.startSprint());
+			break;
+		}
+		case CommandJournal.STOP_SPRINTING: {
+			Unit unit = readUnit();
+			run(() -> unit.stopSprint());
+			break;
+		}
+		case CommandJournal.DEFAULT_BEHAVIOR: {
+			Unit unit = readUnit();
+			boolean value = in.readBoolean();
+			run(() -> unit.setDefaultBehaviorEnabled(value));
+			break;
+		}
+		case CommandJournal.SPAWN_UNIT: {
+			boolean enableDefaultBehavior = in.readBoolean();
+			run(() -> world.spawnUnit(enableDefaultBehavior));
+			break;
+		}
+		case CommandJournal.ADD_UNIT: {
+			String name = in.readUTF();
+			int x = in.readInt(), y = in.readInt(), z = in.readInt();
+			int weight = in.readInt(), strength = in.readInt(), agility = in.readInt(), toughness = in.readInt();
+			boolean enableDefaultBehavior = in.readBoolean();
+			run(() -> world.addUnit(new Unit(x, y, z, name, weight, strength, agility, toughness,
+					enableDefaultBehavior)));
+			break;
+		}
+		case CommandJournal.SCHEDULE: {
+			Faction faction = readFaction();
+			Task task = readTask();
+			run(() -> faction.getScheduler().addTask(task));
+			break;
+		}
+		case CommandJournal.REPLACE: {
+			int original = in.readInt();
+			Faction faction = readFaction();
+			Task replacement = readTask();
+			run(() -> faction.getScheduler().replaceTask(tasks.get(original), replacement));
+			break;
+		}
+		default:
+			throw new IOException("Unknown command " + opcode + " after tick " + nbTicks);
+		}
+	}
+
+	private static interface Command {
+		void run() throws ModelException;
+	}
+
+	/**
+	 * Runs the given command, and counts it as failed if it throws an exception, like it did in the recorded session.
+	 */
+	private void run(Command command) {
+		try {
+			command.run();
+		} catch (ModelException | RuntimeException e) {
+			nbFailed++;
+		}
+	}
+
+	private Unit readUnit() throws IOException {
+		return world.getUnitRegistry().getById(in.readInt());
+	}
+
+	private Faction readFaction() throws IOException {
+		int index = in.readInt();
+		Iterator<Faction> factions = world.getFactions().iterator();
+		for (int i = 0; i < index && factions.hasNext(); i++)
+			factions.next();
+		return factions.hasNext() ? factions.next() : null;
+	}
+
+	/**
+	 * Reads a task and parses it from its source, with its selected cube as the only selected cube.
+	 *
+	 * @return	The task, which is also added to the scheduled tasks, or null if its source cannot be parsed.
+	 */
+	private Task readTask() throws IOException {
+		long selected = in.readLong();
+		byte[] source = new byte[in.readInt()];
+		in.readFully(source);
+		List<int[]> cubes = selected == PackedCube.NONE ? Collections.emptyList()
+				: Collections.singletonList(PackedCube.toArray(selected));
+		List<Task> parsed = TaskParser.parseTasksFromString(new String(source, StandardCharsets.UTF_8), taskFactory,
+				cubes);
+		Task task = parsed == null || parsed.isEmpty() ? null : parsed.get(0);
+		tasks.add(task);
+		return task;
+	}
+
+	/**
+	 * Writes the given tick timings to the given stream, one line "tick nanoseconds" per tick.
+	 */
+	public static void writeTimings(long[] nanos, PrintStream out) {
+		for (int tick = 0; tick < nanos.length; tick++)
+			out.println(tick + " " + nanos[tick]);
+	}
+
+	/**
+	 * Reads tick timings in the format of writeTimings.
+	 */
+	public static long[] readTimings(Path path) throws IOException {
+		long[] nanos = new long[1024];
+		int nbTicks = 0;
+		try (BufferedReader reader = Files.newBufferedReader(path)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.trim().split("\\s+");
+				if (fields.length != 2)
+					continue;
+				int tick = Integer.parseInt(fields[0]);
+				if (tick >= nanos.length)
+					nanos = Arrays.copyOf(nanos, Math.max(2 * nanos.length, tick + 1));
+				nanos[tick] = Long.parseLong(fields[1]);
+				nbTicks = Math.max(nbTicks, tick + 1);
+			}
+		}
+		return Arrays.copyOf(nanos, nbTicks);
+	}
+
+	/**
+	 * Writes the total time of both given tick timings to the given stream, followed by the given number of ticks
+	 * that got slower the most from the base to the other timings.
+	 */
+	public static void compare(long[] base, long[] other, int top, PrintStream out) {
+		int nbTicks = Math.min(base.length, other.length);
+		if (base.length != other.length)
+			out.println("The timings have " + base.length + " and " + other.length + " ticks, comparing the first "
+					+ nbTicks);
+		long baseTotal = 0, otherTotal = 0;
+		for (int tick = 0; tick < nbTicks; tick++) {
+			baseTotal += base[tick];
+			otherTotal += other[tick];
+		}
+		out.println(String.format(Locale.ROOT, "total: %.1f ms -> %.1f ms (%+.1f%%)", baseTotal / 1e6,
+				otherTotal / 1e6, 100.0 * (otherTotal - baseTotal) / Math.max(baseTotal, 1)));
+		Integer[] ticks = new Integer[nbTicks];
+		for (int tick = 0; tick < nbTicks; tick++)
+			ticks[tick] = tick;
+		Arrays.sort(ticks, (t1, t2) -> Long.compare(other[t2] - base[t2], other[t1] - base[t1]));
+		for (int i = 0; i < Math.min(top, nbTicks) && other[ticks[i]] > base[ticks[i]]; i++) {
+			int tick = ticks[i];
+			out.println(String.format(Locale.ROOT, "tick %d: %.3f ms -> %.3f ms (%+.3f ms, %.2fx)", tick,
+					base[tick] / 1e6, other[tick] / 1e6, (other[tick] - base[tick]) / 1e6,
+					(double) other[tick] / Math.max(base[tick], 1)));
+		}
+	}
+
+	public static void main(String[] args) throws IOException, ModelException {
+		if (args.length < 1) {
+			System.err.println(USAGE);
+			return;
+		}
+		try {
+			if (args[0].equals("-compare")) {
+				int top = 20;
+				if (args.length > 4 && args[3].equals("-top"))
+					top = Integer.parseInt(args[4]);
+				compare(readTimings(Paths.get(args[1])), readTimings(Paths.get(args[2])), top, System.out);
+				return;
+			}
+			int repeat = 1;
+			String outFile = null;
+			for (int i = 1; i < args.length; i++) {
+				switch (args[i]) {
+				case "-repeat":
+					repeat = Integer.parseInt(args[++i]);
+					break;
+				case "-out":
+					outFile = args[++i];
+					break;
+				default:
+					System.err.println("Unknown option: " + args[i]);
+					System.err.println(USAGE);
+					return;
+				}
+			}
+			replay(Paths.get(args[0]), repeat, outFile);
+		} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			System.err.println(USAGE);
+		}
+	}
+
+	/**
+	 * Replays the given journal the given number of times, reports every replay and writes the fastest time of every
+	 * tick to the given file, if any.
+	 */
+	private static void replay(Path journal, int repeat, String outFile)
+			throws IOException, ModelException {
+		long[] best = null;
+		for (int run = 0; run < repeat; run++) {
+			JournalReplayer replayer = new JournalReplayer(journal);
+			World world = replayer.getWorld();
+			TickProfile profile = new TickProfile();
+			world.setProfile(profile);
+			long start = System.nanoTime();
+			long[] nanos = replayer.replay();
+			double seconds = (System.nanoTime() - start) / 1e9;
+			StringBuilder line = new StringBuilder(String.format(Locale.ROOT,
+					"replay %d: %d ticks, %d commands (%d failed) in %.2f s, %.1f ticks/s, %d units%n  ms/tick:",
+					run + 1, nanos.length, replayer.getNbCommands(), replayer.getNbFailedCommands(), seconds,
+					nanos.length / seconds, world.getUnits().size()));
+			for (TickProfile.Phase phase : TickProfile.Phase.values())
+				line.append(String.format(Locale.ROOT, " %s %.4f", phase.name().toLowerCase(Locale.ROOT),
+						profile.getNanos(phase) / 1e6 / Math.max(nanos.length, 1)));
+			System.out.println(line);
+			if (replayer.hasDiverged())
+				System.out.println("  the replay diverged from the recorded session");
+			if (best == null) {
+				best = nanos;
+			} else {
+				for (int tick = 0; tick < Math.min(best.length, nanos.length); tick++)
+					best[tick] = Math.min(best[tick], nanos[tick]);
+			}
+		}
+		if (outFile != null) {
+			try (PrintStream out = new PrintStream(outFile, "UTF-8")) {
+				writeTimings(best, out);
+			}
+			System.out.println("timings of " + best.length + " ticks written to " + outFile);
+		}
+	}
+}
@@ -20,6 +20,18 @@ public class Log extends Carryable {
 	public Log(Vector position) {
 		super(position);
 	}
+	
+	/**
+	 * Constructor for the Log class with the given weight.
+	 * 
+	 * @param position
+	 * 			The position of this Log.
+	 * @param weight
+	 * 			The weight of this Log, between 10 and 50 (inclusive).
+	 */
+	public Log(Vector position, int weight) {
+		super(position, weight);
+	}
 
 	/**
 	 * @return the CarryableType (log or boulder)
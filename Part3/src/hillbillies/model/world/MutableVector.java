@@ -0,0 +1,179 @@
+package hillbillies.model.world;
+
+import ogp.framework.util.ModelException;
+import ogp.framework.util.Util;
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class to work with 3D vectors that are changed in place.
+ *
+ * Unlike a Vector, a MutableVector is meant to be owned by one object and reused, so that updating it does not
+ * allocate. Objects hand out immutable Vectors through toVector.
+ *
+ * @author HF corp.
+ * @version 1.0
+ */
+public class MutableVector {
+
+	/**
+	 * Variables registering the coordinates of this vector.
+	 */
+	private double x, y, z;
+
+	/**
+	 * Creates a new zero-vector.
+	 */
+	public MutableVector() {
+	}
+
+	/**
+	 * Creates a new vector with the given coordinates.
+	 *
+	 * @effect	| set(x, y, z)
+	 */
+	public MutableVector(double x, double y, double z) {
+		set(x, y, z);
+	}
+
+	/**
+	 * Sets the coordinates of this vector.
+	 *
+	 * @post	| new.getX() == x && new.getY() == y && new.getZ() == z
+	 * @return	This vector.
+	 */
+	public MutableVector set(double x, double y, double z) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		return this;
+	}
+
+	/**
+	 * Sets this vector equal to the given vector.
+	 *
+	 * @effect	| set(other.getX(), other.getY(), other.getZ())
+	 */
+	public MutableVector set(Vector other) {
+		return set(other.getX(), other.getY(), other.getZ());
+	}
+
+	/**
+	 * Sets this vector equal to the given vector.
+	 *
+	 * @effect	| set(other.getX(), other.getY(), other.getZ())
+	 */
+	public MutableVector set(MutableVector other) {
+		return set(other.x, other.y, other.z);
+	}
+
+	/**
+	 * Adds the given vector times the given scalar to this vector.
+	 *
+	 * @effect	| set(getX() + scalar * other.getX(), getY() + scalar * other.getY(), getZ() + scalar * other.getZ())
+	 */
+	public MutableVector addScaled(MutableVector other, double scalar) {
+		return set(x + scalar * other.x, y + scalar * other.y, z + scalar * other.z);
+	}
+
+	/**
+	 * Sets this vector to the difference of the given vectors, to - from.
+	 *
+	 * @effect	| set(to.getX() - from.getX(), to.getY() - from.getY(), to.getZ() - from.getZ())
+	 */
+	public MutableVector setDifference(MutableVector to, MutableVector from) {
+		return set(to.x - from.x, to.y - from.y, to.z - from.z);
+	}
+
+	/**
+	 * Scales this vector to a length of 1.
+	 *
+	 * @effect	| set(getX() / length(), getY() / length(), getZ() / length())
+	 * @throws	ModelException
+	 * 			| if (length() == 0)
+	 */
+	public MutableVector normalize() throws ModelException {
+		double l = this.length();
+		if (l == 0)
+			throw new ModelException("Trying to normalize the zero-vector.");
+		return set(x / l, y / l, z / l);
+	}
+
+	/**
+	 * Returns the length of this vector.
+	 *
+	 * @return	| result == Math.sqrt(getX()*getX() + getY()*getY() + getZ()*getZ())
+	 */
+	public double length() {
+		return Math.sqrt(x * x + y * y + z * z);
+	}
+
+	/**
+	 * Returns the distance between this vector and the given vector.
+	 *
+	 * @return	| result == Math.sqrt((getX()-other.getX())^2 + (getY()-other.getY())^2 + (getZ()-other.getZ())^2)
+	 */
+	public double distanceTo(MutableVector other) {
+		double dx = x - other.x, dy = y - other.y, dz = z - other.z;
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+
+	/**
+	 * Returns true iff every coordinate of this vector is almost 0.
+	 *
+	 * @return	| result == Util.fuzzyEquals(getX(), 0) && Util.fuzzyEquals(getY(), 0) && Util.fuzzyEquals(getZ(), 0)
+	 */
+	public boolean isAlmostZero() {
+		return Util.fuzzyEquals(x, 0) && Util.fuzzyEquals(y, 0) && Util.fuzzyEquals(z, 0);
+	}
+
+	@Basic
+	public double getX() {
+		return x;
+	}
+
+	@Basic
+	public double getY() {
+		return y;
+	}
+
+	@Basic
+	public double getZ() {
+		return z;
+	}
+
+	/**
+	 * Returns the x-coordinate of the cube this vector lies in.
+	 *
+	 * @return	| result == (int) getX()
+	 */
+	public int getCubeX() {
+		return (int) x;
+	}
+
+	/**
+	 * Returns the y-coordinate of the cube this vector lies in.
+	 *
+	 * @return	| result == (int) getY()
+	 */
+	public int getCubeY() {
+		return (int) y;
+	}
+
+	/**
+	 * Returns the z-coordinate of the cube this vector lies in.
+	 *
+	 * @return	| result == (int) getZ()
+	 */
+	public int getCubeZ() {
+		return (int) z;
+	}
+
+	/**
+	 * Returns an immutable copy of this vector.
+	 *
+	 * @return	| result == new Vector(getX(), getY(), getZ())
+	 */
+	public Vector toVector() {
+		return new Vector(x, y, z);
+	}
+}
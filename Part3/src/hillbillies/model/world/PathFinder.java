@@ -0,0 +1,191 @@
+package hillbillies.model.world;
+
+import hillbillies.util.IndexedMinHeap;
+
+/**
+ * A class to find shortest paths between the walkable cubes of a world.
+ *
+ * This is an implementation of the A* algorithm on the walkable graph of the world.
+ * Moving to one of the 26 neighbouring cubes costs the length of the step, multiplied by 0.5 when going up
+ * and by 1.2 when going down. The heuristic is the cost of the cheapest path in an empty world, which makes
+ * it admissible and consistent, so every path found is a shortest path.
+ *
+ * One path finder belongs to one world and reuses its buffers for every search.
+ *
+ * @author HF corp.
+ * @version 1.0
+ */
+public class PathFinder {
+
+	private static final double UP_FACTOR = 0.5d;
+	private static final double DOWN_FACTOR = 1.2d;
+
+	private static final double SQRT2 = Math.sqrt(2.0d);
+	private static final double SQRT3 = Math.sqrt(3.0d);
+
+	/**
+	 * The cost to move along each of the directions of the walkable graph.
+	 */
+	private static final double[] STEP_COST = new double[WalkableGraph.NB_DIRECTIONS];
+
+	static {
+		for (int i = 0; i < WalkableGraph.NB_DIRECTIONS; i++)
+			STEP_COST[i] = getStepCost(WalkableGraph.OFFSET_X[i], WalkableGraph.OFFSET_Y[i], WalkableGraph.OFFSET_Z[i]);
+	}
+
+	private final WalkableGraph graph;
+
+	private final IndexedMinHeap open;
+	/**
+	 * The cost of the best known path from the start to every reached cube.
+	 */
+	private final double[] cost;
+	/**
+	 * The previous cube on the best known path to every reached cube.
+	 */
+	private final int[] parent;
+	/**
+	 * The search in which each cube was last reached or closed, so the buffers never have to be cleared.
+	 */
+	private final int[] reached;
+	private final int[] closed;
+	private int search;
+
+	/**
+	 * Creates a new path finder for the given world.
+	 *
+	 * @param world
+	 * @pre		The world already has its walkable graph.
+	 * 			| world.getWalkableGraph() != null
+	 */
+	public PathFinder(World world) {
+		this.graph = world.getWalkableGraph();
+		int nbCubes = world.getSizeX() * world.getSizeY() * world.getSizeZ();
+		open = new IndexedMinHeap(nbCubes);
+		cost = new double[nbCubes];
+		parent = new int[nbCubes];
+		reached = new int[nbCubes];
+		closed = new int[nbCubes];
+		search = 0;
+	}
+
+	/**
+	 * Returns a shortest path of walkable cubes from the given start to the given end, or null if no such path exists.
+	 * Like the search this replaced, there is no path from a start that is not walkable itself.
+	 *
+	 * @param start
+	 * 			The cube to start from.
+	 * @param end
+	 * 			The walkable cube to go to.
+	 * @return	The flat indices of the cubes on the path, as in the walkable graph, in order, excluding start and 
+	 * 			including end. If start equals end the result is empty.
+	 */
+	public int[] findPath(int[] start, int[] end) {
+		int startIndex = graph.getIndex(start[0], start[1], start[2]);
+		int endIndex = graph.getIndex(end[0], end[1], end[2]);
+		if (!graph.isWalkable(startIndex))
+			return null;
+
+		nextSearch();
+		open.clear();
+		cost[startIndex] = 0.0d;
+		parent[startIndex] = -1;
+		reached[startIndex] = search;
+		open.insertOrDecrease(startIndex, heuristic(start[0], start[1], start[2], end[0], end[1], end[2]));
+
+		while (!open.isEmpty()) {
+			int current = open.poll();
+			if (current == endIndex)
+				return buildPath(startIndex, endIndex);
+			closed[current] = search;
+
+			double currentCost = cost[current];
+			for (int edge = graph.getFirstEdge(current); edge < graph.getEndEdge(current); edge++)
+				relax(current, currentCost, graph.getNeighbour(edge), graph.getDirection(edge), end);
+		}
+		return null;
+	}
+
+	/**
+	 * Lowers the cost of the given neighbour if going there from current is cheaper than what is known.
+	 */
+	private void relax(int current, double currentCost, int neighbour, int direction, int[] end) {
+		if (closed[neighbour] == search)
+			return;
+		double newCost = currentCost + STEP_COST[direction];
+		if (reached[neighbour] != search || newCost < cost[neighbour]) {
+			reached[neighbour] = search;
+			cost[neighbour] = newCost;
+			parent[neighbour] = current;
+			open.insertOrDecrease(neighbour, newCost + heuristic(graph.getX(neighbour), graph.getY(neighbour),
+					graph.getZ(neighbour), end[0], end[1], end[2]));
+		}
+	}
+
+	/**
+	 * Walks back from the end to the start along the parents of the last search.
+	 */
+	private int[] buildPath(int startIndex, int endIndex) {
+		int length = 0;
+		for (int cube = endIndex; cube != startIndex; cube = parent[cube])
+			length++;
+		int[] path = new int[length];
+		int cube = endIndex;
+		for (int i = length - 1; i >= 0; i--) {
+			path[i] = cube;
+			cube = parent[cube];
+		}
+		return path;
+	}
+
+	private void nextSearch() {
+		if (search == Integer.MAX_VALUE) {
+			for (int i = 0; i < reached.length; i++) {
+				reached[i] = 0;
+				closed[i] = 0;
+			}
+			search = 0;
+		}
+		search++;
+	}
+
+	/**
+	 * Returns the cost of a single step with the given offsets.
+	 *
+	 * @return	| length = sqrt(dx*dx + dy*dy + dz*dz)
+	 * 			| if dz == 1 then result == UP_FACTOR * length
+	 * 			| else if dz == -1 then result == DOWN_FACTOR * length
+	 * 			| else result == length
+	 */
+	static double getStepCost(int dx, int dy, int dz) {
+		double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+		if (dz == 1)
+			return UP_FACTOR * length;
+		if (dz == -1)
+			return DOWN_FACTOR * length;
+		return length;
+	}
+
+	/**
+	 * Returns the cost of the cheapest path from (x, y, z) to (goalX, goalY, goalZ) in a world without obstacles.
+	 *
+	 * This is a 3D octile distance: every vertical step is combined with as much horizontal movement as possible,
+	 * diagonal movement first, because that is always cheaper than taking the vertical and horizontal steps separately.
+	 */
+	static double heuristic(int x, int y, int z, int goalX, int goalY, int goalZ) {
+		int dx = Math.abs(goalX - x);
+		int dy = Math.abs(goalY - y);
+		int dz = goalZ - z;
+		double factor = (dz >= 0) ? UP_FACTOR : DOWN_FACTOR;
+		int vertical = Math.abs(dz);
+		int diagonal = Math.min(dx, dy);
+		int straight = Math.max(dx, dy) - diagonal;
+
+		int verticalDiagonal = Math.min(vertical, diagonal);
+		int verticalStraight = Math.min(vertical - verticalDiagonal, straight);
+		int verticalOnly = vertical - verticalDiagonal - verticalStraight;
+
+		return factor * (verticalDiagonal * SQRT3 + verticalStraight * SQRT2 + verticalOnly)
+				+ (diagonal - verticalDiagonal) * SQRT2 + (straight - verticalStraight);
+	}
+}
@@ -0,0 +1,137 @@
+package hillbillies.model.world;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import hillbillies.util.ParallelRange;
+
+/**
+ * The paths that the units of a world are expected to search during the current tick, searched in advance.
+ *
+ * Before the units are updated one by one, the world adds a request for every unit that is expected to search a
+ * path, and compute searches all of them in parallel, every thread with its own PathFinder. When a unit then
+ * searches a path, take hands it the prepared path if it was prepared for the same start and end.
+ *
+ * The walkable graph does not change while the units are updated, and a search only depends on the graph, its
+ * start and its end. A prepared path is therefore the path the unit would have found itself, whatever happened
+ * before its turn; a request that turns out to be wrong only costs the wasted search.
+ *
+ * @author HF corp.
+ * @version 1.0
+ */
+class PathRequests {
+
+	/**
+	 * Returned by take if no path was prepared for the given unit, start and end.
+	 */
+	static final int[] NOT_PREPARED = new int[0];
+
+	/**
+	 * The largest number of requests that compute does not split over several threads.
+	 */
+	private static final int GRAIN = 1;
+
+	private final World world;
+	/**
+	 * The path finders that are not in use by a thread of compute.
+	 */
+	private final Queue<PathFinder> finders = new ConcurrentLinkedQueue<>();
+
+	private int[] unitIds = new int[16], starts = new int[16], ends = new int[16];
+	/**
+	 * The path found for every request, or null if its end cannot be reached.
+	 */
+	private int[][] paths = new int[16][];
+	private int nbRequests;
+	/**
+	 * The request of the unit with every id, or -1.
+	 */
+	private int[] requestOf = new int[0];
+
+	PathRequests(World world) {
+		this.world = world;
+	}
+
+	/**
+	 * Adds a request for a path from start to end for the unit with the given id, which has no request yet.
+	 *
+	 * @param start
+	 * 			The flat index of the start cube.
+	 * @param end
+	 * 			The flat index of the end cube.
+	 */
+	void add(int unitId, int start, int end) {
+		if (nbRequests == unitIds.length) {
+			int length = 2 * nbRequests;
+			unitIds = Arrays.copyOf(unitIds, length);
+			starts = Arrays.copyOf(starts, length);
+			ends = Arrays.copyOf(ends, length);
+			paths = Arrays.copyOf(paths, length);
+		}
+		if (unitId >= requestOf.length) {
+			int length = Math.max(unitId + 1, 2 * requestOf.length);
+			int oldLength = requestOf.length;
+			requestOf = Arrays.copyOf(requestOf, length);
+			Arrays.fill(requestOf, oldLength, length, -1);
+		}
+		unitIds[nbRequests] = unitId;
+		starts[nbRequests] = start;
+		ends[nbRequests] = end;
+		paths[nbRequests] = NOT_PREPARED;
+		requestOf[unitId] = nbRequests++;
+	}
+
+	/**
+	 * Searches the paths of all requests, on the given pool.
+	 *
+	 * @param pool
+	 * 			The pool to run on, or null to run on the calling thread.
+	 */
+	void compute(ForkJoinPool pool) {
+		ParallelRange.run(pool, 0, nbRequests, GRAIN, this::compute);
+	}
+
+	private void compute(int from, int to) {
+		PathFinder finder = finders.poll();
+		if (finder == null)
+			finder = new PathFinder(world);
+		for (int i = from; i < to; i++) {
+			int start = starts[i], end = ends[i];
+			paths[i] = finder.findPath(new int[]{world.getX(start), world.getY(start), world.getZ(start)},
+					new int[]{world.getX(end), world.getY(end), world.getZ(end)});
+		}
+		finders.add(finder);
+	}
+
+	/**
+	 * Returns the path prepared for the given unit from start to end and removes its request, or NOT_PREPARED if
+	 * there is no such path.
+	 *
+	 * @return	The path as returned by PathFinder.findPath, null if the end cannot be reached, or NOT_PREPARED.
+	 */
+	int[] take(Unit unit, int start, int end) {
+		int id = unit.getId();
+		if (id < 0 || id >= requestOf.length || requestOf[id] < 0)
+			return NOT_PREPARED;
+		int request = requestOf[id];
+		requestOf[id] = -1;
+		if (starts[request] != start || ends[request] != end)
+			return NOT_PREPARED;
+		int[] path = paths[request];
+		paths[request] = NOT_PREPARED;
+		return path;
+	}
+
+	/**
+	 * Removes all requests.
+	 */
+	void clear() {
+		for (int i = 0; i < nbRequests; i++) {
+			requestOf[unitIds[i]] = -1;
+			paths[i] = null;
+		}
+		nbRequests = 0;
+	}
+}
@@ -0,0 +1,323 @@
+package hillbillies.model.world;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import hillbillies.model.scheduler.Task;
+import hillbillies.part3.programs.TaskFactory;
+import hillbillies.part3.programs.TaskParser;
+import hillbillies.util.BinaryWorldFile;
+import ogp.framework.util.ModelException;
+
+/**
+ * Runs a world without a display, as fast as possible, and reports how fast it runs.
+ *
+ * The world advances at a fixed step for a number of ticks or for a wall-clock duration. Every report gives the
+ * ticks per second, the simulated seconds per second, the time per tick spent in every phase of World.advanceTime,
+ * the number of units, the used heap and the time spent in garbage collection, each since the previous report.
+ * This is meant for capacity planning and for soak tests that run for hours. With a seed, the world spawns and
+ * behaves the same in every run, so that runs of different versions can be compared. The run can also be recorded
+ * in a CommandJournal, which a JournalReplayer replays tick by tick. With -lod, every unit is ticked at the given
+ * coarse step, as if nobody watched it; a journal does not record this, so such a run cannot be recorded.
+ * With -prefetch, every tick first searches the paths its units are expected to search on the given number of
+ * threads; the units themselves are still updated one by one.
+ *
+ * Usage: SimulationRunner world [-units n] [-ticks n | -seconds s] [-step dt] [-report s] [-seed n]
+ * [-tasks file]... [-prefetch [threads]] [-lod step] [-record journal]
+ *
+ * @author HF corp.
+ * @version 1.0
+ */
+public class SimulationRunner {
+
+	private static final String USAGE = "Usage: SimulationRunner world [-units n] [-ticks n | -seconds s] "
+			+ "[-step dt] [-report s] [-seed n] [-tasks file]... [-prefetch [threads]] [-lod step] "
+			+ "[-record journal]";
+
+	private final World world;
+	private final TickProfile profile = new TickProfile();
+	private CommandJournal journal;
+
+	private long reportTime, reportGcCount, reportGcTime;
+
+	/**
+	 * Creates a new runner for the given world, which keeps a profile of its ticks from now on.
+	 *
+	 * @effect	| world.setProfile(new TickProfile())
+	 */
+	public SimulationRunner(World world) {
+		this.world = world;
+		world.setProfile(profile);
+	}
+
+	/**
+	 * Creates a new runner for a world with the terrain of the given file, which holds a binary or a text world.
+	 *
+	 * @throws	IOException
+	 * 			If the file cannot be read.
+	 * @throws	ModelException
+	 * 			If the terrain of the file is not valid.
+	 */
+	public SimulationRunner(String worldFile) throws IOException, ModelException {
+		this(createWorld(BinaryWorldFile.load(Paths.get(worldFile))));
+	}
+
+	private static World createWorld(BinaryWorldFile file) throws ModelException {
+		return new World(file.getSizeX(), file.getSizeY(), file.getSizeZ(), file.getTerrain(), (x, y, z) -> {});
+	}
+
+	/**
+	 * Records everything this runner does to its world from now on in a new journal in the given file.
+	 *
+	 * @effect	| new CommandJournal(getWorld(), seed, path)
+	 * @throws	IOException
+	 * 			If the journal cannot be written.
+	 */
+	public void record(Path path, long seed) throws IOException {
+		journal = new CommandJournal(world, seed, path);
+	}
+
+	/**
+	 * Returns the journal of this runner, or null if it does not record.
+	 */
+	public CommandJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * Spawns the given number of units with default behaviour, as far as the world has place for them.
+	 *
+	 * @return	The number of units in the world.
+	 */
+	public int spawnUnits(int nbUnits) {
+		for (int i = 0; i < nbUnits; i++) {
+			if (journal != null)
+				journal.spawnUnit(true);
+			world.spawnUnit(true);
+		}
+		return world.getUnits().size();
+	}
+
+	/**
+	 * Schedules the tasks in the given file for every faction of the world. Every faction gets its own tasks,
+	 * without selected cubes.
+	 *
+	 * @return	The number of tasks that was scheduled.
+	 * @throws	IOException
+	 * 			If the file cannot be read or parsed.
+	 */
+	public int scheduleTasks(String taskFile) throws IOException {
+		int nbTasks = 0;
+		for (Faction faction : world.getFactions()) {
+			List<Task> tasks = TaskParser.parseTasksFromFile(taskFile, new TaskFactory(), Collections.emptyList());
+			if (tasks == null)
+				throw new IOException("Cannot parse the tasks in " + taskFile);
+			for (Task task : tasks) {
+				if (journal != null)
+					journal.schedule(faction.getScheduler(), task);
+				faction.getScheduler().addTask(task);
+			}
+			nbTasks += tasks.size();
+		}
+		return nbTasks;
+	}
+
+	/**
+	 * Advances the world at the given step until the given number of ticks has passed or the given wall-clock
+	 * duration is over, whichever comes first, and writes a report to the given stream after every reportInterval
+	 * seconds and at the end.
+	 *
+	 * @param nbTicks
+	 * 			The number of ticks to run, or a negative number to run until the duration is over.
+	 * @param seconds
+	 * 			The wall-clock duration in seconds, or a negative number to run until all ticks have passed.
+	 * @param reportInterval
+	 * 			The wall-clock time between two reports in seconds, or a negative number to only report at the end.
+	 * @return	The number of ticks that was run.
+	 * @throws	ModelException
+	 * 			If the step is not a valid deltaT for World.advanceTime.
+	 */
+	public long run(double step, long nbTicks, double seconds, double reportInterval, PrintStream out)
+			throws ModelException {
+		long start = System.nanoTime();
+		long end = seconds < 0 ? Long.MAX_VALUE : start + (long) (seconds * 1e9);
+		long interval = reportInterval < 0 ? Long.MAX_VALUE : (long) (reportInterval * 1e9);
+		long nextReport = reportInterval < 0 ? Long.MAX_VALUE : start + interval;
+		startReport(start);
+		long tick = 0;
+		while (nbTicks < 0 || tick < nbTicks) {
+			if (journal != null)
+				journal.advanceTime(step);
+			world.advanceTime(step);
+			tick++;
+			long now = System.nanoTime();
+			if (now >= end)
+				break;
+			if (now >= nextReport) {
+				report(now, step, out);
+				nextReport = now + interval;
+			}
+		}
+		report(System.nanoTime(), step, out);
+		return tick;
+	}
+
+	private void startReport(long now) {
+		profile.reset();
+		reportTime = now;
+		reportGcCount = getGcCount();
+		reportGcTime = getGcTime();
+	}
+
+	/**
+	 * Writes a report of the ticks since the previous report to the given stream, and starts the next one.
+	 */
+	private void report(long now, double step, PrintStream out) {
+		long ticks = profile.getNbTicks();
+		double seconds = (now - reportTime) / 1e9;
+		Runtime runtime = Runtime.getRuntime();
+		long used = runtime.totalMemory() - runtime.freeMemory();
+		StringBuilder line = new StringBuilder();
+		line.append(String.format(Locale.ROOT, "%d ticks in %.2f s: %.1f ticks/s, %.1fx real time, %d units (%d asleep)%n",
+				ticks, seconds, ticks / seconds, ticks * step / seconds, world.getUnits().size(),
+				world.getNbSleepingUnits()));
+		line.append("  ms/tick:");
+		for (TickProfile.Phase phase : TickProfile.Phase.values())
+			line.append(String.format(Locale.ROOT, " %s %.4f", phase.name().toLowerCase(Locale.ROOT),
+					profile.getNanos(phase) / 1e6 / Math.max(ticks, 1)));
+		line.append(String.format(Locale.ROOT, "%n  heap: %.1f MB used of %.1f MB, gc: %d collections, %d ms",
+				used / 1e6, runtime.maxMemory() / 1e6, getGcCount() - reportGcCount, getGcTime() - reportGcTime));
+		out.println(line);
+		startReport(now);
+	}
+
+	private static long getGcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			count += Math.max(gc.getCollectionCount(), 0);
+		return count;
+	}
+
+	private static long getGcTime() {
+		long time = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			time += Math.max(gc.getCollectionTime(), 0);
+		return time;
+	}
+
+	/**
+	 * Returns the world of this runner.
+	 */
+	public World getWorld() {
+		return world;
+	}
+
+	/**
+	 * Returns the profile of the ticks of the world of this runner since the last report.
+	 */
+	public TickProfile getProfile() {
+		return profile;
+	}
+
+	public static void main(String[] args) throws IOException, ModelException {
+		if (args.length < 1) {
+			System.err.println(USAGE);
+			return;
+		}
+		int nbUnits = 10;
+		long nbTicks = -1;
+		double seconds = -1, step = 0.1, reportInterval = -1;
+		Long seed = null;
+		int threads = 0;
+		List<String> taskFiles = new ArrayList<>();
+		String journalFile = null;
+		double coarseStep = 0;
+		try {
+			for (int i = 1; i < args.length; i++) {
+				switch (args[i]) {
+				case "-units":
+					nbUnits = Integer.parseInt(args[++i]);
+					break;
+				case "-ticks":
+					nbTicks = Long.parseLong(args[++i]);
+					break;
+				case "-seconds":
+					seconds = Double.parseDouble(args[++i]);
+					break;
+				case "-step":
+					step = Double.parseDouble(args[++i]);
+					break;
+				case "-report":
+					reportInterval = Double.parseDouble(args[++i]);
+					break;
+				case "-seed":
+					seed = Long.parseLong(args[++i]);
+					break;
+				case "-tasks":
+					taskFiles.add(args[++i]);
+					break;
+				case "-record":
+					journalFile = args[++i];
+					break;
+				case "-lod":
+					coarseStep = Double.parseDouble(args[++i]);
+					break;
+				case "-prefetch":
+					threads = i + 1 < args.length && !args[i + 1].startsWith("-") ? Integer.parseInt(args[++i])
+							: ForkJoinPool.getCommonPoolParallelism();
+					break;
+				default:
+					System.err.println("Unknown option: " + args[i]);
+					System.err.println(USAGE);
+					return;
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			System.err.println(USAGE);
+			return;
+		}
+		if (nbTicks < 0 && seconds < 0)
+			nbTicks = 1000;
+		if (coarseStep < 0 || coarseStep > World.MAX_COARSE_STEP) {
+			System.err.println("The coarse step must lie between 0 and " + World.MAX_COARSE_STEP);
+			return;
+		}
+		if (coarseStep > 0 && journalFile != null) {
+			System.err.println("A run with -lod cannot be recorded");
+			return;
+		}
+
+		SimulationRunner runner = new SimulationRunner(args[0]);
+		World world = runner.getWorld();
+		if (journalFile != null)
+			runner.record(Paths.get(journalFile), seed != null ? seed : System.nanoTime());
+		else if (seed != null)
+			world.setSeed(seed);
+		System.out.println("world " + world.getSizeX() + "x" + world.getSizeY() + "x" + world.getSizeZ() + ", "
+				+ runner.spawnUnits(nbUnits) + " units in " + world.getFactions().size() + " factions");
+		for (String taskFile : taskFiles)
+			System.out.println(runner.scheduleTasks(taskFile) + " tasks scheduled from " + taskFile);
+		world.setCoarseStep(coarseStep);
+		if (threads > 0)
+			world.setPathPrefetchPool(threads == ForkJoinPool.getCommonPoolParallelism()
+					? ForkJoinPool.commonPool() : new ForkJoinPool(threads));
+		long ticks = runner.run(step, nbTicks, seconds, reportInterval, System.out);
+		System.out.println(String.format(Locale.ROOT, "done: %d ticks, %.1f simulated seconds", ticks,
+				ticks * step));
+		if (journalFile != null) {
+			runner.getJournal().close();
+			System.out.println(runner.getJournal().getNbTicks() + " ticks recorded in " + journalFile);
+		}
+		if (threads > 0 && world.getPathPrefetchPool() != ForkJoinPool.commonPool())
+			world.getPathPrefetchPool().shutdown();
+	}
+}
@@ -0,0 +1,92 @@
+package hillbillies.model.world;
+
+import java.util.Arrays;
+
+/**
+ * The time a world spent in every phase of its ticks.
+ *
+ * A world with a profile adds the wall-clock time of every phase of advanceTime to it, see World.setProfile.
+ * Timing costs two calls to System.nanoTime per phase, so a world only keeps a profile when asked to.
+ *
+ * @author HF corp.
+ * @version 1.0
+ */
+public class TickProfile {
+
+	/**
+	 * The phases of a tick, in the order in which they run.
+	 */
+	public static enum Phase {
+		/**
+		 * Searching the expected paths in advance, if paths are prefetched.
+		 */
+		PATHS,
+		/**
+		 * Advancing the units, faction by faction.
+		 */
+		UNITS,
+		/**
+		 * Advancing the carryables.
+		 */
+		CARRYABLES,
+		/**
+		 * Removing terminated factions and carryables that are terminated or picked up.
+		 */
+		CLEANUP,
+		/**
+		 * Removing cubes and letting disconnected cubes cave in.
+		 */
+		TERRAIN
+	}
+
+	private final long[] nanos = new long[Phase.values().length];
+	private long nbTicks;
+
+	/**
+	 * Adds the given time to the given phase.
+	 */
+	void add(Phase phase, long nanos) {
+		this.nanos[phase.ordinal()] += nanos;
+	}
+
+	/**
+	 * Counts one more tick.
+	 */
+	void addTick() {
+		nbTicks++;
+	}
+
+	/**
+	 * Returns the total time spent in the given phase, in nanoseconds.
+	 */
+	public long getNanos(Phase phase) {
+		return nanos[phase.ordinal()];
+	}
+
+	/**
+	 * Returns the total time spent in all phases, in nanoseconds.
+	 */
+	public long getTotalNanos() {
+		long total = 0;
+		for (long phase : nanos)
+			total += phase;
+		return total;
+	}
+
+	/**
+	 * Returns the number of ticks that were profiled.
+	 */
+	public long getNbTicks() {
+		return nbTicks;
+	}
+
+	/**
+	 * Forgets all times and ticks.
+	 *
+	 * @post	| new.getNbTicks() == 0 && new.getTotalNanos() == 0
+	 */
+	public void reset() {
+		Arrays.fill(nanos, 0);
+		nbTicks = 0;
+	}
+}
@@ -2,16 +2,11 @@ package hillbillies.model.world;
 
 import hillbillies.model.scheduler.Task;
 import hillbillies.model.world.Carryable.CarryableType;
+import hillbillies.util.TimerWheel;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
-import java.util.Random;
+import java.util.Arrays;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -63,9 +58,26 @@ public class Unit {
 	 */
 	private static final String validChars = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ\'\" ";
 	private static final Vector FALL_VELOCITY = new Vector(0,0,-3);
+	/**
+	 * A unit only falls asleep if it can sleep at least this long, in seconds.
+	 */
+	private static final double MIN_SLEEP = 0.5;
+	/**
+	 * A sleeping unit wakes up this long before its activity can end, so that the activity always ends in a regular
+	 * tick. At least the longest tick, in seconds.
+	 */
+	private static final double WAKE_MARGIN = 0.2;
+	/**
+	 * A unit that interacted with another unit is ticked every tick for this long afterwards, in seconds.
+	 */
+	private static final double DETAIL_HOLD = 5;
 	
 	private World world;
 	private Faction faction;
+	/**
+	 * The id of this unit in the unit registry of its world, or -1 if it was never registered.
+	 */
+	private int id = -1;
 	
 	private boolean terminated;
 	
@@ -75,12 +87,22 @@ public class Unit {
 	 */
 	private double statetime;
 	
-	private Vector position;
+	/**
+	 * The position, start, current goal and velocity of this unit are changed in place while it moves, so that
+	 * walking does not allocate. getPosition hands out positionSnapshot, which is made again after every change.
+	 */
+	private final MutableVector position = new MutableVector();
+	private Vector positionSnapshot;
 	private String name;
 	
-	private List<int[]> pathToEndGoal;
-	private Vector endGoal, start, currentGoal;
-	private Vector velocity;
+	/**
+	 * The flat indices of the cubes on the path to the end goal, of which the ones from nextOnPath on remain.
+	 */
+	private int[] pathToEndGoal;
+	private int nextOnPath;
+	private Vector endGoal;
+	private final MutableVector start = new MutableVector(), currentGoal = new MutableVector();
+	private final MutableVector velocity = new MutableVector();
 	private boolean hasEndGoal;
 	private boolean sprinting;
 	private boolean carrying;
@@ -115,6 +137,31 @@ public class Unit {
 	 */
 	private Unit followedUnit;
 	
+	/**
+	 * The alarm at which this unit wakes up, or null if it is awake. A sleeping unit is skipped by the ticks of its 
+	 * world and catches up on the time it skipped when it wakes up, or when its timed state is read.
+	 */
+	private TimerWheel.Timer<Unit> alarm;
+	/**
+	 * The time of its world up to which this sleeping unit has caught up.
+	 */
+	private double asleepSince;
+	
+	/**
+	 * The time of the ticks of its world that this unit skipped because it is not detailed, and the time it skips 
+	 * before it is ticked again.
+	 */
+	private double coarseDebt, coarseInterval;
+	/**
+	 * The time of its world until which this unit is ticked every tick, because it interacted with another unit.
+	 */
+	private double detailedUntil;
+	
+	/**
+	 * The random stream of this unit, split off from the generator of its world when it joins that world.
+	 */
+	private SplittableRandom random = new SplittableRandom();
+	
 	/**
 	 * Variable which is true if this Unit is being constructed and false otherwise.
 	 */
@@ -238,7 +285,7 @@ public class Unit {
 		setHasEndGoal(false);
 		
 		setResetPath(false);
-		pathToEndGoal = new ArrayList<int[]>();
+		pathToEndGoal = new int[0];
 		
 		setHasToRest(false);
 		setTimeToRest(0);
@@ -259,11 +306,15 @@ public class Unit {
 	 * 			| new.isTerminated() == true
 	 * @post	This unit's state is State.NOTHING.
 	 * 			| new.getState() == State.NOTHING
+	 * @effect	This unit is removed from the index of its world.
+	 * 			| getWorld().removeFromIndex(this)
 	 * @effect	If this unit is carrying something drop it.
 	 * 			| if this.isCarrying() then dropCarryable()
 	 */
 	public void terminate() {
 		terminated = true;
+		if (this.getWorld() != null)
+			this.getWorld().removeFromIndex(this);
 		setState(State.NOTHING);
 		if (this.isCarrying()) {
 			dropCarryable();
@@ -289,6 +340,10 @@ public class Unit {
 	 * @effect 	When the unit is attacking, lower the statetime by deltaT. If the statetime is less than zero, do nothing.
 	 * @effect 	When the unit is doing nothing and has a goal, find a path.	
 	 * @effect 	When the unit is doing nothing and does not have a goal, set the behavior to default behavior.	
+	 * @effect	If this unit is asleep, it wakes up first. If it only waits for time to pass afterwards, it falls 
+	 * 			asleep.
+	 * 			| wake()
+	 * 			| sleepIfWaiting(deltaT)
 	 * 
 	 * @throws 	ModelException
 	 * 			|if (deltaT <= 0 or deltaT > 0.2)
@@ -296,12 +351,13 @@ public class Unit {
 	public void advanceTime(double deltaT) throws ModelException{
 		if (deltaT <= 0 || deltaT > 0.2)
 			throw new ModelException("deltaT is out of bounds");
+		wake();
 		setTimeToRest(timeToRest + deltaT);
 		if (this.getTimeToRest() >= 180) 
 			setHasToRest(true);
 		
 		if (!checkNeighbouringSolid() && state != State.FALLING)
-			state = State.FALLING;
+			setState(State.FALLING);
 		if (state == State.FALLING) {
 			setCurrentHealth(this.getCurrentHealth() - 10 * FALL_VELOCITY.length() * deltaT);
 			fall(deltaT);
@@ -335,6 +391,7 @@ public class Unit {
 				setStatementCompleted(false);
 			}
 		}
+		sleepIfWaiting(deltaT);
 	}
 	
 	//TODO doc
@@ -348,8 +405,8 @@ public class Unit {
 	 * 			|else
 	 * 			| 	R = random.nextInt(4)
 	 * 			| 	if R == 0 then
-	 * 			|		Set<int[]> V = this.getWorld().getWalkables()
-	 * 			|		moveTo(random element in V)
+	 * 			|		V = this.getWorld().getWalkableGraph()
+	 * 			|		moveTo(random walkable cube in V)
 	 * 			| 	else if R == 1 then 
 	 * 			|		randX = random int in [-1, 1]
 	 * 			|		randY = random int in [-1, 1]
@@ -376,14 +433,14 @@ public class Unit {
 			} 
 		}
 		else {
-			Random rand = new Random();
+			SplittableRandom rand = this.getRandom();
 			int R = rand.nextInt(4);
 			if (R ==0){
-				List<int[]> V = this.getWorld().getWalkables();
-				int[] next = V.get(rand.nextInt(V.size()));
+				WalkableGraph V = this.getWorld().getWalkableGraph();
+				int next = V.getWalkable(rand.nextInt(V.getNbWalkables()));
 				try {
 					long startTime = System.currentTimeMillis();
-					moveTo(next[0], next[1], next[2]);
+					moveTo(V.getX(next), V.getY(next), V.getZ(next));
 					long endTime = System.currentTimeMillis();
 					if (endTime - startTime > 150)
 						System.out.println("time taken for moveto (default): " + Long.toString(endTime-startTime));
@@ -394,11 +451,12 @@ public class Unit {
 				int randX = rand.nextInt(3) - 1;
 				int randY = rand.nextInt(3) - 1;
 				int randZ = rand.nextInt(3) - 1;
-				int[] cubePosition = this.getPosition().toIntArray();
-				startWork(cubePosition[0] + randX, cubePosition[1] + randY, cubePosition[2] + randZ);
+				startWork(this.getCubeX() + randX, this.getCubeY() + randY, this.getCubeZ() + randZ);
 			}
 			else if (R == 2) {
-				Set<Unit> units = this.getWorld().getUnits();
+				Vector position = this.getPosition();
+				Set<Unit> units = this.getWorld().getUnitsInBox(position.getX() - 2, position.getY() - 2, 
+						position.getZ() - 2, position.getX() + 2, position.getY() + 2, position.getZ() + 2);
 				for (Unit unit : units) {
 					Vector unitPos = unit.getPosition();
 					if (Math.abs(unitPos.getX() - this.getPosition().getX()) < 2 
@@ -481,24 +539,23 @@ public class Unit {
 		if (zdiff < -1 || zdiff > 1)
 			throw new ModelException();
 		
-		Vector diff = new Vector(xdiff, ydiff, zdiff);
-		setStart(new Vector(this.getPosition()));
-		setCurrentGoal(new Vector(Math.floor(this.getPosition().getX()) + 0.5d, 
-				Math.floor(this.getPosition().getY()) + 0.5d,
-				Math.floor(this.getPosition().getZ()) + 0.5d).add(diff));
-		if (!this.getWorld().isWalkable(this.getCurrentGoal().toIntArray())) {
+		double x = this.getPositionX(), y = this.getPositionY(), z = this.getPositionZ();
+		setStart(x, y, z);
+		setCurrentGoal(Math.floor(x) + 0.5d + xdiff, Math.floor(y) + 0.5d + ydiff, Math.floor(z) + 0.5d + zdiff);
+		if (!this.getWorld().isWalkable(currentGoal.getCubeX(), currentGoal.getCubeY(), currentGoal.getCubeZ())) {
 			setState(State.NOTHING);
 			setHasEndGoal(false);
 			return;
 		}
 		
-		setVelocity(this.getCurrentGoal().subtract(this.getPosition()));
-		if (this.getVelocity().isAlmostEqual(new Vector())) 
+		setVelocity(currentGoal.getX() - x, currentGoal.getY() - y, currentGoal.getZ() - z);
+		if (velocity.isAlmostZero()) 
 			return;
-		setVelocity(this.getVelocity().normalize());
+		velocity.normalize();
+		setVelocity(velocity.getX(), velocity.getY(), velocity.getZ());
 		
 		setState(State.WALKING);
-		setOrientation(Math.atan2(this.getVelocity().getY(), this.getVelocity().getX()));
+		setOrientation(Math.atan2(velocity.getY(), velocity.getX()));
 	}
 	
 	/**
@@ -547,9 +604,9 @@ public class Unit {
 			return;
 		}
 		setHasEndGoal(true);	
-		int dx = endGoalx - this.getPosition().toIntArray()[0];
-		int dy = endGoaly - this.getPosition().toIntArray()[1];
-		int dz = endGoalz - this.getPosition().toIntArray()[2];
+		int dx = endGoalx - this.getCubeX();
+		int dy = endGoaly - this.getCubeY();
+		int dz = endGoalz - this.getCubeZ();
 		
 		//We are already on the endgoal
 		if (dx == 0 && dy == 0 && dz == 0) {
@@ -611,8 +668,10 @@ public class Unit {
 	 * 			not null, setStatementCompleted(true).
 	 */
 	private void move(double deltaT){
+		double step = deltaT * this.getCurrentSpeed();
 		try {
-			setPosition(this.getPosition().add(this.getVelocity().multiply(deltaT*this.getCurrentSpeed())));
+			setPosition(position.getX() + velocity.getX() * step, position.getY() + velocity.getY() * step,
+					position.getZ() + velocity.getZ() * step);
 		} catch (ModelException e) {
 			e.printStackTrace();
 		}
@@ -620,20 +679,21 @@ public class Unit {
 			setCurrentStamina(this.getCurrentStamina() - 0.1 * deltaT);
 		
 		if (this.getFollowedUnit() != null) {
-			int[] unitPos = this.getFollowedUnit().getPosition().toIntArray();
-			if (Math.abs(this.getPosition().toIntArray()[0] - unitPos[0]) <= 1 &&
-					Math.abs(this.getPosition().toIntArray()[1] - unitPos[1]) <= 1 &&
-					Math.abs(this.getPosition().toIntArray()[2] - unitPos[0]) <= 1) {
+			Unit followed = this.getFollowedUnit();
+			int unitX = followed.getCubeX(), unitY = followed.getCubeY(), unitZ = followed.getCubeZ();
+			if (Math.abs(this.getCubeX() - unitX) <= 1 &&
+					Math.abs(this.getCubeY() - unitY) <= 1 &&
+					Math.abs(this.getCubeZ() - unitZ) <= 1) {
 				setHasEndGoal(false);
 				setSprinting(false);
 				setStatementCompleted(true);
 				setFollowedUnit(null);
 				this.setState(State.NOTHING);
-			} else if (Math.abs(unitPos[0] - this.getEndGoal().toIntArray()[0]) >= 1 ||
-					Math.abs(unitPos[1] - this.getEndGoal().toIntArray()[1]) >= 1 ||
-					Math.abs(unitPos[2] - this.getEndGoal().toIntArray()[2]) >= 1) {
+			} else if (Math.abs(unitX - (int) endGoal.getX()) >= 1 ||
+					Math.abs(unitY - (int) endGoal.getY()) >= 1 ||
+					Math.abs(unitZ - (int) endGoal.getZ()) >= 1) {
 				try {
-					moveTo(unitPos[0], unitPos[1], unitPos[2]);
+					moveTo(unitX, unitY, unitZ);
 				} catch (ModelException e) {
 					e.printStackTrace();
 				}
@@ -641,24 +701,22 @@ public class Unit {
 			return;
 		}
 		
-		double length = this.getCurrentGoal().subtract(this.getStart()).length();
-		double lengthOnTheRoad = this.getPosition().subtract(this.getStart()).length();
-		if (lengthOnTheRoad >= length){	
+		if (hasReachedCurrentGoal()){	
 			if (this.isResetPath()) {
 				findPath();
 				setResetPath(false);
 				return;
 			}
 			try {
-				setPosition(this.getCurrentGoal());
+				setPosition(currentGoal.getX(), currentGoal.getY(), currentGoal.getZ());
 				gainExperience(1);
 			} catch (ModelException e) {
 			}
 			this.setState(State.NOTHING);
 			if (this.isHasEndGoal()) {
-				if (	Math.floor(this.getCurrentGoal().getX()) == Math.floor(this.getEndGoal().getX()) &&
-						Math.floor(this.getCurrentGoal().getY()) == Math.floor(this.getEndGoal().getY()) &&
-						Math.floor(this.getCurrentGoal().getZ()) == Math.floor(this.getEndGoal().getZ())) {
+				if (	Math.floor(currentGoal.getX()) == Math.floor(endGoal.getX()) &&
+						Math.floor(currentGoal.getY()) == Math.floor(endGoal.getY()) &&
+						Math.floor(currentGoal.getZ()) == Math.floor(endGoal.getZ())) {
 					
 					setHasEndGoal(false);
 					setSprinting(false);
@@ -668,11 +726,7 @@ public class Unit {
 					}
 				} else {
 					try {
-						int[] nextCube = pathToEndGoal.get(0);
-						int[] cubePosition = this.getPosition().toIntArray();
-						moveToAdjacent(nextCube[0] - cubePosition[0], nextCube[1] - cubePosition[1], 
-								nextCube[2] - cubePosition[2]);
-						pathToEndGoal.remove(0);
+						moveToNextOnPath();
 					} catch (ModelException e) {
 						e.printStackTrace();
 					}
@@ -681,35 +735,52 @@ public class Unit {
 		}
 	}
 	
+	/**
+	 * Returns true iff this unit has walked at least as far from its start as its current goal lies from it.
+	 */
+	private boolean hasReachedCurrentGoal() {
+		return hasReachedCurrentGoal(getPositionX(), getPositionY(), getPositionZ());
+	}
+	
+	/**
+	 * Returns true iff the given position lies at least as far from the start of this unit as its current goal.
+	 */
+	private boolean hasReachedCurrentGoal(double x, double y, double z) {
+		double dx = x - start.getX(), dy = y - start.getY(), dz = z - start.getZ();
+		return Math.sqrt(dx * dx + dy * dy + dz * dz) >= currentGoal.distanceTo(start);
+	}
+	
+	/**
+	 * Returns true iff this walking unit reaches its current goal with its step of the given deltaT, if nothing 
+	 * changes it before.
+	 */
+	private boolean willReachCurrentGoal(double deltaT) {
+		double step = deltaT * this.getCurrentSpeed();
+		double x = getPositionX() + velocity.getX() * step, y = getPositionY() + velocity.getY() * step,
+				z = getPositionZ() + velocity.getZ() * step;
+		if (!World.isValidPosition(x, y, z, this.getWorld()))
+			return hasReachedCurrentGoal();
+		return hasReachedCurrentGoal(x, y, z);
+	}
+	
 	/**
 	 * Finds a path to the current goal of this unit.
-	 * This is an implementation of Dijkstra's shortest path algorithm.
+	 * The search itself is done by the world's PathFinder, an implementation of the A* algorithm.
 	 * 
 	 * @post	If the end position is not walkable return.
 	 * 			| if not getWorld().isWalkable(endPosition) then return
 	 * @post	If the current position is equal to the end position return.
 	 * 			| if cubePosition[0] == endPosition[0] and cubePosition[1] == endPosition[1] and cubePosition[2] == endPosition[2] then return
+	 * @post	If the end position is not reachable via a path containing only walkable cubes, this unit stops.
+	 * 			| if getWorld().getPathFinder().findPath(startPosition, endPosition) == null then
+	 * 			|	setState(State.NOTHING)
+	 * 			|	setHasEndGoal(false)
+	 * 			| 	if (this.getTask() != null) then stopTask()
 	 * @post	If the end position is reachable via a path containing only walkable cubes then pathToEndGoal contains
 	 * 			a shortest path towards this end goal.
-	 * 			| V := getWorld().getWalkables()
-	 * 			| R := emptySet
-	 * 			| a := startPosition
-	 * 			| z := endPosition
-	 * 			| p := Map<int[], int[]>
-	 * 			| L(a) := 0
-	 * 			| for all v in V L(v) := Double.MAX_VALUE
-	 * 			| while R does not contain z do
-	 * 			|	pick v in V\R such that L(v) is minimal, if the minimal L(v) is Double.MAX_VALUE then return
-	 * 			| 		if (this.getTask() != null) then stopTask()
-	 * 			|	R := R.union({v})
-	 * 			|	for each (v, v') such that v and v' are neighbours do
-	 * 			|		if L(v) + distance(v, v') < L(v') then
-	 * 			|			L(v') := L(v) + distance(v, v')
-	 * 			|			p(v') := v
-	 * 			| pathToEndGoal := (a = v0, v1, ..., vk = z) where p(vi) = v(i-1)
-	 * 			| moveToAdjacent(pathToEndGoal.get(0)[0] - startPosition[0], pathToEndGoal.get(0)[1] - startPosition[1], 
-	 *			|	pathToEndGoal.get(0)[2] - startPosition[2])
-	 *			| pathToEndGoal.remove(0)
+	 * 			| pathToEndGoal := getWorld().getPathFinder().findPath(startPosition, endPosition)
+	 * 			| nextOnPath := 0
+	 * 			| moveToNextOnPath()
 	 */
 	private void findPath(){
 		int[] startPosition = this.getPosition().toIntArray();
@@ -720,121 +791,73 @@ public class Unit {
 		if (startPosition[0] == endPosition[0] && startPosition[1] == endPosition[1] && startPosition[2] == endPosition[2])
 			return;
 		
-		Set<int[]> R = new HashSet<int[]>();
-		List<int[]> V = new ArrayList<>(this.getWorld().getWalkables());
-		Map<int[], Double> L = new HashMap<int[], Double>();
-		Map<int[], int[]> p = new HashMap<int[], int[]>();
-		
-		Iterator<int[]> ite = V.iterator();
-		while (ite.hasNext()) {
-			int[] current = ite.next();
-			if (current[0] == startPosition[0] && current[1] == startPosition[1] && current[2] == startPosition[2]) {
-				startPosition = current;
-				break;
-			} 
-		}
-		L.put(startPosition, new Double(0));
-		ite = V.iterator();
-		while (ite.hasNext()) {
-			int[] current = ite.next();
-			if (current[0] == endPosition[0] && current[1] == endPosition[1] && current[2] == endPosition[2]) {
-				endPosition = current;
-				break;
-			}
-		}
-		ite = V.iterator();
-		while (ite.hasNext()) {
-			int[] current = ite.next();
-			if (current != startPosition)
-				L.put(current, Double.MAX_VALUE);
-		}
-		
-		///////////////////////////////////////////////////////////////////////////////////////////
 		long startTime = System.currentTimeMillis();
-		List<int[]> copyV = new ArrayList<int[]>(V);
-		while (!R.contains(endPosition)) {
-			ite = copyV.iterator();
-			int[] minCube = new int[]{-1, -1, -1};
-			Double minValue = Double.MAX_VALUE;
-			while (ite.hasNext()) {
-				int[] next = ite.next();
-				if (L.get(next).compareTo(minValue) < 0) {
-					minValue = L.get(next);
-				}
-			}
-			if (minValue.equals(Double.MAX_VALUE)) {
-				setState(State.NOTHING);
-				setHasEndGoal(false);
-				
-				if (this.getTask() != null) {
-					stopTask();
-				}
-				
-				return;
-			}
-			ite = copyV.iterator();
-			while (ite.hasNext()) {
-				int[] next = ite.next();
-				if (L.get(next).equals(minValue)) {
-					minCube = next;
-					break;
-				}
-			}
-			
-			R.add(minCube);
-			copyV.remove(minCube);
-			Set<int[]> neighbourCubes = this.getWorld().getEdgeMap().get(minCube);
-			for (int[] neighbour : neighbourCubes) {
-				double distance = new Vector(neighbour[0] - minCube[0], neighbour[1] - minCube[1], 
-						neighbour[2] - minCube[2]).length();
-				if (neighbour[2] - minCube[2] == 1) {
-					distance *= 0.5d;
-				} else if (neighbour[2] - minCube[2] == -1) {
-					distance *= 1.2d;
-				} 
-				if (Double.sum(L.get(minCube), new Double(distance)) < L.get(neighbour).doubleValue()) {
-					L.put(neighbour, Double.sum(L.get(minCube), new Double(distance)));
-					p.put(neighbour, minCube);
-				}
-			}
-			/*ite = V.iterator();
-			while (ite.hasNext()) {
-				int[] next = ite.next();
-				if (Math.abs(next[0] - minCube[0]) <= 1 && Math.abs(next[1] - minCube[1]) <= 1 &&
-						Math.abs(next[2] - minCube[2]) <= 1){
-					double distance = new Vector(next[0] - minCube[0], next[1] - minCube[1], 
-							next[2] - minCube[2]).length();
-					if (next[2] - minCube[2] == 1) {
-						distance *= 0.5d;
-					} else if (next[2] - minCube[2] == -1) {
-						distance *= 1.2d;
-					} 
-					if (Double.sum(L.get(minCube), new Double(distance)) < L.get(next).doubleValue()) {
-						L.put(next, Double.sum(L.get(minCube), new Double(distance)));
-						p.put(next, minCube);
-					}
-				}
-			}*/
-		}
+		int[] path = this.getWorld().findPath(this, startPosition, endPosition);
 		long endTime = System.currentTimeMillis();
 		if (endTime - startTime > 150) 
 			System.out.println("dikke loop: " + Long.toString(endTime - startTime));
-		////////////////////////////////////////////////////////////////////////////
 		
-		int[] pathCube = endPosition;
-		pathToEndGoal.clear();
-		while (!pathCube.equals(startPosition)) {
-			pathToEndGoal.add(0, pathCube.clone());
-			pathCube = p.get(pathCube);
+		if (path == null) {
+			setState(State.NOTHING);
+			setHasEndGoal(false);
+			
+			if (this.getTask() != null) {
+				stopTask();
+			}
+			
+			return;
 		}
 		
+		pathToEndGoal = path;
+		nextOnPath = 0;
+		
 		try {
-			moveToAdjacent(pathToEndGoal.get(0)[0] - startPosition[0], pathToEndGoal.get(0)[1] - startPosition[1], 
-					pathToEndGoal.get(0)[2] - startPosition[2]);
+			moveToNextOnPath();
 		} catch (ModelException e) {
 			e.printStackTrace();
 		}
-		pathToEndGoal.remove(0);
+	}
+	
+	/**
+	 * Returns the flat index of the end goal of the path this unit is expected to search in its next call to
+	 * advanceTime with the given deltaT, or -1 if it is not expected to search one. A path is expected when this
+	 * unit has an end goal that is not adjacent and it either waits to walk there or reached its current goal after
+	 * its path was reset.
+	 * The expectation only holds if nothing else changes this unit first.
+	 */
+	int getExpectedPathEnd(double deltaT) {
+		if (this.getWorld() == null || this.isTerminated() || !this.isHasEndGoal())
+			return -1;
+		boolean expected;
+		if (state == State.WALKING)
+			expected = this.isResetPath() && followedUnit == null && willReachCurrentGoal(deltaT);
+		else
+			expected = state == State.NOTHING && this.getStatetime() <= 0;
+		if (!expected || this.isHasToRest() || timeToRest + deltaT >= 180 || !checkNeighbouringSolid())
+			return -1;
+		int endX = (int) endGoal.getX(), endY = (int) endGoal.getY(), endZ = (int) endGoal.getZ();
+		if (Math.abs(endX - this.getCubeX()) <= 1 && Math.abs(endY - this.getCubeY()) <= 1 
+				&& Math.abs(endZ - this.getCubeZ()) <= 1)
+			return -1;
+		if (!this.getWorld().isWalkable(endX, endY, endZ))
+			return -1;
+		return this.getWorld().getIndex(endX, endY, endZ);
+	}
+	
+	/**
+	 * Moves this unit to the next cube on its path to the end goal, and removes that cube from the path.
+	 * 
+	 * @effect	| cube := pathToEndGoal[nextOnPath]
+	 * 			| moveToAdjacent(getWorld().getX(cube) - getCubeX(), getWorld().getY(cube) - getCubeY(), 
+	 * 			|	getWorld().getZ(cube) - getCubeZ())
+	 * @post	| new.nextOnPath == nextOnPath + 1
+	 */
+	private void moveToNextOnPath() throws ModelException {
+		int cube = pathToEndGoal[nextOnPath];
+		World world = this.getWorld();
+		moveToAdjacent(world.getX(cube) - this.getCubeX(), world.getY(cube) - this.getCubeY(), 
+				world.getZ(cube) - this.getCubeZ());
+		nextOnPath++;
 	}
 
 	/**
@@ -854,7 +877,9 @@ public class Unit {
 	 * @post	State of the attacker is ATTACKING. Statetime equals one.
 	 * 			|new.state = State.ATTACKING
 	 * 			|new.statetime = 1
-	 * @effect	The attacker attacks the victim and the victim defends itself.
+	 * @effect	The attacker attacks the victim and the victim defends itself. Both are ticked in detail for a while.
+	 * 			|promote()
+	 * 			|victim.promote()
 	 * 			|victim.defend(this)
 	 * 	
 	 */
@@ -873,6 +898,8 @@ public class Unit {
 												(this.getPosition().getX() - victim.getPosition().getX())));
 			setState(State.ATTACKING);
 			setStatetime(1);
+			promote();
+			victim.promote();
 			victim.defend(this);
 			
 			if (this.getTask() != null)
@@ -906,7 +933,7 @@ public class Unit {
 		double pDodge = 0.2d * (double)this.getAgility()/(double)attacker.getAgility();
 		double pBlock = 0.25d *((double)this.getStrength() + (double)this.getAgility())/
 				((double)attacker.getStrength() + (double)attacker.getAgility());
-		Random rand = new Random();
+		SplittableRandom rand = this.getRandom();
 		if (rand.nextDouble() < pDodge) {
 			dodge(rand);
 			gainExperience(20);
@@ -935,27 +962,34 @@ public class Unit {
 	 *			| int[] jumpPos = validPos.get(index).toIntArray()
 	 *			| setPosition(new Vector(cubePosition[0] + jumpPos[0] + random.nextDouble(), 
 	 *			|		cubePosition[1] + jumpPos[1] + random.nextDouble(), cubePosition[2]));
-	 *
+	 * @post	If no adjacent cube in its xy-plane is walkable, this unit stays where it is.
 	 */
-	private void dodge(Random rand) {
-		List<Vector> validPos = new LinkedList<Vector>();
+	private void dodge(SplittableRandom rand) {
+		int x = this.getCubeX(), y = this.getCubeY(), z = this.getCubeZ();
+		// Bit 3*(xd+1) + (yd+1) is set iff the cube at (x+xd, y+yd, z) is walkable.
+		int validPos = 0;
+		int nbValidPos = 0;
 		for(int xd = -1; xd <= 1; xd++) {
 			for(int yd = -1; yd <= 1; yd++) {
 				if (xd == 0 && yd == 0)
 					continue;
-				Vector diff = new Vector(xd, yd, 0);
-				if (this.getWorld().isWalkable(this.getPosition().add(diff).toIntArray()))
-					validPos.add(diff);
+				if (this.getWorld().isWalkable(x + xd, y + yd, z)) {
+					validPos |= 1 << (3 * (xd + 1) + (yd + 1));
+					nbValidPos++;
+				}
 			}
 		}
-		int index = rand.nextInt(validPos.size());
-		int[] jumpPos = validPos.get(index).toIntArray();
+		// A unit without walkable neighbours dodges on the spot.
+		if (nbValidPos == 0)
+			return;
+		int index = rand.nextInt(nbValidPos);
+		int bit = -1;
+		for (int i = 0; i <= index; i++)
+			bit = Integer.numberOfTrailingZeros(validPos & (-1 << (bit + 1)));
 		double xRand = rand.nextDouble();
 		double yRand = rand.nextDouble();
 		try {
-			int[] cubePosition = this.getPosition().toIntArray();
-			setPosition(new Vector(cubePosition[0] + jumpPos[0] + xRand, cubePosition[1] + jumpPos[1] + yRand,
-					cubePosition[2]));
+			setPosition(x + bit / 3 - 1 + xRand, y + bit % 3 - 1 + yRand, z);
 		} catch (ModelException e) {
 		}
 	}
@@ -976,9 +1010,9 @@ public class Unit {
 	public void startWork(int x, int y, int z){
 		if (this.getStatetime() > 0)
 			return;
-		int dx = x - this.getPosition().toIntArray()[0];
-		int dy = y - this.getPosition().toIntArray()[1];
-		int dz = z - this.getPosition().toIntArray()[2];
+		int dx = x - this.getCubeX();
+		int dy = y - this.getCubeY();
+		int dz = z - this.getCubeZ();
 		if ((this.getState() == State.NOTHING || this.getState() == State.WORKING)
 				&& (Math.abs(dx) <= 1 && Math.abs(dy) <= 1 && Math.abs(dz) <= 1)){	
 			setState(State.WORKING);
@@ -1115,6 +1149,193 @@ public class Unit {
 		else if (this.getStatetime() < 0)
 			setState(State.NOTHING);
 	}
+	
+	/**
+	 * Puts this unit to sleep until shortly before the activity it waits for can end, if it can sleep long enough.
+	 * Resting, working and attacking only count down, and an idle unit without goal, task or default behavior only
+	 * waits until it has to rest, so their ticks can be skipped until then.
+	 * 
+	 * @param deltaT
+	 * 			The time of the tick this unit has just done.
+	 * @post	If this unit is resting, working, attacking, or idle without goal, task or default behavior, and the 
+	 * 			first moment at which that can change lies at least WAKE_MARGIN + MIN_SLEEP ahead, this unit sleeps 
+	 * 			until WAKE_MARGIN before that moment.
+	 * 			| wait = min(180 - getTimeToRest(), time left of the activity)
+	 * 			| if wait - WAKE_MARGIN >= MIN_SLEEP then
+	 * 			|	new.isAsleep()
+	 */
+	private void sleepIfWaiting(double deltaT) {
+		if (world == null || terminated || hasToRest || (task != null && statementCompleted))
+			return;
+		double wait = 180 - timeToRest;
+		if (state == State.WORKING)
+			wait = Math.min(wait, busytime);
+		else if (state == State.ATTACKING)
+			wait = Math.min(wait, statetime);
+		else if (state == State.RESTING)
+			wait = Math.min(wait, getRestWait());
+		else if (state != State.NOTHING || hasEndGoal || defaultBehaviorEnabled || task != null)
+			return;
+		if (wait - WAKE_MARGIN < MIN_SLEEP)
+			return;
+		// Within a tick of its world, this unit has caught up to the end of that tick, except for the time it skips.
+		double end = world.getTickEnd() > world.getTime() ? world.getTickEnd() : world.getTime() + deltaT;
+		asleepSince = end - coarseDebt;
+		alarm = world.setAlarm(this, asleepSince + wait - WAKE_MARGIN);
+	}
+	
+	/**
+	 * Returns the time until this resting unit has recovered its health, or else its stamina, or else until its
+	 * statetime runs out.
+	 */
+	private double getRestWait() {
+		if (currentHealth < getHealth())
+			return (getHealth() - currentHealth) / ((double)toughness/200);
+		if (currentStamina < getStamina())
+			return (getStamina() - currentStamina) / ((double)toughness/100);
+		return statetime;
+	}
+	
+	/**
+	 * Makes this sleeping unit catch up on the time its world advanced since it last caught up, in closed form.
+	 * 
+	 * The getters of the timed state already return what resting, working, attacking or idling through that time 
+	 * tick by tick would have made it, without changing this unit. This stores those values, and is only done when 
+	 * the unit wakes up, so reading a sleeping unit never changes how the game goes on.
+	 * 
+	 * @post	| elapsed = getWorld().getTime() - asleepSince
+	 * 			| new timeToRest == old timeToRest + elapsed
+	 * 			| if getState() == State.WORKING then new busytime == old busytime - elapsed
+	 * 			| if getState() == State.ATTACKING or getState() == State.RESTING then
+	 * 			|	new statetime == old statetime - elapsed
+	 * 			| if getState() == State.RESTING and currentHealth < getHealth() then
+	 * 			|	new currentHealth == min(old currentHealth + toughness/200 * elapsed, getHealth())
+	 * 			| else if getState() == State.RESTING then
+	 * 			|	new currentStamina == min(old currentStamina + toughness/100 * elapsed, getStamina())
+	 * @post	The getters of the timed state return the same values as before.
+	 */
+	private void settle() {
+		double elapsed = getTimeAsleep();
+		if (elapsed == 0)
+			return;
+		double newTimeToRest = getTimeToRest(), newBusytime = getBusytime(), newStatetime = getStatetime();
+		double newHealth = getCurrentHealth(), newStamina = getCurrentStamina();
+		asleepSince += elapsed;
+		timeToRest = newTimeToRest;
+		busytime = newBusytime;
+		statetime = newStatetime;
+		currentHealth = newHealth;
+		currentStamina = newStamina;
+	}
+	
+	/**
+	 * Returns the time its world advanced since this sleeping unit last caught up, or 0 if it is awake.
+	 */
+	private double getTimeAsleep() {
+		if (alarm == null)
+			return 0;
+		double elapsed = world.getTime() - asleepSince;
+		return elapsed > 0 ? elapsed : 0;
+	}
+	
+	/**
+	 * Wakes this unit up if it is asleep, after it has caught up on the time it skipped.
+	 * 
+	 * @effect	| settle()
+	 * @post	| !new.isAsleep()
+	 */
+	void wake() {
+		if (alarm == null)
+			return;
+		settle();
+		world.cancelAlarm(alarm);
+		alarm = null;
+	}
+	
+	/**
+	 * Wakes this unit up because its alarm went off. Called by its world, which has already removed the alarm.
+	 * 
+	 * @effect	| settle()
+	 * @post	| !new.isAsleep()
+	 */
+	void alarmGoesOff() {
+		settle();
+		alarm = null;
+	}
+	
+	/**
+	 * Advances this unit through a tick of its world. A unit that its world does not tick in detail skips ticks 
+	 * until they add up to the coarse step of its world, and then advances by their sum at once.
+	 * 
+	 * @param deltaT
+	 * 			The time of the tick of its world.
+	 * @effect	If its world has no coarse step or this unit is detailed, this unit advances by the time it skipped
+	 * 			and deltaT.
+	 * 			| if getWorld().isDetailed(this) then advanceTime(skipped + deltaT)
+	 * @effect	Else, this unit skips the tick until the time it skipped adds up to the coarse step, or would exceed
+	 * 			MAX_COARSE_STEP at the next tick, and then advances by that time.
+	 * @throws	ModelException
+	 * 			| deltaT <= 0 || deltaT > World.MAX_COARSE_STEP
+	 */
+	void tick(double deltaT) throws ModelException {
+		double step = world.getCoarseStep();
+		if (step == 0 && coarseDebt == 0) {
+			advanceTime(deltaT);
+			return;
+		}
+		if (coarseDebt + deltaT > World.MAX_COARSE_STEP) {
+			// This tick is longer than the ones this unit skipped, so it catches up on those first.
+			double owed = coarseDebt;
+			coarseDebt = deltaT;
+			advanceTime(owed);
+			if (isAsleep()) {
+				coarseDebt = 0;
+				return;
+			}
+		} else
+			coarseDebt += deltaT;
+		boolean detailed = world.isDetailed(this);
+		if (detailed || coarseDebt >= coarseInterval || coarseDebt + deltaT > World.MAX_COARSE_STEP) {
+			double owed = coarseDebt;
+			coarseDebt = 0;
+			// Units that leave the detailed part together spread their coarse ticks over the coarse step.
+			coarseInterval = detailed ? step * (0.5 + 0.5 * (id * 0.618034 % 1)) : step;
+			advanceTime(owed);
+		}
+	}
+	
+	/**
+	 * Makes this unit be ticked every tick for DETAIL_HOLD seconds, because it interacts with another unit.
+	 * 
+	 * @post	| new.isPromoted()
+	 */
+	void promote() {
+		if (world != null)
+			detailedUntil = world.getTime() + DETAIL_HOLD;
+	}
+	
+	/**
+	 * Returns true iff this unit interacted with another unit in the last DETAIL_HOLD seconds of its world.
+	 */
+	boolean isPromoted() {
+		return world != null && detailedUntil > world.getTime();
+	}
+	
+	/**
+	 * Returns the distance between this unit and the given unit, in cubes.
+	 */
+	double distanceTo(Unit other) {
+		double dx = getPositionX() - other.getPositionX(), dy = getPositionY() - other.getPositionY(),
+				dz = getPositionZ() - other.getPositionZ();
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+	
+	/**
+	 * Returns true iff this unit is asleep, and is therefore skipped by the ticks of its world.
+	 */
+	public boolean isAsleep() {
+		return alarm != null;
+	}
 
 	/**
 	 * Checks whether this name is valid. The first letter should be a capital letter. The length of the name should be at least 2.
@@ -1291,36 +1512,18 @@ public class Unit {
 	 * @return	If this unit is falling use a raised cubePosition (by +0.5 on z-axis) to check the neighbouring cubes.
 	 * 			If the cubePosition has a solid neighbour return true, return false otherwise.
 	 * 			| if getState() == State.FALLING then 
-	 * 			|	cubePosition = getPosition.add(new Vector(0, 0, 0.5)).toIntArray()
+	 * 			|	cubeZ = (int) (getPosition().getZ() + 0.5)
 	 * 			| else then
-	 * 			|	cubePosition = getPosition.toIntArray()
-	 * 			| for x, y, z from cubePosition[0]-1, cubePosition[1]-1, cubePosition[2]-1 to cubePosition[0]+1, cubePosition[1]+1, cubePosition[2]+1 do
-	 * 			|	if getWorld().getCube(x, y, z).isSolid()
-	 * 			|		result == true
-	 * 			| result == false
+	 * 			|	cubeZ = getCubeZ()
+	 * 			| result == getWorld().hasSolidAround(getCubeX(), getCubeY(), cubeZ)
 	 */
 	private boolean checkNeighbouringSolid(){
-		int[] cubePosition = new int[3];
+		int cubeZ;
 		if (this.getState() == State.FALLING)
-			cubePosition = this.getPosition().add(new Vector(0.0d, 0.0d, 0.5d)).toIntArray();
+			cubeZ = (int) (this.getPositionZ() + 0.5d);
 		else 
-			cubePosition = this.getPosition().toIntArray();
-		if (cubePosition[2] == 0)
-			return true;
-		for (int x = cubePosition[0] - 1; x <= cubePosition[0] + 1; x++){
-			for (int y = cubePosition[1] - 1; y <= cubePosition[1] + 1; y++){
-				for (int z = cubePosition[2] - 1; z <= cubePosition[2] + 1; z++){
-					try {
-						CubeType cube = world.getCube(x, y, z);
-						if (cube.isSolid())
-							return true;
-					} catch (ModelException e) {
-					}
-					
-				}
-			}
-		} 
-		return false;	
+			cubeZ = this.getCubeZ();
+		return world.hasSolidAround(this.getCubeX(), this.getCubeY(), cubeZ);
 	}
 	
 	/**
@@ -1334,12 +1537,14 @@ public class Unit {
 	 */
 	private void fall(double deltaT){
 		try {
-			setPosition(this.getPosition().add(FALL_VELOCITY.multiply(deltaT)));
+			setPosition(this.getPositionX() + FALL_VELOCITY.getX() * deltaT, 
+					this.getPositionY() + FALL_VELOCITY.getY() * deltaT, 
+					this.getPositionZ() + FALL_VELOCITY.getZ() * deltaT);
 		} catch (ModelException e) {
 			e.printStackTrace();
 		}
 		if (checkNeighbouringSolid())
-			state = State.NOTHING;
+			setState(State.NOTHING);
 	}
 
 	
@@ -1348,19 +1553,71 @@ public class Unit {
 	 */
 	@Basic @Raw
 	public Vector getPosition() {
-		return position;
+		if (positionSnapshot == null)
+			positionSnapshot = position.toVector();
+		return positionSnapshot;
+	}
+	
+	private double getPositionX() {
+		return position.getX();
+	}
+	
+	private double getPositionY() {
+		return position.getY();
+	}
+	
+	private double getPositionZ() {
+		return position.getZ();
+	}
+	
+	/**
+	 * Returns the x-coordinate of the cube this unit lies in.
+	 * @return	| result == (int) getPosition().getX()
+	 */
+	public int getCubeX() {
+		return (int) getPositionX();
+	}
+	
+	/**
+	 * Returns the y-coordinate of the cube this unit lies in.
+	 * @return	| result == (int) getPosition().getY()
+	 */
+	public int getCubeY() {
+		return (int) getPositionY();
+	}
+	
+	/**
+	 * Returns the z-coordinate of the cube this unit lies in.
+	 * @return	| result == (int) getPosition().getZ()
+	 */
+	public int getCubeZ() {
+		return (int) getPositionZ();
 	}
 
 	/**
 	 * @param position the position to set
-	 * @throws ModelException 
-	 * 			| if !isValidPosition(position)
+	 * @effect	| setPosition(position.getX(), position.getY(), position.getZ())
 	 */
 	@Basic @Raw
 	public void setPosition(Vector position) throws ModelException {
-		if(!World.isValidPosition(position, this.getWorld()))
+		setPosition(position.getX(), position.getY(), position.getZ());
+	}
+	
+	/**
+	 * Sets the position of this unit to the given coordinates.
+	 * @effect	If this unit lies in a world, it is indexed at its new position.
+	 * 			| if getWorld() != null && !isTerminated() then getWorld().updateIndex(this, x, y, z)
+	 * @throws ModelException 
+	 * 			| if !isValidPosition(x, y, z)
+	 */
+	@Raw
+	private void setPosition(double x, double y, double z) throws ModelException {
+		if(!World.isValidPosition(x, y, z, this.getWorld()))
 			throw new ModelException("Trying to set an invalid position.");
-		this.position = position;
+		position.set(x, y, z);
+		positionSnapshot = null;
+		if (this.getWorld() != null && !this.isTerminated())
+			this.getWorld().updateIndex(this, x, y, z);
 	}
 
 	/**
@@ -1396,6 +1653,7 @@ public class Unit {
 	 */
 	@Basic @Raw
 	public void setDefaultBehaviorEnabled(boolean defaultBehaviourEnabled) {
+		wake();
 		this.defaultBehaviorEnabled = defaultBehaviourEnabled;
 	}
 
@@ -1412,6 +1670,7 @@ public class Unit {
 	 */
 	@Basic @Raw
 	public void setState(State state) {
+		wake();
 		this.state = state;
 	}
 
@@ -1458,6 +1717,7 @@ public class Unit {
 	 */
 	@Raw
 	public void setWeight(int weight) {
+		wake();
 		this.weight = weight;
 		checkValidProperty();
 	}
@@ -1518,6 +1778,7 @@ public class Unit {
 	 */
 	@Basic @Raw
 	public void setToughness(int toughness) {
+		wake();
 		this.toughness = toughness;
 		checkValidProperty();
 	}
@@ -1539,11 +1800,14 @@ public class Unit {
 	}
 
 	/**
-	 * @return the currentHealth
+	 * @return the currentHealth, which a sleeping unit that rests regains over the time it slept
 	 */
 	@Basic @Raw
 	public double getCurrentHealth() {
-		return currentHealth;
+		double elapsed = getTimeAsleep();
+		if (elapsed == 0 || state != State.RESTING || currentHealth >= getHealth())
+			return currentHealth;
+		return Math.min(currentHealth + (double)toughness/200 * elapsed, getHealth());
 	}
 
 	/**
@@ -1555,17 +1819,21 @@ public class Unit {
 	@Basic @Raw
 	public void setCurrentHealth(double currentHealth) {
 		assert (currentHealth <= this.getHealth());
+		wake();
 		this.currentHealth = currentHealth;
 		if (currentHealth < 0)
 			terminate();
 	}
 
 	/**
-	 * @return the currentStamina
+	 * @return the currentStamina, which a sleeping unit that rests with full health regains over the time it slept
 	 */
 	@Basic @Raw
 	public double getCurrentStamina() {
-		return currentStamina;
+		double elapsed = getTimeAsleep();
+		if (elapsed == 0 || state != State.RESTING || currentHealth < getHealth() || currentStamina >= getStamina())
+			return currentStamina;
+		return Math.min(currentStamina + (double)toughness/100 * elapsed, getStamina());
 	}
 
 	/**
@@ -1577,6 +1845,7 @@ public class Unit {
 	@Basic @Raw
 	public void setCurrentStamina(double currentStamina) {
 		assert (currentStamina > 0 && currentStamina <= this.getStamina());
+		wake();
 		this.currentStamina = currentStamina;
 	}
 
@@ -1608,10 +1877,12 @@ public class Unit {
 	}
 
 	/**
-	 * @return the statetime
+	 * @return the statetime, which counts down over the time a sleeping unit that attacks or rests slept
 	 */
 	@Basic @Raw
 	public double getStatetime() {
+		if (state == State.ATTACKING || state == State.RESTING)
+			return statetime - getTimeAsleep();
 		return statetime;
 	}
 
@@ -1620,6 +1891,7 @@ public class Unit {
 	 */
 	@Basic @Raw
 	public void setStatetime(double statetime) {
+		wake();
 		this.statetime = statetime;
 	}
 
@@ -1649,7 +1921,7 @@ public class Unit {
 	 */
 	@Basic @Raw
 	public Vector getStart() {
-		return new Vector(start);
+		return start.toVector();
 	}
 
 	/**
@@ -1660,9 +1932,14 @@ public class Unit {
 	 */
 	@Basic @Raw
 	public void setStart(Vector start) throws ModelException {
-		if (!World.isValidPosition(start, this.getWorld()))
+		setStart(start.getX(), start.getY(), start.getZ());
+	}
+	
+	@Raw
+	private void setStart(double x, double y, double z) throws ModelException {
+		if (!World.isValidPosition(x, y, z, this.getWorld()))
 			throw new ModelException("Invalid start position.");
-		this.start = start;
+		start.set(x, y, z);
 	}
 
 	/**
@@ -1670,7 +1947,7 @@ public class Unit {
 	 */
 	@Basic @Raw
 	public Vector getCurrentGoal() {
-		return new Vector(currentGoal);
+		return currentGoal.toVector();
 	}
 
 	/**
@@ -1681,9 +1958,14 @@ public class Unit {
 	 */
 	@Basic @Raw
 	public void setCurrentGoal(Vector currentGoal) throws ModelException {
-		if (!World.isValidPosition(currentGoal, this.getWorld()))
+		setCurrentGoal(currentGoal.getX(), currentGoal.getY(), currentGoal.getZ());
+	}
+	
+	@Raw
+	private void setCurrentGoal(double x, double y, double z) throws ModelException {
+		if (!World.isValidPosition(x, y, z, this.getWorld()))
 			throw new ModelException("The given currentGoal is invalid.");
-		this.currentGoal = currentGoal;
+		currentGoal.set(x, y, z);
 	}
 
 	/**
@@ -1699,14 +1981,17 @@ public class Unit {
 	 */
 	@Basic @Raw
 	public void setHasEndGoal(boolean hasEndGoal) {
+		wake();
 		this.hasEndGoal = hasEndGoal;
 	}
 
 	/**
-	 * @return the busytime
+	 * @return the busytime, which counts down over the time a sleeping unit that works slept
 	 */
 	@Basic @Raw
 	public double getBusytime() {
+		if (state == State.WORKING)
+			return busytime - getTimeAsleep();
 		return busytime;
 	}
 
@@ -1715,6 +2000,7 @@ public class Unit {
 	 */
 	@Basic @Raw
 	public void setBusytime(double busytime) {
+		wake();
 		this.busytime = busytime;
 	}
 
@@ -1731,15 +2017,16 @@ public class Unit {
 	 */
 	@Basic @Raw
 	public void setHasToRest(boolean hasToRest) {
+		wake();
 		this.hasToRest = hasToRest;
 	}
 
 	/**
-	 * @return the timeToRest
+	 * @return the timeToRest, which counts up over the time a sleeping unit slept
 	 */
 	@Basic @Raw
 	public double getTimeToRest() {
-		return timeToRest;
+		return timeToRest + getTimeAsleep();
 	}
 
 	/**
@@ -1747,6 +2034,7 @@ public class Unit {
 	 */
 	@Basic @Raw
 	public void setTimeToRest(double timeToRest) {
+		wake();
 		this.timeToRest = timeToRest;
 	}
 
@@ -1755,15 +2043,21 @@ public class Unit {
 	 */
 	@Basic @Raw
 	public Vector getVelocity() {
-		return velocity;
+		return velocity.toVector();
 	}
 
 	/**
 	 * @param velocity the velocity to set
+	 * @effect	| setVelocity(velocity.getX(), velocity.getY(), velocity.getZ())
 	 */
 	@Basic @Raw
 	public void setVelocity(Vector velocity) {
-		this.velocity = velocity;
+		setVelocity(velocity.getX(), velocity.getY(), velocity.getZ());
+	}
+	
+	@Raw
+	private void setVelocity(double x, double y, double z) {
+		velocity.set(x, y, z);
 	}
 	
 	/**
@@ -1786,9 +2080,9 @@ public class Unit {
 			return 0.0d;
 		
 		double multiplier = 1;
-		if (!Util.fuzzyLessThanOrEqualTo(this.getVelocity().getZ(), 0))
+		if (!Util.fuzzyLessThanOrEqualTo(velocity.getZ(), 0))
 			multiplier = 0.5;
-		if (!Util.fuzzyGreaterThanOrEqualTo(this.getVelocity().getZ(), 0))
+		if (!Util.fuzzyGreaterThanOrEqualTo(velocity.getZ(), 0))
 			multiplier = 1.2;
 		
 		if (this.isSprinting())
@@ -1811,17 +2105,20 @@ public class Unit {
 	 * 			| world != null
 	 * @post	This unit's world is equal to the given world.
 	 * 			| new.getWorld() == world
+	 * @effect	This unit is indexed at its position in the given world.
+	 * 			| world.updateIndex(this, getPosition().getX(), getPosition().getY(), getPosition().getZ())
 	 * @throws ModelException
 	 * 			If this unit's position is not walkable in the given world.
-	 * 			| if !world.isWalkable(this.getPosition().toIntArray())
+	 * 			| if !world.isWalkable(getCubeX(), getCubeY(), getCubeZ())
 	 */
 	@Raw
 	public void setWorld(World world) throws ModelException{
 		if(world == null)
 			return;
-		if (!world.isWalkable(this.getPosition().toIntArray()))
+		if (!world.isWalkable(this.getCubeX(), this.getCubeY(), this.getCubeZ()))
 			throw new ModelException("Trying to add a unit to a world with an invalid position");
 		this.world = world;
+		world.updateIndex(this, this.getPositionX(), this.getPositionY(), this.getPositionZ());
 	}
 	
 	/**
@@ -1840,6 +2137,22 @@ public class Unit {
 		return faction;
 	}
 	
+	/**
+	 * @return the id of this unit in the unit registry of its world, or -1 if it was never registered
+	 */
+	@Basic @Raw
+	public int getId() {
+		return id;
+	}
+	
+	/**
+	 * @param id the id to set
+	 */
+	@Basic @Raw
+	void setId(int id) {
+		this.id = id;
+	}
+	
 	/**
 	 * @return isTerminated
 	 */
@@ -1913,11 +2226,24 @@ public class Unit {
 	}
 
 	/**
-	 * @return the pathToEndGoal
+	 * @return the flat indices of the cubes that remain on the path to the end goal, as in the walkable graph
 	 */
-	@Basic 
-	public List<int[]> getPathToEndGoal() {
-		return pathToEndGoal;
+	public int[] getPathToEndGoal() {
+		return Arrays.copyOfRange(pathToEndGoal, nextOnPath, pathToEndGoal.length);
+	}
+
+	/**
+	 * Returns true iff all cubes that remain on the path to the end goal are walkable in the given graph.
+	 * The path is checked in place, without copying it.
+	 * 
+	 * @return	| result == for all cube in getPathToEndGoal(): graph.isWalkable(cube)
+	 */
+	boolean isPathToEndGoalWalkable(WalkableGraph graph) {
+		for (int i = nextOnPath; i < pathToEndGoal.length; i++) {
+			if (!graph.isWalkable(pathToEndGoal[i]))
+				return false;
+		}
+		return true;
 	}
 
 	/**
@@ -1965,6 +2291,7 @@ public class Unit {
 	 */
 	@Basic
 	public void setTask(Task task) {
+		wake();
 		this.task = task;
 	}
 
@@ -1981,9 +2308,26 @@ public class Unit {
 	 */
 	@Basic
 	public void setStatementCompleted(boolean statementCompleted) {
+		wake();
 		this.statementCompleted = statementCompleted;
 	}
 
+	/**
+	 * Returns the random stream of this unit, from which everything this unit does at random draws.
+	 */
+	@Basic
+	public SplittableRandom getRandom() {
+		return random;
+	}
+
+	/**
+	 * @param random the random stream to set
+	 */
+	@Basic
+	void setRandom(SplittableRandom random) {
+		this.random = random;
+	}
+
 	/**
 	 * @return the followedUnit
 	 */
@@ -0,0 +1,173 @@
+package hillbillies.model.world;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A registry of the live units of a world.
+ *
+ * Every registered unit gets an integer id that stays the same while it lives and is never given to another unit.
+ * The units are kept in a dense array: registering a unit appends it, unregistering one moves the last unit into
+ * its place. Positions in the array are therefore not stable, ids are.
+ *
+ * @invar	Every registered unit has the id under which it is registered.
+ *
+ * @author HF corp.
+ * @version 1.0
+ */
+public class UnitRegistry {
+
+	private Unit[] units = new Unit[16];
+	private int size;
+	/**
+	 * The position in units of the unit with every id, or -1 if that unit is not registered.
+	 */
+	private int[] positions = new int[16];
+	private int nextId;
+	/**
+	 * The number of times a unit was registered or unregistered.
+	 */
+	private int modCount;
+	private final Set<Unit> view = new UnitView();
+
+	/**
+	 * Registers the given unit and gives it a new id.
+	 *
+	 * @pre		The given unit is not registered.
+	 * 			| !contains(unit)
+	 * @post	| new.contains(unit)
+	 * @post	| unit.getId() == old.nextId
+	 */
+	void add(Unit unit) {
+		if (size == units.length)
+			units = Arrays.copyOf(units, 2 * size);
+		if (nextId == positions.length)
+			positions = Arrays.copyOf(positions, 2 * nextId);
+		int id = nextId++;
+		unit.setId(id);
+		positions[id] = size;
+		units[size++] = unit;
+		modCount++;
+	}
+
+	/**
+	 * Unregisters the given unit. Its id is kept, but no longer refers to it in this registry.
+	 *
+	 * @return	True iff the given unit was registered.
+	 */
+	boolean remove(Unit unit) {
+		if (!contains(unit))
+			return false;
+		int position = positions[unit.getId()];
+		Unit last = units[--size];
+		units[position] = last;
+		positions[last.getId()] = position;
+		units[size] = null;
+		positions[unit.getId()] = -1;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Returns true iff the given unit is registered in this registry.
+	 */
+	public boolean contains(Unit unit) {
+		int id = unit.getId();
+		return id >= 0 && id < nextId && positions[id] >= 0 && units[positions[id]] == unit;
+	}
+
+	/**
+	 * Returns the number of registered units.
+	 */
+	@Basic
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the unit at the given position.
+	 *
+	 * @param position
+	 * 			A number in [0, size()).
+	 */
+	public Unit get(int position) {
+		if (position < 0 || position >= size)
+			throw new IndexOutOfBoundsException("Position " + position + " of " + size);
+		return units[position];
+	}
+
+	/**
+	 * Returns the id of the unit at the given position.
+	 *
+	 * @param position
+	 * 			A number in [0, size()).
+	 */
+	public int getIdAt(int position) {
+		return get(position).getId();
+	}
+
+	/**
+	 * Returns the position of the given unit, or -1 if it is not registered.
+	 */
+	public int indexOf(Unit unit) {
+		return contains(unit) ? positions[unit.getId()] : -1;
+	}
+
+	/**
+	 * Returns the registered unit with the given id, or null if there is none.
+	 */
+	public Unit getById(int id) {
+		if (id < 0 || id >= nextId || positions[id] < 0)
+			return null;
+		return units[positions[id]];
+	}
+
+	/**
+	 * Returns a read-only view of the registered units, backed by this registry.
+	 * An iterator of the view throws a ConcurrentModificationException once a unit is registered or unregistered.
+	 */
+	public Set<Unit> asSet() {
+		return view;
+	}
+
+	private class UnitView extends AbstractSet<Unit> {
+
+		@Override
+		public Iterator<Unit> iterator() {
+			return new Iterator<Unit>() {
+				private int position;
+				private final int expectedModCount = modCount;
+
+				@Override
+				public boolean hasNext() {
+					return position < size;
+				}
+
+				@Override
+				public Unit next() {
+					if (modCount != expectedModCount)
+						throw new ConcurrentModificationException();
+					if (position >= size)
+						throw new NoSuchElementException();
+					return units[position++];
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Object object) {
+			return object instanceof Unit && UnitRegistry.this.contains((Unit) object);
+		}
+	}
+}
@@ -0,0 +1,495 @@
+package hillbillies.model.world;
+
+import hillbillies.util.IndexSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A class to work with the graph of walkable cubes of a world.
+ *
+ * Every cube is identified by its flat index x + y * sizeX + z * sizeX * sizeY. Two walkable cubes are
+ * connected if they are neighbours, i.e. they differ at most one in each coordinate. The adjacency is stored
+ * in rows of shared edge arrays: the neighbours of cube i are neighbours[firstEdges[i]] ..
+ * neighbours[firstEdges[i]+degrees[i]-1], and directions[k] is the index of the step from i to neighbours[k] in
+ * {@link #OFFSET_X}, {@link #OFFSET_Y} and {@link #OFFSET_Z}. A rebuild lays the rows out back to back in the
+ * order of the cubes, each with room for exactly its own edges.
+ *
+ * For every cube the number of solid cubes in its 3x3x3 block is kept, so walkability and the presence of
+ * solid neighbours are known without looking at the terrain.
+ *
+ * When cubes of the world change, {@link #update(int[], int)} only re-evaluates the cubes around them and
+ * rewrites the rows of the affected cubes. A row that still fits in its room is rewritten in place; one that does
+ * not moves to a new row with room for all NB_DIRECTIONS neighbours at the end of the edge arrays, so it never has
+ * to move again. The room it leaves behind is reclaimed by compacting the edge arrays, once they are full and
+ * more than half of them is unused. The cubes whose walkability changed are then passed to every registered
+ * {@link Listener}.
+ *
+ * @invar	Only walkable cubes have neighbours and all neighbours are walkable.
+ *
+ * @author HF corp.
+ * @version 1.0
+ */
+public class WalkableGraph {
+
+	/**
+	 * The number of neighbours of a cube.
+	 */
+	public static final int NB_DIRECTIONS = 26;
+
+	/**
+	 * The offsets of the 26 neighbours of a cube.
+	 */
+	static final int[] OFFSET_X = new int[NB_DIRECTIONS];
+	static final int[] OFFSET_Y = new int[NB_DIRECTIONS];
+	static final int[] OFFSET_Z = new int[NB_DIRECTIONS];
+
+	static {
+		int i = 0;
+		for (int dz = -1; dz <= 1; dz++) {
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					if (dx == 0 && dy == 0 && dz == 0)
+						continue;
+					OFFSET_X[i] = dx;
+					OFFSET_Y[i] = dy;
+					OFFSET_Z[i] = dz;
+					i++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Listens to the changes in walkability of the cubes of a walkable graph.
+	 */
+	public static interface Listener {
+		/**
+		 * Called after an update of the given graph changed the walkability of the first nbCubes of the given cubes.
+		 * The graph is already consistent when this is called. The array must not be kept or modified.
+		 */
+		void walkabilityChanged(WalkableGraph graph, int[] cubes, int nbCubes);
+	}
+
+	private final World world;
+	private final int sizeX, sizeY, sizeZ;
+
+	/**
+	 * The number of solid cubes among every cube itself and its neighbours inside the world.
+	 */
+	private final byte[] nbSolidAround;
+	private final boolean[] walkable;
+	/**
+	 * The flat indices of all walkable cubes, in no particular order.
+	 */
+	private final IndexSet walkables;
+
+	/**
+	 * The position in the edge arrays of the row of every cube.
+	 */
+	private final int[] firstEdges;
+	/**
+	 * The number of neighbours of every cube.
+	 */
+	private final byte[] degrees;
+	/**
+	 * The number of edges that fit in the row of every cube.
+	 */
+	private final byte[] rooms;
+	private int[] neighbours;
+	private byte[] directions;
+	/**
+	 * The number of positions in the edge arrays that are taken by a row, used or not.
+	 */
+	private int nbTaken;
+	/**
+	 * The number of edges, which is the sum of the degrees.
+	 */
+	private int nbEdges;
+	/**
+	 * The row of a cube while it is being rewritten.
+	 */
+	private final int[] rowNeighbours = new int[NB_DIRECTIONS];
+	private final byte[] rowDirections = new byte[NB_DIRECTIONS];
+
+	/**
+	 * The update in which each cube was last visited, so the marks never have to be cleared.
+	 */
+	private final int[] visited;
+	private int update;
+	/**
+	 * The cubes whose walkability changed in the last update.
+	 */
+	private int[] changed;
+	private int nbChanged;
+
+	private final List<Listener> listeners;
+
+	/**
+	 * Creates the walkable graph of the given world.
+	 *
+	 * @param world
+	 * @effect	rebuild()
+	 */
+	public WalkableGraph(World world) {
+		this.world = world;
+		this.sizeX = world.getSizeX();
+		this.sizeY = world.getSizeY();
+		this.sizeZ = world.getSizeZ();
+		int nbCubes = sizeX * sizeY * sizeZ;
+		nbSolidAround = new byte[nbCubes];
+		walkable = new boolean[nbCubes];
+		walkables = new IndexSet(nbCubes);
+		firstEdges = new int[nbCubes];
+		degrees = new byte[nbCubes];
+		rooms = new byte[nbCubes];
+		neighbours = new int[0];
+		directions = new byte[0];
+		visited = new int[nbCubes];
+		update = 0;
+		changed = new int[0];
+		listeners = new ArrayList<Listener>();
+		rebuild();
+	}
+
+	/**
+	 * Recomputes the walkable cubes and their adjacency from the terrain of the world.
+	 *
+	 * @post	for every cube c: isWalkable(c) == !c.isSolid() and (c.z == 0 or a neighbour of c is solid)
+	 * @post	for every walkable cube c: the neighbours of c are the walkable cubes around c.
+	 */
+	public void rebuild() {
+		Arrays.fill(nbSolidAround, (byte) 0);
+		for (int z = 0; z < sizeZ; z++) {
+			for (int y = 0; y < sizeY; y++) {
+				for (int x = 0; x < sizeX; x++) {
+					if (world.isSolidAt(x, y, z))
+						addSolidAround(x, y, z, 1);
+				}
+			}
+		}
+
+		walkables.clear();
+		for (int z = 0; z < sizeZ; z++) {
+			for (int y = 0; y < sizeY; y++) {
+				for (int x = 0; x < sizeX; x++) {
+					int index = getIndex(x, y, z);
+					walkable[index] = computeWalkable(x, y, z);
+					if (walkable[index])
+						walkables.add(index);
+				}
+			}
+		}
+
+		nbEdges = 0;
+		for (int index = 0; index < walkable.length; index++) {
+			firstEdges[index] = nbEdges;
+			int degree = 0;
+			if (walkable[index]) {
+				if (neighbours.length < nbEdges + NB_DIRECTIONS) {
+					int newLength = Math.max(2 * neighbours.length, nbEdges + NB_DIRECTIONS);
+					neighbours = Arrays.copyOf(neighbours, newLength);
+					directions = Arrays.copyOf(directions, newLength);
+				}
+				degree = addNeighbours(index, neighbours, directions, nbEdges) - nbEdges;
+			}
+			degrees[index] = (byte) degree;
+			rooms[index] = (byte) degree;
+			nbEdges += degree;
+		}
+		nbTaken = nbEdges;
+	}
+
+	/**
+	 * Updates this graph after the solidity of the first nbCubes of the given cubes changed in the world.
+	 *
+	 * The solid counts around the changed cubes are adjusted first. Only the cubes in the 3x3x3 neighbourhood of a
+	 * changed cube can change walkability, and only the rows of the cubes whose walkability changed and of their
+	 * neighbours can change. Only those rows are rewritten.
+	 *
+	 * @param cubes
+	 * 			The flat indices of the changed cubes, without duplicates.
+	 * @param nbCubes
+	 * @pre		Every given cube changed from solid to passable or the other way around since the last update.
+	 * @post	The graph is equal to the graph after rebuild().
+	 * @effect	If the walkability of some cubes changed, every listener is notified of those cubes.
+	 * 			| for listener in listeners do
+	 * 			|	listener.walkabilityChanged(this, changed, nbChanged)
+	 */
+	public void update(int[] cubes, int nbCubes) {
+		for (int i = 0; i < nbCubes; i++) {
+			int x = getX(cubes[i]);
+			int y = getY(cubes[i]);
+			int z = getZ(cubes[i]);
+			addSolidAround(x, y, z, world.isSolidAt(x, y, z) ? 1 : -1);
+		}
+
+		nextUpdate();
+		nbChanged = 0;
+		for (int i = 0; i < nbCubes; i++) {
+			int x = getX(cubes[i]);
+			int y = getY(cubes[i]);
+			int z = getZ(cubes[i]);
+			for (int nz = Math.max(z - 1, 0); nz <= Math.min(z + 1, sizeZ - 1); nz++) {
+				for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, sizeY - 1); ny++) {
+					for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, sizeX - 1); nx++) {
+						int index = getIndex(nx, ny, nz);
+						if (visited[index] == update)
+							continue;
+						visited[index] = update;
+						boolean isWalkable = computeWalkable(nx, ny, nz);
+						if (isWalkable == walkable[index])
+							continue;
+						walkable[index] = isWalkable;
+						if (isWalkable)
+							walkables.add(index);
+						else
+							walkables.remove(index);
+						if (changed.length == nbChanged)
+							changed = Arrays.copyOf(changed, Math.max(2 * nbChanged, 27));
+						changed[nbChanged++] = index;
+					}
+				}
+			}
+		}
+		if (nbChanged == 0)
+			return;
+
+		nextUpdate();
+		for (int i = 0; i < nbChanged; i++) {
+			int x = getX(changed[i]);
+			int y = getY(changed[i]);
+			int z = getZ(changed[i]);
+			for (int nz = Math.max(z - 1, 0); nz <= Math.min(z + 1, sizeZ - 1); nz++) {
+				for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, sizeY - 1); ny++) {
+					for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, sizeX - 1); nx++) {
+						int index = getIndex(nx, ny, nz);
+						if (visited[index] == update)
+							continue;
+						visited[index] = update;
+						rewriteRow(index);
+					}
+				}
+			}
+		}
+
+		for (Listener listener : listeners)
+			listener.walkabilityChanged(this, changed, nbChanged);
+	}
+
+	/**
+	 * Rewrites the row of the given cube, in place if it fits in its room and in a new row otherwise.
+	 */
+	private void rewriteRow(int index) {
+		int degree = walkable[index] ? addNeighbours(index, rowNeighbours, rowDirections, 0) : 0;
+		if (degree > rooms[index]) {
+			firstEdges[index] = takeRow();
+			rooms[index] = NB_DIRECTIONS;
+		}
+		System.arraycopy(rowNeighbours, 0, neighbours, firstEdges[index], degree);
+		System.arraycopy(rowDirections, 0, directions, firstEdges[index], degree);
+		nbEdges += degree - degrees[index];
+		degrees[index] = (byte) degree;
+	}
+
+	/**
+	 * Takes a row with room for NB_DIRECTIONS edges at the end of the edge arrays, and returns its position.
+	 * If the edge arrays are full, they are compacted if more than half of them is unused and grown otherwise.
+	 */
+	private int takeRow() {
+		if (nbTaken + NB_DIRECTIONS > neighbours.length) {
+			if (nbTaken - nbEdges > nbEdges)
+				compact();
+			if (nbTaken + NB_DIRECTIONS > neighbours.length) {
+				int newLength = Math.max(2 * neighbours.length, nbTaken + NB_DIRECTIONS);
+				neighbours = Arrays.copyOf(neighbours, newLength);
+				directions = Arrays.copyOf(directions, newLength);
+			}
+		}
+		nbTaken += NB_DIRECTIONS;
+		return nbTaken - NB_DIRECTIONS;
+	}
+
+	/**
+	 * Lays the rows out back to back again in the order of the cubes, each with room for exactly its own edges.
+	 */
+	private void compact() {
+		int[] newNeighbours = new int[neighbours.length];
+		byte[] newDirections = new byte[directions.length];
+		int position = 0;
+		for (int index = 0; index < walkable.length; index++) {
+			int degree = degrees[index];
+			System.arraycopy(neighbours, firstEdges[index], newNeighbours, position, degree);
+			System.arraycopy(directions, firstEdges[index], newDirections, position, degree);
+			firstEdges[index] = position;
+			rooms[index] = (byte) degree;
+			position += degree;
+		}
+		neighbours = newNeighbours;
+		directions = newDirections;
+		nbTaken = position;
+	}
+
+	private void nextUpdate() {
+		if (update == Integer.MAX_VALUE) {
+			Arrays.fill(visited, 0);
+			update = 0;
+		}
+		update++;
+	}
+
+	/**
+	 * Writes the walkable neighbours of the given cube to the given edge arrays, starting at the given position.
+	 * Returns the position after the last written neighbour.
+	 */
+	private int addNeighbours(int index, int[] neighbours, byte[] directions, int position) {
+		int x = getX(index);
+		int y = getY(index);
+		int z = getZ(index);
+		for (int i = 0; i < NB_DIRECTIONS; i++) {
+			int nx = x + OFFSET_X[i];
+			int ny = y + OFFSET_Y[i];
+			int nz = z + OFFSET_Z[i];
+			if (!isInBounds(nx, ny, nz))
+				continue;
+			int neighbour = getIndex(nx, ny, nz);
+			if (walkable[neighbour]) {
+				neighbours[position] = neighbour;
+				directions[position] = (byte) i;
+				position++;
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Adds the given amount to the solid count of every cube in the 3x3x3 block around the given coordinates.
+	 */
+	private void addSolidAround(int x, int y, int z, int amount) {
+		for (int nz = Math.max(z - 1, 0); nz <= Math.min(z + 1, sizeZ - 1); nz++) {
+			for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, sizeY - 1); ny++) {
+				for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, sizeX - 1); nx++)
+					nbSolidAround[getIndex(nx, ny, nz)] += amount;
+			}
+		}
+	}
+
+	/**
+	 * Returns true iff the cube at the given coordinates is passable and either lies on the bottom of the world
+	 * or has a solid neighbour.
+	 */
+	private boolean computeWalkable(int x, int y, int z) {
+		if (world.isSolidAt(x, y, z))
+			return false;
+		return z == 0 || nbSolidAround[getIndex(x, y, z)] > 0;
+	}
+
+	/**
+	 * Returns true iff the cube with the given flat index or one of its neighbours is solid.
+	 */
+	public boolean hasSolidAround(int index) {
+		return nbSolidAround[index] > 0;
+	}
+
+	/**
+	 * Returns true iff the cube with the given flat index is walkable.
+	 */
+	public boolean isWalkable(int index) {
+		return walkable[index];
+	}
+
+	/**
+	 * Returns the number of walkable cubes.
+	 */
+	public int getNbWalkables() {
+		return walkables.size();
+	}
+
+	/**
+	 * Returns the flat index of the i'th walkable cube.
+	 *
+	 * @param i
+	 * 			A number in [0, getNbWalkables()).
+	 */
+	public int getWalkable(int i) {
+		return walkables.get(i);
+	}
+
+	/**
+	 * Registers the given listener to be notified of changes in walkability.
+	 */
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Unregisters the given listener.
+	 */
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Returns the position in {@link #getNeighbour(int)} of the first neighbour of the cube with the given index.
+	 */
+	public int getFirstEdge(int index) {
+		return firstEdges[index];
+	}
+
+	/**
+	 * Returns the position in {@link #getNeighbour(int)} just after the last neighbour of the cube with the given index.
+	 */
+	public int getEndEdge(int index) {
+		return firstEdges[index] + degrees[index];
+	}
+
+	/**
+	 * Returns the flat index of the neighbour at the given edge position.
+	 */
+	public int getNeighbour(int edge) {
+		return neighbours[edge];
+	}
+
+	/**
+	 * Returns the direction, an index in [0, NB_DIRECTIONS), of the step along the given edge position.
+	 */
+	public int getDirection(int edge) {
+		return directions[edge];
+	}
+
+	/**
+	 * Returns true iff the given coordinates lie inside the world.
+	 */
+	public boolean isInBounds(int x, int y, int z) {
+		return 0 <= x && x < sizeX && 0 <= y && y < sizeY && 0 <= z && z < sizeZ;
+	}
+
+	/**
+	 * Returns the flat index of the cube at the given coordinates.
+	 */
+	public int getIndex(int x, int y, int z) {
+		return x + y * sizeX + z * sizeX * sizeY;
+	}
+
+	/**
+	 * Returns the x-coordinate of the cube with the given flat index.
+	 */
+	public int getX(int index) {
+		return index % sizeX;
+	}
+
+	/**
+	 * Returns the y-coordinate of the cube with the given flat index.
+	 */
+	public int getY(int index) {
+		return (index / sizeX) % sizeY;
+	}
+
+	/**
+	 * Returns the z-coordinate of the cube with the given flat index.
+	 */
+	public int getZ(int index) {
+		return index / (sizeX * sizeY);
+	}
+}
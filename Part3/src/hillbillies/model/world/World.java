@@ -4,15 +4,19 @@ import hillbillies.model.world.Carryable.CarryableType;
 import hillbillies.model.world.Unit.State;
 import hillbillies.part2.listener.TerrainChangeListener;
 import hillbillies.util.ConnectedToBorder;
+import hillbillies.util.IndexSet;
+import hillbillies.util.PackedCube;
+import hillbillies.util.SpatialGrid;
+import hillbillies.util.TimerWheel;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-import java.util.Random;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
 
 import ogp.framework.util.ModelException;
 import be.kuleuven.cs.som.annotate.Basic;
@@ -37,18 +41,112 @@ public class World {
 	private static final int MAX_FACTIONS = 5;
 	private static final int MAX_UNITS_PER_FACTION = 50;
 	private static final int MAX_UNITS_PER_WORLD = 100;
+	
+	private static final int[] NO_CUBES = new int[0];
+	/**
+	 * Workshops are few and far between, so their grid uses larger cells.
+	 */
+	private static final int WORKSHOP_CELL_SIZE = 4;
+	/**
+	 * The length of one slot of the alarms of the sleeping units, in seconds.
+	 */
+	private static final double ALARM_RESOLUTION = 1.0d / 64;
+	/**
+	 * The longest time a unit may be ticked at once, in seconds.
+	 */
+	public static final double MAX_COARSE_STEP = 0.2d;
+	/**
+	 * The distance from a focus unit within which units are ticked every tick, unless set otherwise, in cubes.
+	 */
+	public static final double DEFAULT_DETAIL_DISTANCE = 10;
 		
 	private double timeTillCaveIn;
+	/**
+	 * The random generator of this world. Every unit splits its own stream off it when it joins this world, so that
+	 * what a unit draws does not depend on the order in which the units draw.
+	 */
+	private SplittableRandom random;
+	/**
+	 * The in-game time this world has advanced so far.
+	 */
+	private double time;
+	/**
+	 * The time at which the current tick ends, which is getTime() outside a tick.
+	 */
+	private double tickEnd;
+	/**
+	 * The time between the ticks of a unit outside the detailed part of this world, or 0 if every unit is ticked
+	 * every tick.
+	 */
+	private double coarseStep;
+	/**
+	 * The columns {minX, minY, maxX, maxY} in which units are ticked every tick, the maxima excluded, or null.
+	 */
+	private int[] detailRegion;
+	/**
+	 * The units near which units are ticked every tick.
+	 */
+	private Set<Unit> focusUnits = new HashSet<Unit>();
+	private double detailDistance = DEFAULT_DETAIL_DISTANCE;
+	/**
+	 * The journal that records this world, or null.
+	 */
+	private CommandJournal journal;
+	/**
+	 * The sleeping units of this world, at the time they wake up.
+	 */
+	private TimerWheel<Unit> alarms;
 	
-	//every spawnpoints has 3 coordinates, int[3]
-	private List<int[]> spawnPoints;
-	private List<int[]> walkables;
-	private Map<int[], Set<int[]>> edgeMap;
-	private Set<int[]> cubesToRemove;
-	private CubeType[][][] cubes;
+	//the flat indices of the spawnpoints, as in the walkable graph
+	private IndexSet spawnPoints;
+	private WalkableGraph walkableGraph;
+	/**
+	 * The flat indices of the cubes to remove at the end of the current tick.
+	 */
+	private IndexSet cubesToRemove;
+	//the typeInts of all cubes, the cube (x, y, z) is at index x + y*sizeX + z*sizeX*sizeY
+	private byte[] cubes;
+	private int sizeX, sizeY, sizeZ, sizeXY;
 	private Set<Faction> factions;
 	private Set<Carryable> carryables;
+	/**
+	 * The carryables that may fall, which are the only ones that are ticked. A carryable joins them when it is added 
+	 * to this world or when the cube under it is removed, and leaves them once it lies on a solid cube.
+	 */
+	private Set<Carryable> fallingCarryables;
+	/**
+	 * Whether a carryable was picked up or terminated during the current tick.
+	 */
+	private boolean carryablesLeft;
+	/**
+	 * The live units of this world, under stable ids.
+	 */
+	private UnitRegistry unitRegistry;
+	/**
+	 * The units and the carryables that lie in this world, indexed by the cube they lie in.
+	 */
+	private SpatialGrid<Unit> unitGrid;
+	private SpatialGrid<Carryable> carryableGrid;
+	/**
+	 * The flat indices of all workshops in this world, at the position of their cube.
+	 */
+	private SpatialGrid<Integer> workshopGrid;
 	private ConnectedToBorder connected;
+	//the solid cubes that lost their connection to the border, they collapse at the next cave-in
+	private IndexSet caveIns;
+	private PathFinder pathFinder;
+	/**
+	 * The pool on which every tick searches the expected paths of the units in advance, or null if it does not.
+	 */
+	private ForkJoinPool prefetchPool;
+	/**
+	 * The paths that are searched in advance in the current tick, or null if paths are not prefetched.
+	 */
+	private PathRequests pathRequests;
+	/**
+	 * The profile to which every tick adds the time spent in its phases, or null.
+	 */
+	private TickProfile profile;
 	//If terrain changes, use this thing!
 	private TerrainChangeListener modelListener;
 	
@@ -56,62 +154,160 @@ public class World {
 	 * The constructor for this world.
 	 * @param terrainTypes
 	 * @param modelListener
-	 * @post	connected is a new ConnectedToBorder(sizeX, sizeY, sizeZ).
-	 * @post	cubes is a new array constructed from the given terrainTypes.
+	 * @effect	this(terrainTypes.length, terrainTypes[0].length, terrainTypes[0][0].length, cubes, modelListener)
+	 * 			with cubes[x + y*sizeX + z*sizeX*sizeY] == terrainTypes[x][y][z]
+	 * @throws	ModelException
+	 * 			If one of the terrainTypes is not the typeInt of a CubeType.
+	 */
+	public World(int[][][] terrainTypes, TerrainChangeListener modelListener) throws ModelException {
+		this(terrainTypes.length, terrainTypes[0].length, terrainTypes[0][0].length, flatten(terrainTypes), 
+				modelListener);
+	}
+	
+	/**
+	 * Creates a world from the given terrain, one typeInt per cube, without intermediate arrays.
+	 * The terrain is read once, from its current position; its position is not changed.
+	 * @param sizeX
+	 * @param sizeY
+	 * @param sizeZ
+	 * @param terrain
+	 * 			The typeInts of all cubes, the cube (x, y, z) at index x + y*sizeX + z*sizeX*sizeY,
+	 * 			for example the terrain of a BinaryWorldFile.
+	 * @param modelListener
+	 * @throws	ModelException
+	 * 			If the terrain holds less than sizeX*sizeY*sizeZ cubes or one of them is not the typeInt of a CubeType.
+	 */
+	public World(int sizeX, int sizeY, int sizeZ, ByteBuffer terrain, TerrainChangeListener modelListener) 
+			throws ModelException {
+		this(sizeX, sizeY, sizeZ, read(terrain, sizeX * sizeY * sizeZ), modelListener);
+	}
+	
+	/**
+	 * Creates a world that owns the given flat array of typeInts.
+	 * @param sizeX
+	 * @param sizeY
+	 * @param sizeZ
+	 * @param cubes
+	 * @param modelListener
+	 * @post	connected is a new ConnectedToBorder(sizeX, sizeY, sizeZ), in which all passable cubes are passable.
+	 * @post	caveIns contains all solid cubes that are not connected to the border.
+	 * @post	this.cubes == cubes
+	 * @post	random is a new SplittableRandom with an arbitrary seed.
+	 * @post	factions, carryables and fallingCarryables are new empty sets that keep their insertion order.
+	 * @post	unitRegistry is a new empty UnitRegistry.
+	 * @post	alarms is a new empty TimerWheel at time 0.
+	 * @post	unitGrid and carryableGrid are new empty SpatialGrids over this world, keyed by cube.
+	 * @post	workshopGrid holds the index of every workshop in this world.
+	 * @post	walkableGraph is a new WalkableGraph(this).
+	 * @post	pathFinder is a new PathFinder(this).
+	 * @effect	getWalkableGraph().addListener(this::resetBrokenPaths)
 	 * @effect	createSpawnPoints()
-	 * @effect	createWalkables()
 	 * @effect	setModelListener(modelListener)
 	 * @effect	setTimeTillCaveIn(0)
+	 * @throws	ModelException
+	 * 			If one of the cubes is not the typeInt of a CubeType.
 	 */
-	public World(int[][][] terrainTypes, TerrainChangeListener modelListener) {
-		int sizeX = terrainTypes.length;
-		int sizeY = terrainTypes[0].length;
-		int sizeZ = terrainTypes[0][0].length;
+	private World(int sizeX, int sizeY, int sizeZ, byte[] cubes, TerrainChangeListener modelListener) 
+			throws ModelException {
+		this.sizeX = sizeX;
+		this.sizeY = sizeY;
+		this.sizeZ = sizeZ;
+		sizeXY = sizeX * sizeY;
+		this.cubes = cubes;
+		for (byte cube : cubes) {
+			if (CubeType.fromTypeInt(cube) == null)
+				throw new ModelException("Invalid terrain type: " + cube);
+		}
 		
-		factions = new HashSet<Faction>();
-		carryables = new HashSet<Carryable>();
+		random = new SplittableRandom();
+		factions = new LinkedHashSet<Faction>();
+		carryables = new LinkedHashSet<Carryable>();
+		fallingCarryables = new LinkedHashSet<Carryable>();
+		unitRegistry = new UnitRegistry();
+		unitGrid = new SpatialGrid<Unit>(sizeX, sizeY, sizeZ, 1);
+		carryableGrid = new SpatialGrid<Carryable>(sizeX, sizeY, sizeZ, 1);
+		workshopGrid = new SpatialGrid<Integer>(sizeX, sizeY, sizeZ, WORKSHOP_CELL_SIZE);
+		for (int index = 0; index < cubes.length; index++) {
+			if (getCubeAt(index) == CubeType.WORKSHOP)
+				workshopGrid.put(index, getX(index), getY(index), getZ(index));
+		}
 		
 		connected = new ConnectedToBorder(sizeX, sizeY, sizeZ);
-
-		cubes = new CubeType[sizeX][sizeY][sizeZ];
-		for (int x = 0; x < sizeX; x++) {
-			for (int y = 0; y < sizeY; y++) {
-				for (int z = 0; z < sizeZ; z++) {
-					for (CubeType checkType : CubeType.values()) {
-						if (checkType.getTypeInt() == terrainTypes[x][y][z]) {
-							cubes[x][y][z] = checkType;
-							break;
-						}
-					}
-					if (!cubes[x][y][z].isSolid())
-						connected.changeSolidToPassable(x, y, z);
-				}
-			}
+		caveIns = new IndexSet(cubes.length);
+		int[] passables = new int[cubes.length];
+		int nbPassables = 0;
+		for (int index = 0; index < cubes.length; index++) {
+			if (!getCubeAt(index).isSolid())
+				passables[nbPassables++] = index;
 		}
+		connected.changeAll(passables, nbPassables, NO_CUBES, 0, caveIns);
 		
-		walkables = new ArrayList<int[]>();
-		edgeMap = new HashMap<int[], Set<int[]>>();
-		createWalkables();
+		walkableGraph = new WalkableGraph(this);
+		pathFinder = new PathFinder(this);
+		walkableGraph.addListener(this::resetBrokenPaths);
 		
-		spawnPoints = new ArrayList<int[]>();
+		spawnPoints = new IndexSet(sizeX * sizeY * sizeZ);
 		createSpawnPoints();
 		
-		cubesToRemove = new HashSet<int[]>();
+		cubesToRemove = new IndexSet(cubes.length);
+		alarms = new TimerWheel<Unit>(ALARM_RESOLUTION, 0);
 		
 		setModelListener(modelListener);
 		
 		setTimeTillCaveIn(0);
 	}
 	
+	/**
+	 * Returns the given terrainTypes as a flat array, the cube (x, y, z) at index x + y*sizeX + z*sizeX*sizeY.
+	 * @throws	ModelException
+	 * 			If one of the terrainTypes is not the typeInt of a CubeType.
+	 */
+	private static byte[] flatten(int[][][] terrainTypes) throws ModelException {
+		int sizeX = terrainTypes.length;
+		int sizeXY = sizeX * terrainTypes[0].length;
+		byte[] cubes = new byte[sizeXY * terrainTypes[0][0].length];
+		for (int x = 0; x < sizeX; x++) {
+			for (int y = 0; y < terrainTypes[x].length; y++) {
+				int[] column = terrainTypes[x][y];
+				for (int z = 0, index = x + y * sizeX; z < column.length; z++, index += sizeXY) {
+					if (CubeType.fromTypeInt(column[z]) == null)
+						throw new ModelException("Invalid terrain type: " + column[z]);
+					cubes[index] = (byte) column[z];
+				}
+			}
+		}
+		return cubes;
+	}
+	
+	/**
+	 * Returns the first nbCubes bytes of the given terrain, without changing its position.
+	 * @throws	ModelException
+	 * 			If the terrain holds less than nbCubes bytes.
+	 */
+	private static byte[] read(ByteBuffer terrain, int nbCubes) throws ModelException {
+		if (terrain.remaining() < nbCubes)
+			throw new ModelException("The terrain holds " + terrain.remaining() + " cubes instead of " + nbCubes);
+		byte[] cubes = new byte[nbCubes];
+		terrain.duplicate().get(cubes);
+		return cubes;
+	}
+	
 	/**
 	 * Advances the time for this world with the given deltaT.
 	 * @param deltaT
 	 * @post	timeTillCaveIn += deltaT
-	 * @effect	If the timeTillCaveIn is greater than 5.0d set timeTillCaveIn equal to 0 and call checkAllConnected()
-	 * @effect	For faction in factions do faction.advanceTime(deltaT)
-	 * @effect	For carryable in carryables do carryable.advanceTime(deltaT)
+	 * @effect	If the timeTillCaveIn is greater than 5.0d set timeTillCaveIn equal to 0 and call caveIn()
+	 * @effect	The units whose alarm goes off before the end of this tick wake up.
+	 * 			| for unit with unit.isAsleep() and alarm of unit <= getTime() + deltaT do
+	 * 			|	unit.alarmGoesOff()
+	 * @effect	For faction in factions do faction.advanceTime(deltaT), which ticks the units that are not detailed
+	 * 			only once every getCoarseStep().
+	 * @post	new.getTime() == getTime() + deltaT
+	 * @effect	For carryable in fallingCarryables do carryable.advanceTime(deltaT); the carryables that rest on a 
+	 * 			solid cube cost nothing.
+	 * @post	The carryables that are no longer falling are removed from fallingCarryables.
 	 * @effect	For faction in factinos do faction.checkTerminated()
-	 * @post	Remove the terminated or picked up carryables from the carryable list.
+	 * @post	Remove the terminated or picked up carryables from the carryable list, if any left this tick.
 	 * @throws ModelException
 	 * 			If the given deltaT is out of bounds, throw a ModelException
 	 */
@@ -120,14 +316,30 @@ public class World {
 			throw new ModelException("DeltaT is out of bounds: " + Double.toString(deltaT));
 		
 		timeTillCaveIn += deltaT;
+		long time = profile == null ? 0 : System.nanoTime();
+		tickEnd = this.time + deltaT;
 		
 		//Updating units and carryables.
+		if (pathRequests != null)
+			prefetchPaths(deltaT);
+		time = lap(TickProfile.Phase.PATHS, time);
+		alarms.advance(this.time + deltaT, Unit::alarmGoesOff);
 		for (Faction faction : factions) {
 			faction.advanceTime(deltaT);
 		}
-		for (Carryable carryable : carryables){
-			carryable.advanceTime(deltaT);
+		this.time = tickEnd;
+		if (pathRequests != null)
+			pathRequests.clear();
+		time = lap(TickProfile.Phase.UNITS, time);
+		Iterator<Carryable> falling = fallingCarryables.iterator();
+		while (falling.hasNext()) {
+			Carryable carryable = falling.next();
+			if (!carryable.isTerminated() && !carryable.isPickedUp())
+				carryable.advanceTime(deltaT);
+			if (carryable.isTerminated() || carryable.isPickedUp() || !carryable.isFalling())
+				falling.remove();
 		}
+		time = lap(TickProfile.Phase.CARRYABLES, time);
 		//Checking for terminated units and carryables.
 		Iterator<Faction> factionIterator = this.getFactions().iterator();
 		while (factionIterator.hasNext()) {
@@ -137,44 +349,59 @@ public class World {
 				factionIterator.remove();
 		}
 		
-		Iterator<Carryable> iterator = carryables.iterator();
-		while (iterator.hasNext()) {
-			Carryable carryable = iterator.next();
-			if (carryable.isTerminated() || carryable.isPickedUp())
-				iterator.remove();
+		if (carryablesLeft) {
+			Iterator<Carryable> iterator = carryables.iterator();
+			while (iterator.hasNext()) {
+				Carryable carryable = iterator.next();
+				if (carryable.isTerminated() || carryable.isPickedUp())
+					iterator.remove();
+			}
+			carryablesLeft = false;
 		}
+		time = lap(TickProfile.Phase.CLEANUP, time);
 		//Updating the gameworld.
 		if (!cubesToRemove.isEmpty()) {
 			removeCubes();
 			cubesToRemove.clear();
 		}
 		if (timeTillCaveIn >= 5.0d) {
-			checkAllConnected();
+			caveIn();
 			timeTillCaveIn = 0.0d;
 		}
+		lap(TickProfile.Phase.TERRAIN, time);
+		if (profile != null)
+			profile.addTick();
 	}
 	
 	/**
-	 * Checks which cubes should collapse.
-	 * @effect	removedCubes is a new Set<int[]>
-	 * 			for x, y, z from 0, 0, 0 to sizeX, sizeY, sizeZ do
-	 * 				if !isConnected(x, y, z) and getCube(x, y, z).isSolid() then
-	 * 					removeCube(x, y, z)
-	 * 			if removedCubes is not empty then call cubeRemoved with parameter removedCubes.
-	 */
-	private void checkAllConnected() {
-		for (int x = 0; x < this.getSizeX(); x++) {
-			for (int y = 0; y < this.getSizeY(); y++) {
-				for (int z = 0; z < this.getSizeZ(); z++) {
-					try {
-						if (!isConnected(x, y, z) && this.getCube(x, y, z).isSolid()) {
-							removeCube(x, y, z);
-						}
-					} catch (ModelException e) {
-					}
-				}
-			}
+	 * Adds the time since the given time to the given phase of the profile of this world, if it has one.
+	 * @return	The current time, or 0 if this world has no profile.
+	 */
+	private long lap(TickProfile.Phase phase, long time) {
+		if (profile == null)
+			return 0;
+		long now = System.nanoTime();
+		profile.add(phase, now - time);
+		return now;
+	}
+	
+	/**
+	 * Makes the queued cubes that are still solid and not connected to the border collapse.
+	 * @effect	for c in caveIns do
+	 * 				if isSolidAt(c) and !isConnected(c) then
+	 * 					removeCube(c)
+	 * @post	caveIns is empty.
+	 */
+	private void caveIn() {
+		for (int i = 0; i < caveIns.size(); i++) {
+			int index = caveIns.get(i);
+			int x = getX(index);
+			int y = getY(index);
+			int z = getZ(index);
+			if (isSolidAt(x, y, z) && !isConnected(x, y, z))
+				removeCube(x, y, z);
 		}
+		caveIns.clear();
 	}
 	
 	/**
@@ -182,75 +409,133 @@ public class World {
 	 * @param x
 	 * @param y
 	 * @param z
-	 * @post	cubesToRemove.add(new int[]{x, y, z})
+	 * @post	cubesToRemove.contains(getIndex(x, y, z))
 	 */
 	public void removeCube(int x, int y,int z){
-		cubesToRemove.add(new int[]{x, y, z});
+		cubesToRemove.add(getIndex(x, y, z));
 	}
 	
 	/**
 	 * Remove the cubes in cubesToRemove from the game world.
 	 * @param removedCubes
 	 * 
-	 * @effect	Iterate over the cubes in cubesToRemove and remove them. With a 0.25 chance create a
+	 * @effect	Iterate over the solid cubes in cubesToRemove and remove them. With a 0.25 chance create a
 	 * 			log or a boulder at the cube's position (depending on the cubeType).
-	 * 			| for int[] c in cubesToRemove
-	 * 			|	r = random.nextDouble()
+	 * 			| for index in cubesToRemove with c = {getX(index), getY(index), getZ(index)} and isSolidAt(c[0], c[1], c[2])
+	 * 			|	r = getRandom().nextDouble()
 	 * 			|	if CubeType of c is WOOD and r < 0.25 then
 	 * 			|		spawnCarryable(c[0], c[1], c[2], CubeType.WOOD)
 	 * 			|	if CubeType of c is ROCK and r < 0.25 then
 	 * 			|		spawnCarryable(c[0], c[1], c[2], CubeType.ROCK)
-	 * 			|	cubes[c[0]][c[1]][c[2]] = CubeType.AIR;
+	 * 			|	cubes[getIndex(c[0], c[1], c[2])] = CubeType.AIR.getTypeInt();
 	 *			|	modelListener.notifyTerrainChanged(c[0], c[1], c[2]);
-	 *			|	connected.changeSolidToPassable(c[0], c[1], c[2]);
-	 * @effect	Recreate the walkables.
-	 *			| createWalkables()
-	 * @effect	Recreate the spawnPoints.
-	 * 			| createSpawnPoints()
-	 * @effect	Reset the path of the walking units.
-	 * 			| for unit in getUnits() do
-	 * 			|	if unit.getState() == State.WALKING then
-	 * 			|		unit.setResetPath(true)
+	 * @effect	Make all removed cubes passable at once in connected, and queue the cubes that lost their connection 
+	 * 			to the border to cave in.
+	 * 			| connected.changeAll(removed cubes, caveIns)
+	 * @effect	Update the walkable graph around the removed cubes, which resets the paths that are no longer walkable.
+	 *			| getWalkableGraph().update(removed cubes)
+	 * @effect	Update the spawnPoints at and above the removed cubes.
+	 * 			| updateSpawnPoints(removed cubes)
+	 * @effect	Wake up the sleeping units in and around the removed cubes, which may have to fall.
+	 * 			| for c in removed cubes do wakeUnitsAround(c)
 	 */
 	private void removeCubes() {
-		Random rand = new Random();
 		double carryableSpawnChance = 0.25;
-		for (int[] c : cubesToRemove) {
-			double r = rand.nextDouble();
-			try {
-				if (this.getCube(c[0], c[1], c[2]) == CubeType.WOOD && r < carryableSpawnChance)
-					spawnCarryable(c[0], c[1], c[2], CubeType.WOOD);
-				else if (this.getCube(c[0], c[1], c[2]) == CubeType.ROCK && r < carryableSpawnChance)
-					spawnCarryable(c[0], c[1], c[2], CubeType.ROCK);
-			} catch (ModelException e) {
-			}
-			cubes[c[0]][c[1]][c[2]] = CubeType.AIR;
-			modelListener.notifyTerrainChanged(c[0], c[1], c[2]);
-			connected.changeSolidToPassable(c[0], c[1], c[2]);
+		int[] removed = new int[cubesToRemove.size()];
+		int nbRemoved = 0;
+		for (int i = 0; i < cubesToRemove.size(); i++) {
+			// Cubes in cubesToRemove can already be passable.
+			int index = cubesToRemove.get(i);
+			CubeType type = getCubeAt(index);
+			if (!type.isSolid())
+				continue;
+			int x = getX(index), y = getY(index), z = getZ(index);
+			double r = random.nextDouble();
+			if (type == CubeType.WOOD && r < carryableSpawnChance)
+				spawnCarryable(x, y, z, CubeType.WOOD);
+			else if (type == CubeType.ROCK && r < carryableSpawnChance)
+				spawnCarryable(x, y, z, CubeType.ROCK);
+			setCubeAt(index, CubeType.AIR);
+			modelListener.notifyTerrainChanged(x, y, z);
+			removed[nbRemoved++] = index;
 		}
 		
-		createWalkables();
-	 	createSpawnPoints();
-		for (Unit unit : getUnits()) {
-			if (unit.getState() == State.WALKING) {
+		connected.changeAll(removed, nbRemoved, NO_CUBES, 0, caveIns);
+		walkableGraph.update(removed, nbRemoved);
+		updateSpawnPoints(removed, nbRemoved);
+		for (int i = 0; i < nbRemoved && alarms.size() > 0; i++)
+			wakeUnitsAround(removed[i]);
+		for (int i = 0; i < nbRemoved; i++) {
+			int x = getX(removed[i]), y = getY(removed[i]), z = getZ(removed[i]);
+			fallingCarryables.addAll(getCarryablesInBox(x, y, z + 1, x + 1, y + 1, z + 2));
+		}
+	}
+	
+	/**
+	 * Wakes up the sleeping units in the given cube and its neighbours.
+	 * @effect	| for unit in getUnitsInBox(x - 1, y - 1, z - 1, x + 2, y + 2, z + 2) do
+	 * 			|	unit.wake()
+	 */
+	private void wakeUnitsAround(int index) {
+		int x = getX(index), y = getY(index), z = getZ(index);
+		for (Unit unit : getUnitsInBox(x - 1, y - 1, z - 1, x + 2, y + 2, z + 2))
+			unit.wake();
+	}
+	
+	/**
+	 * Sets an alarm for the given sleeping unit at the given time.
+	 * @return	The alarm, through which it can be cancelled.
+	 */
+	TimerWheel.Timer<Unit> setAlarm(Unit unit, double time) {
+		return alarms.schedule(unit, time);
+	}
+	
+	/**
+	 * Cancels the given alarm of a unit that wakes up early.
+	 */
+	void cancelAlarm(TimerWheel.Timer<Unit> alarm) {
+		alarms.cancel(alarm);
+	}
+	
+	/**
+	 * Returns the number of units in this world that are asleep.
+	 */
+	public int getNbSleepingUnits() {
+		return alarms.size();
+	}
+	
+	/**
+	 * Resets the path of every walking unit whose path contains a cube that is no longer walkable.
+	 * Called by the walkable graph with the cubes whose walkability changed.
+	 * 
+	 * @effect	| if for some i in 0..nbCubes-1: not graph.isWalkable(cubes[i]) then
+	 * 			|	for unit in getUnitRegistry() do
+	 * 			|		if unit.getState() == State.WALKING and not isPathWalkable(unit) then
+	 * 			|			unit.setResetPath(true)
+	 */
+	private void resetBrokenPaths(WalkableGraph graph, int[] cubes, int nbCubes) {
+		boolean lostWalkable = false;
+		for (int i = 0; i < nbCubes && !lostWalkable; i++)
+			lostWalkable = !graph.isWalkable(cubes[i]);
+		// Cubes that became walkable do not break any path.
+		if (!lostWalkable)
+			return;
+		for (int i = 0; i < unitRegistry.size(); i++) {
+			Unit unit = unitRegistry.get(i);
+			if (unit.getState() == State.WALKING && !isPathWalkable(unit))
 				unit.setResetPath(true);
-				//List<int[]> pathToEndGoal = unit.getPathToEndGoal();
-				/*removeloop : for (int[] rCube : cubesToRemove) {
-					for (int[] pathCube : pathToEndGoal) {
-						if (pathCube.equals(rCube)) {
-							System.out.println("resetting some path");
-							int[] endGoal = unit.getEndGoal().toIntArray();
-							try {
-								unit.moveTo(endGoal[0], endGoal[1], endGoal[2]);
-							} catch (ModelException e) {
-							}
-							break removeloop;
-						}
-					}
-				}*/
-			}
 		}
 	}
+	
+	/**
+	 * Returns true iff the current goal and all cubes on the path to the end goal of the given unit are walkable.
+	 */
+	private boolean isPathWalkable(Unit unit) {
+		int[] goal = unit.getCurrentGoal().toIntArray();
+		if (!walkableGraph.isWalkable(getIndex(goal[0], goal[1], goal[2])))
+			return false;
+		return unit.isPathToEndGoalWalkable(walkableGraph);
+	}
 
 	/**
 	 * Spawns a carryable at the given location of the given type.
@@ -260,14 +545,16 @@ public class World {
 	 * @param type
 	 * @effect	if type == WOOD then spawn a log and add it to the carryables.
 	 * 			if type == ROCK then spawn a boulder and add it to the carryables.
+	 * 			The weight of the carryable is drawn from the random generator of this world.
 	 */
 	private void spawnCarryable(int x, int y, int z, CubeType type){
+		int weight = random.nextInt(Carryable.MIN_WEIGHT, Carryable.MAX_WEIGHT + 1);
 		if (type == CubeType.WOOD) {
-			Log c = new Log(new Vector(x,y,z)); 
+			Log c = new Log(new Vector(x,y,z), weight); 
 			addCarryable(c);
 		}
 		else if (type == CubeType.ROCK) {
-			Boulder c = new Boulder(new Vector(x,y,z));
+			Boulder c = new Boulder(new Vector(x,y,z), weight);
 			addCarryable(c);
 		}
 	}
@@ -276,95 +563,72 @@ public class World {
 	 * Adds a carryable to the carryables.
 	 * @param carryable
 	 * @post	carryables contains the given carryable.
+	 * @post	fallingCarryables contains the given carryable, until its next tick shows whether it lies on a solid 
+	 * 			cube.
 	 * @effect	Set the world of the given carryable equal to this.
 	 */
 	public void addCarryable(Carryable carryable){
 		carryables.add(carryable);
+		fallingCarryables.add(carryable);
 		carryable.setWorld(this);
 	}
 	
+	/**
+	 * Returns the number of carryables in this world that may fall, and are therefore ticked.
+	 */
+	public int getNbFallingCarryables() {
+		return fallingCarryables.size();
+	}
+	
 	/**
 	 * Create possible spawnPoints for units.
 	 * 
-	 * @effect	for x, y, z from 0, 0, 1 to sizeX, sizeY, sizeZ do
-	 * 				if cubes[x][y][0] is passable then add {x, y, 0} to spawnPoints.
-	 * 				if cubes[x][y][z] is passable and cubes[x][y][z-1] is solid then
-	 * 					add {x, y, z} to spawnPoints.
+	 * @effect	for x, y, z from 0, 0, 0 to sizeX, sizeY, sizeZ do
+	 * 				if isSpawnPoint(x, y, z) then add getIndex(x, y, z) to spawnPoints.
 	 */
 	private void createSpawnPoints() {
 		spawnPoints.clear();
-		for (int x = 0; x < this.getSizeX(); x++) {
-			for (int y = 0; y < this.getSizeY(); y++) {
-				if (!cubes[x][y][0].isSolid())
-					spawnPoints.add(new int[]{x, y, 0});
-				for (int z = 1; z < this.getSizeZ(); z++) {
-					if (!cubes[x][y][z].isSolid() && cubes[x][y][z-1].isSolid())
-						spawnPoints.add(new int[]{x, y, z});
+		byte[] column = new byte[sizeZ];
+		for (int x = 0; x < sizeX; x++) {
+			for (int y = 0; y < sizeY; y++) {
+				getColumn(x, y, column);
+				boolean solidBelow = true;
+				for (int z = 0; z < sizeZ; z++) {
+					boolean solid = CubeType.fromTypeInt(column[z]).isSolid();
+					if (!solid && solidBelow)
+						spawnPoints.add(getIndex(x, y, z));
+					solidBelow = solid;
 				}
 			}
 		}
 	}
 	
 	/**
-	 * Create the walkable cubes and the edgeMap for this world.
+	 * Updates the spawnPoints after the solidity of the given cubes changed.
+	 * Only a changed cube and the cube right above it can change from or to a spawnPoint.
 	 * 
-	 * @post for x, y, z from 0, 0, 0 to sizeX, sizeY, sizeZ do
-	 * 			if the cube on x, y, z is walkable then
-	 * 				add the int array {x, y, z} to walkables.
-	 * @post for cube1 in walkables do
-	 * 			addSet is a new Set<int[]>
-	 * 			for cube2 in walkables do
-	 * 				if |cube1[0] - cube2[0]| <= 1 and |cube1[1] - cube2[1]| <= 1 and |cube1[2] - cube2[2]| <= 1 then
-	 * 					add cube2 to the addSet
-	 *			edgeMap.put(cube1, addSet)
-	 */
-	private void createWalkables() {
-		walkables.clear();
-		for (int x = 0; x < this.getSizeX(); x++) {
-			for (int y = 0; y < this.getSizeY(); y++) {
-				for (int z = 0; z < this.getSizeZ(); z++) {
-					if (isWalkable(new int[]{x, y, z}))
-						walkables.add(new int[]{x, y, z});
-				}
-			}
-		}
-		
-		Iterator<int[]> ite1 = walkables.iterator();
-		while (ite1.hasNext()) {
-			int[] cube1 = ite1.next();
-			Set<int[]> addSet = new HashSet<int[]>();
-			Iterator<int[]> ite2 = walkables.iterator();
-			while (ite2.hasNext()) {
-				int[] cube2 = ite2.next();
-				if (Math.abs(cube1[0] - cube2[0]) <= 1 && Math.abs(cube1[1] - cube2[1]) <= 1 &&
-						Math.abs(cube1[2] - cube2[2]) <= 1) {
-					addSet.add(cube2);
-				}
+	 * @effect	for c in the first nbCubes of cubes, and the cube above every such c do
+	 * 				if isSpawnPoint(c) then add c to spawnPoints else remove c from spawnPoints.
+	 */
+	private void updateSpawnPoints(int[] cubes, int nbCubes) {
+		for (int i = 0; i < nbCubes; i++) {
+			int x = getX(cubes[i]);
+			int y = getY(cubes[i]);
+			int z = getZ(cubes[i]);
+			for (int nz = z; nz <= Math.min(z + 1, sizeZ - 1); nz++) {
+				if (isSpawnPoint(x, y, nz))
+					spawnPoints.add(getIndex(x, y, nz));
+				else
+					spawnPoints.remove(getIndex(x, y, nz));
 			}
-			edgeMap.put(cube1, addSet);
 		}
 	}
 	
 	/**
-	 * Returns all cubes of the given type in this world.
-	 * @param type
-	 * @return
+	 * Returns true iff the given cube is passable and lies on the bottom of the world or on a solid cube.
 	 */
-	public Set<int[]> getCubesOfType(CubeType type) {
-		Set<int[]> result = new HashSet<int[]>();
-		for (int x = 0; x < this.getSizeX(); x++) {
-			for (int y = 0; y < this.getSizeY(); y++) {
-				for (int z = 0; z < this.getSizeZ(); z++) {
-					try {
-						if (this.getCube(x, y, z) == type)
-							result.add(new int[]{x, y, z});
-					} catch (ModelException e) {
-						e.printStackTrace();
-					}
-				}
-			}
-		}
-		return result;
+	private boolean isSpawnPoint(int x, int y, int z) {
+		return !isSolidAt(x, y, z) && (z == 0 || isSolidAt(x, y, z-1));
 	}
 	
 	/**
@@ -403,13 +667,7 @@ public class World {
 	 * @return
 	 */
 	public Carryable getCarryableAt(int x, int y, int z){
-		for (Carryable carryable : this.getCarryables()) {
-			int[] carPos = carryable.getPosition().toIntArray();
-			if (x == carPos[0] && y == carPos[1] && z == carPos[2]) {
-				return carryable;
-			}
-		}
-		return null;
+		return carryableGrid.findInCube(x, y, z, null);
 	}
 	
 	/**
@@ -421,13 +679,110 @@ public class World {
 	 * @return
 	 */
 	public Carryable getCarryableAtPositionOfType(int x, int y, int z, CarryableType carryabletype){
-		for (Carryable carryable : this.getCarryables()) {
-			int[] carryablePosition = carryable.getPosition().toIntArray();
-			if (carryablePosition[0] == x && carryablePosition[1] == y && carryablePosition[2] == z
-					&& carryable.getCarryableType() == carryabletype)
-				return carryable;
-		}
-		return null;					
+		return carryableGrid.findInCube(x, y, z, carryable -> carryable.getCarryableType() == carryabletype);
+	}
+	
+	/**
+	 * Returns the cube of the log lying in this world nearest to the given position, packed as in PackedCube, or
+	 * PackedCube.NONE if there is none.
+	 */
+	public long getNearestLog(Vector position) {
+		return getNearestCarryable(position, CarryableType.LOG);
+	}
+	
+	/**
+	 * Returns the cube of the boulder lying in this world nearest to the given position, packed as in PackedCube, 
+	 * or PackedCube.NONE if there is none.
+	 */
+	public long getNearestBoulder(Vector position) {
+		return getNearestCarryable(position, CarryableType.BOULDER);
+	}
+	
+	private long getNearestCarryable(Vector position, CarryableType type) {
+		Carryable nearest = carryableGrid.findNearest(position.getX(), position.getY(), position.getZ(),
+				carryable -> carryable.getCarryableType() == type);
+		if (nearest == null)
+			return PackedCube.NONE;
+		Vector cube = nearest.getPosition();
+		return PackedCube.pack((int) cube.getX(), (int) cube.getY(), (int) cube.getZ());
+	}
+	
+	/**
+	 * Returns the cube of the workshop in this world nearest to the given position, packed as in PackedCube, or 
+	 * PackedCube.NONE if there is none.
+	 * The distance to a workshop is measured to the corner (x, y, z) of its cube.
+	 */
+	public long getNearestWorkshop(Vector position) {
+		Integer nearest = workshopGrid.findNearest(position.getX(), position.getY(), position.getZ(), null);
+		return nearest == null ? PackedCube.NONE : PackedCube.pack(getX(nearest), getY(nearest), getZ(nearest));
+	}
+	
+	/**
+	 * Returns the units of this world whose position lies in the box [minX, maxX) x [minY, maxY) x [minZ, maxZ).
+	 */
+	public Set<Unit> getUnitsInBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		return unitGrid.getInBox(minX, minY, minZ, maxX, maxY, maxZ, new LinkedHashSet<Unit>());
+	}
+	
+	/**
+	 * Returns the units of this world whose position lies at a distance of at most radius from the given position.
+	 */
+	public Set<Unit> getUnitsInRadius(Vector position, double radius) {
+		return unitGrid.getInRadius(position.getX(), position.getY(), position.getZ(), radius, 
+				new LinkedHashSet<Unit>());
+	}
+	
+	/**
+	 * Returns the carryables lying in this world whose position lies in the box 
+	 * [minX, maxX) x [minY, maxY) x [minZ, maxZ).
+	 */
+	public Set<Carryable> getCarryablesInBox(double minX, double minY, double minZ, double maxX, double maxY,
+			double maxZ) {
+		return carryableGrid.getInBox(minX, minY, minZ, maxX, maxY, maxZ, new LinkedHashSet<Carryable>());
+	}
+	
+	/**
+	 * Returns the carryables lying in this world whose position lies at a distance of at most radius from the
+	 * given position.
+	 */
+	public Set<Carryable> getCarryablesInRadius(Vector position, double radius) {
+		return carryableGrid.getInRadius(position.getX(), position.getY(), position.getZ(), radius, 
+				new LinkedHashSet<Carryable>());
+	}
+	
+	/**
+	 * Indexes the given unit at the given position, which is its current position.
+	 * @post	The given unit is found by the queries of this world at its current position.
+	 */
+	void updateIndex(Unit unit, double x, double y, double z) {
+		unitGrid.put(unit, x, y, z);
+	}
+	
+	/**
+	 * Indexes the given carryable at its current position.
+	 * @post	The given carryable is found by the queries of this world at its current position.
+	 */
+	void updateIndex(Carryable carryable) {
+		Vector position = carryable.getPosition();
+		carryableGrid.put(carryable, position.getX(), position.getY(), position.getZ());
+	}
+	
+	/**
+	 * Removes the given unit from the index of this world.
+	 * @post	The given unit is no longer found by the queries of this world.
+	 */
+	void removeFromIndex(Unit unit) {
+		unitGrid.remove(unit);
+	}
+	
+	/**
+	 * Removes the given carryable from the index of this world, because it was picked up or terminated.
+	 * @post	The given carryable is no longer found by the queries of this world.
+	 * @post	The given carryable is removed from the carryables at the end of the current tick.
+	 */
+	void removeFromIndex(Carryable carryable) {
+		carryableGrid.remove(carryable);
+		carryablesLeft = true;
 	}
 	
 	/**
@@ -449,7 +804,7 @@ public class World {
 	 * @post	if the max number of factions is reached add the unit to the faction with the least members.
 	 */
 	public void addUnit(Unit unit){
-		if (this.getUnits().size() >= MAX_UNITS_PER_WORLD)
+		if (unitRegistry.size() >= MAX_UNITS_PER_WORLD)
 			return;
 		if (factions.size() < MAX_FACTIONS) {
 			Faction fac = new Faction(this);
@@ -473,14 +828,14 @@ public class World {
 	 * Spawns a new unit in this world and returns it.
 	 * @param enableDefaultBehavior
 	 * @effect	Creates a random unit on a random cube from spawnPoints and call addUnit to add this unit.
+	 * 			Everything random is drawn from the random generator of this world.
 	 * @return
 	 */
 	public Unit spawnUnit(boolean enableDefaultBehavior) {
-		Random rand = new Random();
+		SplittableRandom rand = random;
 		try {
-			int index = rand.nextInt(spawnPoints.size());
-			int[] spawnPosition = spawnPoints.get(index);
-			Unit unit = new Unit(spawnPosition[0], spawnPosition[1], spawnPosition[2],  
+			int spawnPoint = spawnPoints.get(rand.nextInt(spawnPoints.size()));
+			Unit unit = new Unit(getX(spawnPoint), getY(spawnPoint), getZ(spawnPoint),
 					FIRST_NAMES[rand.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[rand.nextInt(LAST_NAMES.length)],
 					rand.nextInt(75) + 25, rand.nextInt(75) + 25,
 					rand.nextInt(75) + 25, rand.nextInt(75) + 25,
@@ -497,27 +852,134 @@ public class World {
 	 * Returns true iff the given position is walkable.
 	 */
 	public boolean isWalkable(int[] position) {
-		try {
-			CubeType cube = this.getCube(position[0], position[1], position[2]);
-			if (cube.isSolid()) 
-				return false;
-			if (position[2] == 0)
-				return true;
-			for (int x = position[0] - 1; x <= position[0] + 1; x++){
-				for (int y = position[1] - 1; y <= position[1] + 1; y++){
-					for (int z = position[2] - 1; z <= position[2] + 1; z++){
-						try {
-							CubeType cubeNeighbour = this.getCube(x, y, z);
-							if (cubeNeighbour.isSolid())
-								return true;
-						} catch (ModelException e) {
-						}
-					}
+		return isWalkable(position[0], position[1], position[2]);
+	}
+	
+	/**
+	 * Returns true iff the cube at the given coordinates is walkable.
+	 */
+	public boolean isWalkable(int x, int y, int z) {
+		if (!isInBounds(x, y, z))
+			return false;
+		return walkableGraph.isWalkable(getIndex(x, y, z));
+	}
+	
+	/**
+	 * Returns true iff the cube at the given coordinates lies on the bottom of this world, or it or one of
+	 * its neighbours is solid.
+	 * The x- and y-coordinates must lie inside this world, the z-coordinate may be one above it.
+	 */
+	public boolean hasSolidAround(int x, int y, int z) {
+		if (z == 0)
+			return true;
+		if (z == sizeZ) {
+			// Only the top layer of the block lies inside this world.
+			for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, sizeX - 1); nx++) {
+				for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, sizeY - 1); ny++) {
+					if (isSolidAt(nx, ny, z - 1))
+						return true;
 				}
 			}
-		} catch (ModelException e) {
+			return false;
 		}
-		return false;
+		return walkableGraph.hasSolidAround(getIndex(x, y, z));
+	}
+	
+	/**
+	 * Returns true iff the cube at the given coordinates is solid.
+	 * The coordinates are not checked, they must lie inside this world.
+	 */
+	public boolean isSolidAt(int x, int y, int z) {
+		return getCubeAt(getIndex(x, y, z)).isSolid();
+	}
+	
+	/**
+	 * Returns the cubetype of the cube at the given coordinates.
+	 * The coordinates are not checked, they must lie inside this world.
+	 */
+	public CubeType getCubeAt(int x, int y, int z) {
+		return getCubeAt(getIndex(x, y, z));
+	}
+	
+	/**
+	 * Returns the cubetype of the cube with the given flat index.
+	 * The index is not checked, it must lie in [0, sizeX*sizeY*sizeZ).
+	 */
+	public CubeType getCubeAt(int index) {
+		return CubeType.fromTypeInt(cubes[index]);
+	}
+	
+	/**
+	 * Sets the cube at the given flat index to the given type, and keeps the index of workshops up to date.
+	 */
+	private void setCubeAt(int index, CubeType type) {
+		if (getCubeAt(index) == CubeType.WORKSHOP)
+			workshopGrid.remove(index);
+		cubes[index] = (byte) type.getTypeInt();
+		if (type == CubeType.WORKSHOP)
+			workshopGrid.put(index, getX(index), getY(index), getZ(index));
+	}
+	
+	/**
+	 * Returns true iff the given coordinates lie inside this world.
+	 */
+	public boolean isInBounds(int x, int y, int z) {
+		return 0 <= x && x < sizeX && 0 <= y && y < sizeY && 0 <= z && z < sizeZ;
+	}
+	
+	/**
+	 * Returns the flat index of the cube at the given coordinates.
+	 * @return	| result == x + y * getSizeX() + z * getSizeX() * getSizeY()
+	 */
+	public int getIndex(int x, int y, int z) {
+		return x + y * sizeX + z * sizeXY;
+	}
+	
+	/**
+	 * Returns the x-coordinate of the cube with the given flat index.
+	 */
+	public int getX(int index) {
+		return index % sizeX;
+	}
+	
+	/**
+	 * Returns the y-coordinate of the cube with the given flat index.
+	 */
+	public int getY(int index) {
+		return (index / sizeX) % sizeY;
+	}
+	
+	/**
+	 * Returns the z-coordinate of the cube with the given flat index.
+	 */
+	public int getZ(int index) {
+		return index / sizeXY;
+	}
+	
+	/**
+	 * Copies the typeInts of the cubes (0, y, z) .. (sizeX-1, y, z) into the given buffer.
+	 * @param y
+	 * @param z
+	 * @param row
+	 * 			A buffer of at least getSizeX() bytes.
+	 * @pre		| 0 <= y < getSizeY() and 0 <= z < getSizeZ()
+	 */
+	public void getRow(int y, int z, byte[] row) {
+		System.arraycopy(cubes, getIndex(0, y, z), row, 0, sizeX);
+	}
+	
+	/**
+	 * Copies the typeInts of the cubes (x, y, 0) .. (x, y, sizeZ-1) into the given buffer.
+	 * @param x
+	 * @param y
+	 * @param column
+	 * 			A buffer of at least getSizeZ() bytes.
+	 * @pre		| 0 <= x < getSizeX() and 0 <= y < getSizeY()
+	 */
+	public void getColumn(int x, int y, byte[] column) {
+		int index = getIndex(x, y, 0);
+		for (int z = 0; z < sizeZ; z++, index += sizeXY)
+			column[z] = cubes[index];
 	}
 	
 	/**
@@ -534,15 +996,24 @@ public class World {
 	 * 			| else result == true
 	 */
 	public static boolean isValidPosition(Vector position, World world) {
+		return isValidPosition(position.getX(), position.getY(), position.getZ(), world);
+	}
+	
+	/**
+	 * Checks whether the position with the given coordinates is valid.
+	 * 
+	 * @return	| result == isValidPosition(new Vector(x, y, z), world)
+	 */
+	public static boolean isValidPosition(double x, double y, double z, World world) {
 		if (world != null) {
-			if (position.getX()<0 || position.getX() >= world.getSizeX())
+			if (x<0 || x >= world.getSizeX())
 				return false;
-			if (position.getY()<0 || position.getY() >= world.getSizeY())
+			if (y<0 || y >= world.getSizeY())
 				return false;
-			if (position.getZ()<0 || position.getZ() >= world.getSizeZ())
+			if (z<0 || z >= world.getSizeZ())
 				return false;
 		} else {
-			if (position.getX() < 0 || position.getY() < 0 || position.getZ() < 0)
+			if (x < 0 || y < 0 || z < 0)
 				return false;
 		}
 		return true;
@@ -558,8 +1029,8 @@ public class World {
 	 * 			If x, y, z are out of bounds.
 	 */
 	public CubeType getCube(int x, int y, int z) throws ModelException{
-		if (x < this.getSizeX() && y < this.getSizeY() && z < this.getSizeZ() && 0 <= x && 0 <= y && 0 <= z){
-			return cubes[x][y][z];
+		if (isInBounds(x, y, z)){
+			return getCubeAt(x, y, z);
 		}
 		else 
 			throw new ModelException("This cube does not have a valid position.");
@@ -571,7 +1042,7 @@ public class World {
 	 */
 	@Basic
 	public int getSizeX(){
-		return cubes.length;
+		return sizeX;
 	}
 	
 	/**
@@ -580,7 +1051,7 @@ public class World {
 	 */
 	@Basic
 	public int getSizeY(){
-		return cubes[0].length;
+		return sizeY;
 	}
 	
 	/**
@@ -589,7 +1060,7 @@ public class World {
 	 */
 	@Basic
 	public int getSizeZ(){
-		return cubes[0][0].length;
+		return sizeZ;
 	}
 	
 	/**
@@ -611,15 +1082,132 @@ public class World {
 	}
 	
 	/**
+	 * Returns a read-only view of the units of this world, backed by its unit registry. Its iterators fail once a
+	 * unit is added or removed, so callers outside the model take a copy.
+	 * @return	| getUnitRegistry().asSet()
+	 */
+	public Set<Unit> getUnits() {
+		return unitRegistry.asSet();
+	}
+	
+	/**
+	 * @return the registry of the units of this world
+	 */
+	@Basic
+	public UnitRegistry getUnitRegistry() {
+		return unitRegistry;
+	}
+	
+	/**
+	 * Registers the given unit in the unit registry of this world.
+	 * @effect	| getUnitRegistry().add(unit)
+	 * @effect	The given unit gets a random stream of its own, split off the random generator of this world.
+	 * 			| unit.setRandom(getRandom().split())
+	 */
+	void registerUnit(Unit unit) {
+		unitRegistry.add(unit);
+		unit.setRandom(random.split());
+	}
+	
+	/**
+	 * Removes the given unit from the unit registry of this world.
+	 * @effect	| getUnitRegistry().remove(unit)
+	 */
+	void unregisterUnit(Unit unit) {
+		unitRegistry.remove(unit);
+	}
+	
+	/**
+	 * Searches the paths that the units of this world are expected to search in this tick, on the prefetch pool.
+	 * @effect	| for unit in getUnitRegistry() with unit.getExpectedPathEnd(deltaT) >= 0 do
+	 * 			|	pathRequests.add(unit.getId(), getIndex(unit.getCubeX(), unit.getCubeY(), unit.getCubeZ()), 
+	 * 			|		unit.getExpectedPathEnd(deltaT))
+	 * 			| pathRequests.compute(prefetchPool)
+	 */
+	private void prefetchPaths(double deltaT) {
+		pathRequests.clear();
+		for (int i = 0; i < unitRegistry.size(); i++) {
+			Unit unit = unitRegistry.get(i);
+			int end = unit.getExpectedPathEnd(deltaT);
+			if (end >= 0)
+				pathRequests.add(unit.getId(), getIndex(unit.getCubeX(), unit.getCubeY(), unit.getCubeZ()), end);
+		}
+		pathRequests.compute(prefetchPool);
+	}
+	
+	/**
+	 * Returns a shortest path of walkable cubes for the given unit from start to end, as PathFinder.findPath does.
+	 * A path that was prefetched in this tick is used if there is one.
+	 */
+	int[] findPath(Unit unit, int[] start, int[] end) {
+		if (pathRequests != null) {
+			int[] path = pathRequests.take(unit, getIndex(start[0], start[1], start[2]), 
+					getIndex(end[0], end[1], end[2]));
+			if (path != PathRequests.NOT_PREPARED)
+				return path;
+		}
+		return pathFinder.findPath(start, end);
+	}
+	
+	/**
+	 * Returns true iff every tick of this world searches the expected paths of its units in advance.
+	 */
+	public boolean isPathPrefetchEnabled() {
+		return prefetchPool != null;
+	}
+	
+	/**
+	 * Makes every tick of this world search the expected paths of its units in advance on the common fork-join pool,
+	 * or stops doing so.
+	 * @effect	| setPathPrefetchPool(enabled ? ForkJoinPool.commonPool() : null)
+	 */
+	public void setPathPrefetchEnabled(boolean enabled) {
+		setPathPrefetchPool(enabled ? ForkJoinPool.commonPool() : null);
+	}
+	
+	/**
+	 * Returns the pool on which every tick searches the expected paths of the units in advance, or null.
+	 */
+	@Basic
+	public ForkJoinPool getPathPrefetchPool() {
+		return prefetchPool;
+	}
+	
+	/**
+	 * Makes every tick of this world start by searching the paths that its units are expected to search in this
+	 * tick, in parallel on the given pool, every thread with its own PathFinder.
 	 * 
-	 * @return
+	 * Only the path searches run in parallel. The units are still updated one by one on the calling thread, so every
+	 * change to the world, such as attacks, pickups and removed cubes, happens in the same order. A unit that
+	 * searches a path gets the prefetched one if it was prefetched for the same start and end. The walkable graph
+	 * does not change while the units are updated, so that is the path it would have found itself, and a tick has
+	 * the same result as without prefetching.
+	 * 
+	 * @param pool
+	 * 			The pool to use, or null to stop prefetching paths.
+	 * @post	| new.getPathPrefetchPool() == pool
+	 */
+	public void setPathPrefetchPool(ForkJoinPool pool) {
+		prefetchPool = pool;
+		pathRequests = pool == null ? null : new PathRequests(this);
+	}
+	
+	/**
+	 * Returns the profile to which every tick of this world adds the time spent in its phases, or null.
 	 */
 	@Basic
-	public Set<Unit> getUnits() {
-		Set<Unit> units = new HashSet<Unit>();
-		for (Faction faction : factions) 
-			units.addAll(faction.getUnits());
-		return units;
+	public TickProfile getProfile() {
+		return profile;
+	}
+	
+	/**
+	 * Makes every tick of this world add the time spent in its phases to the given profile.
+	 * @param profile
+	 * 			The profile to use, or null to stop timing ticks.
+	 * @post	| new.getProfile() == profile
+	 */
+	public void setProfile(TickProfile profile) {
+		this.profile = profile;
 	}
 	
 	/**
@@ -637,10 +1225,164 @@ public class World {
 	 * @param y
 	 * @param z
 	 * @return
+	 * @throws ModelException
+	 * 			If x, y, z are out of bounds.
+	 */
+	public int getTerrainType(int x, int y, int z) throws ModelException {
+		return getCube(x, y, z).getTypeInt();
+	}
+	
+	/**
+	 * Returns a copy of the typeInts of all cubes of this world, the cube (x, y, z) at index x + y*sizeX + z*sizeX*sizeY.
+	 */
+	byte[] copyTerrain() {
+		return cubes.clone();
+	}
+
+	/**
+	 * Returns the random generator of this world.
+	 */
+	@Basic
+	public SplittableRandom getRandom() {
+		return random;
+	}
+	
+	/**
+	 * Seeds the random generator of this world, so that a run from the same state with the same seed and the same
+	 * commands draws the same numbers.
+	 * @post	getRandom() is a new SplittableRandom(seed).
+	 * @effect	Every unit of this world gets a new stream split off the new generator, in the order of the unit registry.
+	 * 			| for unit in getUnitRegistry() do
+	 * 			|	unit.setRandom(getRandom().split())
+	 */
+	public void setSeed(long seed) {
+		random = new SplittableRandom(seed);
+		for (int i = 0; i < unitRegistry.size(); i++)
+			unitRegistry.get(i).setRandom(random.split());
+	}
+	
+	/**
+	 * Returns the in-game time this world has advanced so far.
+	 */
+	@Basic
+	public double getTime() {
+		return time;
+	}
+	
+	/**
+	 * Returns the time at which the current tick ends, or getTime() outside a tick.
+	 */
+	double getTickEnd() {
+		return tickEnd;
+	}
+	
+	/**
+	 * Returns the time between the ticks of a unit outside the detailed part of this world, or 0 if every unit is
+	 * ticked every tick.
+	 */
+	@Basic
+	public double getCoarseStep() {
+		return coarseStep;
+	}
+	
+	/**
+	 * Sets the time between the ticks of a unit outside the detailed part of this world. Such a unit is ticked once 
+	 * the ticks it skipped add up to this time, with their sum as deltaT.
+	 * @param coarseStep
+	 * 			The time between the coarse ticks, or 0 to tick every unit every tick.
+	 * @post	| new.getCoarseStep() == coarseStep
+	 * @throws	IllegalArgumentException
+	 * 			| coarseStep < 0 || coarseStep > MAX_COARSE_STEP
+	 * @throws	IllegalStateException
+	 * 			A journal cannot replay which units were ticked at the coarse step.
+	 * 			| coarseStep > 0 && isRecorded()
+	 */
+	public void setCoarseStep(double coarseStep) {
+		if (!(coarseStep >= 0 && coarseStep <= MAX_COARSE_STEP))
+			throw new IllegalArgumentException("The coarse step is out of bounds: " + coarseStep);
+		if (coarseStep > 0 && isRecorded())
+			throw new IllegalStateException("A recorded world cannot have a coarse step");
+		this.coarseStep = coarseStep;
+	}
+	
+	/**
+	 * Returns true iff this world is recorded by a journal that is not closed.
+	 */
+	public boolean isRecorded() {
+		return journal != null && !journal.isClosed();
+	}
+	
+	/**
+	 * Makes this world know the journal that records it.
+	 */
+	void setJournal(CommandJournal journal) {
+		this.journal = journal;
+	}
+	
+	/**
+	 * Makes the units in the given columns be ticked every tick, for instance because they are on screen.
+	 * @post	| for each unit in getUnitRegistry():
+	 * 			|	if minX <= unit.getCubeX() < maxX and minY <= unit.getCubeY() < maxY then
+	 * 			|		isDetailed(unit)
+	 */
+	public void setDetailRegion(int minX, int minY, int maxX, int maxY) {
+		detailRegion = new int[] {minX, minY, maxX, maxY};
+	}
+	
+	/**
+	 * Removes the region set by setDetailRegion.
+	 */
+	public void clearDetailRegion() {
+		detailRegion = null;
+	}
+	
+	/**
+	 * Makes the units within the detail distance of one of the given units be ticked every tick, for instance 
+	 * because the player selected them.
+	 * @post	| for each unit in getUnitRegistry():
+	 * 			|	if for some focus in units: unit.getPosition().subtract(focus.getPosition()).length()
+	 * 			|			<= getDetailDistance()
+	 * 			|	then isDetailed(unit)
+	 */
+	public void setFocusUnits(Collection<Unit> units) {
+		focusUnits = new HashSet<Unit>(units);
+	}
+	
+	/**
+	 * Returns the distance from a focus unit within which units are ticked every tick, in cubes.
 	 */
 	@Basic
-	public int getTerrainType(int x, int y, int z) {
-		return cubes[x][y][z].getTypeInt();
+	public double getDetailDistance() {
+		return detailDistance;
+	}
+	
+	/**
+	 * @post	| new.getDetailDistance() == detailDistance
+	 * @throws	IllegalArgumentException
+	 * 			| detailDistance < 0
+	 */
+	public void setDetailDistance(double detailDistance) {
+		if (!(detailDistance >= 0))
+			throw new IllegalArgumentException("The detail distance is negative: " + detailDistance);
+		this.detailDistance = detailDistance;
+	}
+	
+	/**
+	 * Returns true iff the given unit is ticked every tick: if this world has no coarse step, if the unit interacted 
+	 * with another unit lately, or if it lies in the detail region or near a focus unit.
+	 */
+	public boolean isDetailed(Unit unit) {
+		if (coarseStep == 0 || unit.isPromoted())
+			return true;
+		int x = unit.getCubeX(), y = unit.getCubeY();
+		int[] region = detailRegion;
+		if (region != null && region[0] <= x && x < region[2] && region[1] <= y && y < region[3])
+			return true;
+		for (Unit focus : focusUnits) {
+			if (!focus.isTerminated() && focus.distanceTo(unit) <= detailDistance)
+				return true;
+		}
+		return false;
 	}
 
 	/**
@@ -665,30 +1407,32 @@ public class World {
 	}
 
 	/**
-	 * @return the walkables
+	 * @return the walkableGraph
 	 */
-	public List<int[]> getWalkables() {
-		return walkables;
+	@Basic
+	public WalkableGraph getWalkableGraph() {
+		return walkableGraph;
 	}
 
 	/**
-	 * @return the edgeMap
+	 * @return the pathFinder
 	 */
-	public Map<int[], Set<int[]>> getEdgeMap() {
-		return edgeMap;
+	@Basic
+	public PathFinder getPathFinder() {
+		return pathFinder;
 	}
 
 	/**
-	 * @return the spawnPoints
+	 * @return the flat indices of the spawnPoints, as in the walkable graph
 	 */
-	public List<int[]> getSpawnPoints() {
+	public IndexSet getSpawnPoints() {
 		return spawnPoints;
 	}
 
 	/**
-	 * @return the cubesToRemove
+	 * @return the flat indices of the cubesToRemove, as in the walkable graph
 	 */
-	public Set<int[]> getCubesToRemove() {
+	public IndexSet getCubesToRemove() {
 		return cubesToRemove;
 	}
 }
@@ -8,6 +8,8 @@ import hillbillies.model.world.World;
 import hillbillies.model.world.Unit.State;
 import hillbillies.part2.listener.TerrainChangeListener;
 
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import ogp.framework.util.ModelException;
@@ -250,7 +252,8 @@ public class Facade implements IFacade {
 
 	@Override
 	public Set<Unit> getUnits(World world) throws ModelException {
-		return world.getUnits();
+		// a copy, so that callers never iterate the registry of the world while it changes
+		return Collections.unmodifiableSet(new LinkedHashSet<>(world.getUnits()));
 	}
 
 	@Override
@@ -7,11 +7,14 @@ public class Part2Options extends Part1Options {
 
 	public static final String SHOW_CUBE_ANCHORED = "show_anchored";
 	public static final String ONLY_PLAY_FIRST = "limit_factions";
+	public static final String LEVEL_OF_DETAIL = "level_of_detail";
 
 	public Part2Options() {
 		super();
 		addBooleanOption(SHOW_CUBE_ANCHORED, "Show whether cubes are anchored to the borders", false);
 		addBooleanOption(ONLY_PLAY_FIRST, "Only allow player to control first faction", true);
+		addBooleanOption(LEVEL_OF_DETAIL, "Simulate units that are off screen and far from the selection at a reduced rate",
+				false);
 	}
 
 	public Property<Boolean> showAnchored() {
@@ -22,4 +25,8 @@ public class Part2Options extends Part1Options {
 		return getBooleanValue(ONLY_PLAY_FIRST);
 	}
 
+	public Property<Boolean> levelOfDetail() {
+		return getBooleanValue(LEVEL_OF_DETAIL);
+	}
+
 }
@@ -6,12 +6,15 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.stream.Collectors;
 
 import hillbillies.common.internal.controller.GameController;
 import hillbillies.common.internal.inputmodes.InputMode;
 import hillbillies.common.internal.selection.Selection;
+import hillbillies.common.internal.ui.viewmodel.IViewModel;
 import hillbillies.model.world.Boulder;
 import hillbillies.model.world.Faction;
 import hillbillies.model.world.Log;
@@ -40,23 +43,51 @@ public class GameControllerPart2 extends GameController<IHillbilliesView2> imple
 
 		@Override
 		public void notifyTerrainChanged(int x, int y, int z) {
+			if (isSimulationThreaded()) {
+				try {
+					terrainChanges.add(new int[] { x, y, z, getFacade().getCubeType(world, x, y, z) });
+				} catch (ModelException e) {
+					handleError(e);
+				}
+				return;
+			}
 			for (TerrainChangeListener listener : new HashSet<>(listeners)) {
 				listener.notifyTerrainChanged(x, y, z);
 			}
 		}
 	};
 
+	/**
+	 * With a simulation thread, the view reads the terrain from this copy instead of the model. The cube (x, y, z)
+	 * is at index x + y*nbTilesX + z*nbTilesX*nbTilesY.
+	 */
+	private final byte[] terrain;
+	/**
+	 * The cubes {x, y, z, type} that changed on the simulation thread and have not been copied into terrain yet.
+	 */
+	private final Queue<int[]> terrainChanges = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * The columns {minX, minY, maxX, maxY} on screen, the maxima excluded, and the selected units. They are set on
+	 * the render thread and handed to the world by updateGame when they changed, if level of detail is enabled.
+	 */
+	private volatile int[] viewport;
+	private volatile Set<Unit> focusUnits = Collections.emptySet();
+	private volatile boolean detailChanged;
+
 	public GameControllerPart2(IFacade facade, Part2Options options, GameMap map) throws ModelException {
 		super(facade, options);
 		this.map = map;
 
 		int[][][] types = new int[map.getNbTilesX()][map.getNbTilesY()][map.getNbTilesZ()];
+		terrain = new byte[map.getNbTilesX() * map.getNbTilesY() * map.getNbTilesZ()];
 
 		for (int x = 0; x < types.length; x++) {
 			for (int y = 0; y < types[x].length; y++) {
 				for (int z = 0; z < types[x][y].length; z++) {
 					CubeType type = map.getTypeAt(x, y, z);
 					types[x][y][z] = type.getByteValue();
+					terrain[getTerrainIndex(x, y, z)] = type.getByteValue();
 				}
 			}
 		}
@@ -71,8 +102,31 @@ public class GameControllerPart2 extends GameController<IHillbilliesView2> imple
 		return (Part2Options) super.getOptions();
 	}
 
+	@Override
+	public void setView(IHillbilliesView2 view) {
+		super.setView(view);
+		view.getViewModel().xTileOffsetProperty().addListener(e -> viewportUpdated());
+		view.getViewModel().yTileOffsetProperty().addListener(e -> viewportUpdated());
+		// the size of the view decides how many tiles are on screen
+		view.getViewModel().viewWidthProperty().addListener(e -> viewportUpdated());
+		view.getViewModel().viewHeightProperty().addListener(e -> viewportUpdated());
+		viewportUpdated();
+	}
+
+	private void viewportUpdated() {
+		IViewModel viewModel = getView().getViewModel();
+		int x = viewModel.xTileOffsetProperty().get();
+		int y = viewModel.yTileOffsetProperty().get();
+		int nbTilesX = 1 + (int) (viewModel.viewWidthProperty().get() / viewModel.getPixelsPerTile());
+		int nbTilesY = 1 + (int) (viewModel.viewHeightProperty().get() / viewModel.getPixelsPerTile());
+		viewport = new int[] { x, y, x + nbTilesX, y + nbTilesY };
+		detailChanged = true;
+	}
+
 	private void selectionUpdated() {
 		Selection selection = getSelectionProvider().getSelection();
+		focusUnits = new HashSet<>(selection.getObjects(Unit.class));
+		detailChanged = true;
 		if (selection.isSingle()) {
 			Object obj = selection.getAnySelected();
 			if (obj instanceof Unit) {
@@ -135,6 +189,12 @@ public class GameControllerPart2 extends GameController<IHillbilliesView2> imple
 
 		@Override
 		public CubeType getCubeTypeAt(int x, int y, int z) {
+			if (isSimulationThreaded()) {
+				if (x < 0 || y < 0 || z < 0 || x >= map.getNbTilesX() || y >= map.getNbTilesY()
+						|| z >= map.getNbTilesZ())
+					return CubeType.EMPTY;
+				return CubeType.fromByte(terrain[getTerrainIndex(x, y, z)]);
+			}
 			try {
 				CubeType result = CubeType.fromByte((byte) getFacade().getCubeType(world, x, y, z));
 				return result;
@@ -155,13 +215,18 @@ public class GameControllerPart2 extends GameController<IHillbilliesView2> imple
 
 		@Override
 		public Set<?> getObjectsInBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+			WorldSnapshot snapshot = uip.getSnapshot();
+			if (snapshot != null)
+				return snapshot.getObjectsInBox(minX, minY, minZ, maxX, maxY, maxZ);
+			// before the first snapshot is published, the simulation thread may be changing the world
 			Set<Object> result = new HashSet<>();
-			result.addAll(getObjectsOfTypeInBox(Unit.class, minX, minY, minZ, maxX, maxY, maxZ, getFacade()::getUnits,
-					getFacade()::isAlive, getFacade()::getPosition));
-			result.addAll(getObjectsOfTypeInBox(Boulder.class, minX, minY, minZ, maxX, maxY, maxZ,
-					getFacade()::getBoulders, b -> true, getFacade()::getPosition));
-			result.addAll(getObjectsOfTypeInBox(Log.class, minX, minY, minZ, maxX, maxY, maxZ, getFacade()::getLogs,
-					l -> true, getFacade()::getPosition));
+			getModelLock().lock();
+			try {
+				result.addAll(world.getUnitsInBox(minX, minY, minZ, maxX, maxY, maxZ));
+				result.addAll(world.getCarryablesInBox(minX, minY, minZ, maxX, maxY, maxZ));
+			} finally {
+				getModelLock().unlock();
+			}
 			return result;
 		}
 
@@ -195,6 +260,21 @@ public class GameControllerPart2 extends GameController<IHillbilliesView2> imple
 		return Collections.emptySet();
 	}
 
+	/**
+	 * Returns a copy of the set that the given function reads from the world, made with the model lock held. The
+	 * facade only holds the lock during the call itself, so a live set of the model must not be iterated without it
+	 * while the simulation thread runs.
+	 */
+	private <T> Set<T> copyOfModelSet(MEFunction<World, Set<T>> read) throws ModelException {
+		getModelLock().lock();
+		try {
+			Set<T> result = read.apply(world);
+			return result == null ? null : new HashSet<>(result);
+		} finally {
+			getModelLock().unlock();
+		}
+	}
+
 	protected static boolean liesInBox(double[] position, double[] low, double[] high) {
 		return position != null && low[0] <= position[0] && position[0] < high[0] && low[1] <= position[1]
 				&& position[1] < high[1] && low[2] <= position[2] && position[2] < high[2];
@@ -222,14 +302,57 @@ public class GameControllerPart2 extends GameController<IHillbilliesView2> imple
 
 	@Override
 	public void updateGame(double dt) {
+		updateLevelOfDetail();
 		try {
 			getFacade().advanceTime(world, dt);
-			deselectDeadUnit();
+			// with a simulation thread, the selection is only touched on the render thread
+			if (!isSimulationThreaded())
+				deselectDeadUnit();
 		} catch (ModelException e) {
 			handleError(e);
 		}
 	}
 
+	/**
+	 * Makes the world tick the units that are off screen and far from the selected units at a reduced rate, if the
+	 * option is enabled. A world that is recorded in a journal ticks every unit every tick, because the journal
+	 * cannot replay what was on screen.
+	 */
+	private void updateLevelOfDetail() {
+		double step = getOptions().levelOfDetail().getValue() && !world.isRecorded() ? World.MAX_COARSE_STEP : 0;
+		if (world.getCoarseStep() != step)
+			world.setCoarseStep(step);
+		if (step > 0 && detailChanged) {
+			detailChanged = false;
+			int[] region = viewport;
+			if (region != null)
+				world.setDetailRegion(region[0], region[1], region[2], region[3]);
+			world.setFocusUnits(focusUnits);
+		}
+	}
+
+	@Override
+	public void publishSnapshot() {
+		uip.publishSnapshot();
+	}
+
+	@Override
+	public void consumeSnapshot() {
+		uip.consumeSnapshot();
+		int[] change;
+		while ((change = terrainChanges.poll()) != null) {
+			terrain[getTerrainIndex(change[0], change[1], change[2])] = (byte) change[3];
+			for (TerrainChangeListener listener : new HashSet<>(listeners)) {
+				listener.notifyTerrainChanged(change[0], change[1], change[2]);
+			}
+		}
+		deselectVanishedUnit();
+	}
+
+	private int getTerrainIndex(int x, int y, int z) {
+		return x + map.getNbTilesX() * (y + map.getNbTilesY() * z);
+	}
+
 	protected void deselectDeadUnit() {
 		getSelectedUnit().ifPresent(unit -> {
 			try {
@@ -242,6 +365,29 @@ public class GameControllerPart2 extends GameController<IHillbilliesView2> imple
 		});
 	}
 
+	/**
+	 * The selected unit, if the snapshot that was consumed last contains it.
+	 */
+	private Unit seenSelectedUnit;
+
+	/**
+	 * Deselects the selected unit once it is missing from the consumed snapshot, which means it died or was removed.
+	 * This only looks at the snapshot, so the render thread never waits for the model lock. A unit that was
+	 * selected before any snapshot contained it, like a unit that was just spawned, stays selected until it has
+	 * been seen.
+	 */
+	private void deselectVanishedUnit() {
+		WorldSnapshot snapshot = uip.getSnapshot();
+		if (snapshot == null)
+			return;
+		getSelectedUnit().ifPresent(unit -> {
+			if (snapshot.contains(unit))
+				seenSelectedUnit = unit;
+			else if (unit == seenSelectedUnit)
+				getSelectionProvider().getSelection().clear();
+		});
+	}
+
 	@Override
 	public WorldInfoProvider2 getWorldInfoProvider() {
 		return wip;
@@ -318,7 +464,8 @@ public class GameControllerPart2 extends GameController<IHillbilliesView2> imple
 		updateFactions();
 		try {
 			if (selectedFactionData != null) {
-				Set<Unit> units = getFacade().getUnitsOfFaction(selectedFactionData.faction);
+				Faction faction = selectedFactionData.faction;
+				Set<Unit> units = copyOfModelSet(w -> getFacade().getUnitsOfFaction(faction));
 				if (units != null && !unitSelectionPool.equals(units)) {
 					unitSelectionPool.retainAll(units);
 					for (Unit unit : units) {
@@ -405,7 +552,7 @@ public class GameControllerPart2 extends GameController<IHillbilliesView2> imple
 
 	private void updateFactions() {
 		try {
-			Set<Faction> allFactions = getFacade().getActiveFactions(getWorld());
+			Set<Faction> allFactions = copyOfModelSet(w -> getFacade().getActiveFactions(w));
 			if (allFactions != null && !allFactions.equals(factionSelectionPool.keySet())) {
 				if (allFactions.size() > Constants.MAX_NB_FACTIONS) {
 					throw new AssertionError("The GUI only supports " + Constants.MAX_NB_FACTIONS + " factions");
@@ -1,18 +1,37 @@
 package hillbillies.part2.internal.controller;
 
+import java.util.Optional;
 import java.util.function.Consumer;
 
 import hillbillies.model.world.Boulder;
 import hillbillies.model.world.Faction;
 import hillbillies.model.world.Log;
 import hillbillies.model.world.Unit;
+import hillbillies.model.world.World;
 import hillbillies.part1.internal.controller.UnitInfoProviderPart1;
 import hillbillies.part2.facade.IFacade;
+import hillbillies.part2.internal.controller.WorldSnapshot.UnitState;
 import hillbillies.part2.internal.providers.IGameObjectInfoProvider;
 import ogp.framework.util.ModelException;
 
+/**
+ * Provides the state of the units and the carryables to the view.
+ *
+ * When the model is updated on a simulation thread, the state comes from the snapshot that was consumed last, so
+ * the view never touches the model while rendering. Objects that are not in that snapshot, such as a unit that was
+ * spawned after it was published, are still read from the facade.
+ */
 public class GameObjectInfoProvider extends UnitInfoProviderPart1 implements IGameObjectInfoProvider {
 
+	/**
+	 * The snapshot that the simulation thread published last.
+	 */
+	private volatile WorldSnapshot published;
+	/**
+	 * The snapshot that the view renders in the current frame, or null to read the facade.
+	 */
+	private WorldSnapshot current;
+
 	public GameObjectInfoProvider(IGameController2 game, Consumer<ModelException> errorHandler) {
 		super(game, errorHandler);
 	}
@@ -27,8 +46,212 @@ public class GameObjectInfoProvider extends UnitInfoProviderPart1 implements IGa
 		return (IFacade) super.getFacade();
 	}
 
+	/**
+	 * Captures a snapshot of the world and publishes it. Must be called with the model lock held.
+	 */
+	public void publishSnapshot() {
+		published = capture();
+	}
+
+	/**
+	 * Makes the snapshot that was published last the one the view renders.
+	 */
+	public void consumeSnapshot() {
+		current = published;
+	}
+
+	/**
+	 * Returns the snapshot the view renders, or null if the view reads the facade.
+	 */
+	public WorldSnapshot getSnapshot() {
+		return current;
+	}
+
+	protected WorldSnapshot capture() {
+		World world = getGame().getWorld();
+		WorldSnapshot snapshot = createSnapshot(world.getSizeX(), world.getSizeY(), world.getSizeZ());
+		try {
+			fill(snapshot);
+		} catch (ModelException e) {
+			handleError(e);
+		}
+		return snapshot;
+	}
+
+	protected WorldSnapshot createSnapshot(int sizeX, int sizeY, int sizeZ) {
+		return new WorldSnapshot(sizeX, sizeY, sizeZ);
+	}
+
+	protected void fill(WorldSnapshot snapshot) throws ModelException {
+		World world = getGame().getWorld();
+		for (Unit unit : getFacade().getUnits(world)) {
+			snapshot.addUnit(unit, captureUnit(unit));
+		}
+		for (Boulder boulder : getFacade().getBoulders(world)) {
+			snapshot.addCarryable(boulder, getFacade().getPosition(boulder));
+		}
+		for (Log log : getFacade().getLogs(world)) {
+			snapshot.addCarryable(log, getFacade().getPosition(log));
+		}
+		for (Faction faction : getFacade().getActiveFactions(world)) {
+			snapshot.addFaction(faction);
+		}
+	}
+
+	private UnitState captureUnit(Unit unit) {
+		UnitState state = new UnitState();
+		state.position = super.getPosition(unit).orElse(null);
+		state.orientationInDegrees = super.getOrientationInDegrees(unit);
+		state.attacking = super.isAttacking(unit);
+		state.working = super.isWorking(unit);
+		state.walking = super.isWalking(unit);
+		state.resting = super.isResting(unit);
+		state.sprinting = super.isSprinting(unit);
+		state.name = super.getName(unit);
+		state.hitpoints = super.getHitpoints(unit);
+		state.maxHitpoints = super.getMaxHitpoints(unit);
+		state.staminapoints = super.getStaminapoints(unit);
+		state.maxStaminapoints = super.getMaxStaminapoints(unit);
+		state.defaultBehaviorEnabled = super.isDefaultBehaviorEnabled(unit);
+		state.speed = super.getSpeed(unit);
+		state.agility = super.getAgility(unit);
+		state.strength = super.getStrength(unit);
+		state.toughness = super.getToughness(unit);
+		state.weight = super.getWeight(unit);
+		try {
+			state.carryingLog = getFacade().isCarryingLog(unit);
+			state.carryingBoulder = getFacade().isCarryingBoulder(unit);
+			state.faction = getFacade().getFaction(unit);
+			state.experiencePoints = getFacade().getExperiencePoints(unit);
+		} catch (ModelException e) {
+			handleError(e);
+		}
+		return state;
+	}
+
+	/**
+	 * Returns the state of the given unit in the snapshot the view renders, or null if the facade must be read.
+	 */
+	private UnitState getState(Unit unit) {
+		WorldSnapshot snapshot = current;
+		return snapshot == null ? null : snapshot.getUnitState(unit);
+	}
+
+	@Override
+	public Optional<double[]> getPosition(Unit unit) {
+		UnitState state = getState(unit);
+		if (state == null)
+			return super.getPosition(unit);
+		return Optional.ofNullable(state.position == null ? null : state.position.clone());
+	}
+
+	@Override
+	public int getOrientationInDegrees(Unit unit) {
+		UnitState state = getState(unit);
+		return state == null ? super.getOrientationInDegrees(unit) : state.orientationInDegrees;
+	}
+
+	@Override
+	public boolean isAttacking(Unit unit) {
+		UnitState state = getState(unit);
+		return state == null ? super.isAttacking(unit) : state.attacking;
+	}
+
+	@Override
+	public boolean isWorking(Unit unit) {
+		UnitState state = getState(unit);
+		return state == null ? super.isWorking(unit) : state.working;
+	}
+
+	@Override
+	public boolean isWalking(Unit unit) {
+		UnitState state = getState(unit);
+		return state == null ? super.isWalking(unit) : state.walking;
+	}
+
+	@Override
+	public boolean isResting(Unit unit) {
+		UnitState state = getState(unit);
+		return state == null ? super.isResting(unit) : state.resting;
+	}
+
+	@Override
+	public boolean isSprinting(Unit unit) {
+		UnitState state = getState(unit);
+		return state == null ? super.isSprinting(unit) : state.sprinting;
+	}
+
+	@Override
+	public String getName(Unit unit) {
+		UnitState state = getState(unit);
+		return state == null ? super.getName(unit) : state.name;
+	}
+
+	@Override
+	public int getHitpoints(Unit unit) {
+		UnitState state = getState(unit);
+		return state == null ? super.getHitpoints(unit) : state.hitpoints;
+	}
+
+	@Override
+	public int getMaxHitpoints(Unit unit) {
+		UnitState state = getState(unit);
+		return state == null ? super.getMaxHitpoints(unit) : state.maxHitpoints;
+	}
+
+	@Override
+	public int getStaminapoints(Unit unit) {
+		UnitState state = getState(unit);
+		return state == null ? super.getStaminapoints(unit) : state.staminapoints;
+	}
+
+	@Override
+	public int getMaxStaminapoints(Unit unit) {
+		UnitState state = getState(unit);
+		return state == null ? super.getMaxStaminapoints(unit) : state.maxStaminapoints;
+	}
+
+	@Override
+	public boolean isDefaultBehaviorEnabled(Unit unit) {
+		UnitState state = getState(unit);
+		return state == null ? super.isDefaultBehaviorEnabled(unit) : state.defaultBehaviorEnabled;
+	}
+
+	@Override
+	public double getSpeed(Unit unit) {
+		UnitState state = getState(unit);
+		return state == null ? super.getSpeed(unit) : state.speed;
+	}
+
+	@Override
+	public int getAgility(Unit unit) {
+		UnitState state = getState(unit);
+		return state == null ? super.getAgility(unit) : state.agility;
+	}
+
+	@Override
+	public int getStrength(Unit unit) {
+		UnitState state = getState(unit);
+		return state == null ? super.getStrength(unit) : state.strength;
+	}
+
+	@Override
+	public int getToughness(Unit unit) {
+		UnitState state = getState(unit);
+		return state == null ? super.getToughness(unit) : state.toughness;
+	}
+
+	@Override
+	public int getWeight(Unit unit) {
+		UnitState state = getState(unit);
+		return state == null ? super.getWeight(unit) : state.weight;
+	}
+
 	@Override
 	public int getExperiencePoints(Unit unit) {
+		UnitState state = getState(unit);
+		if (state != null)
+			return state.experiencePoints;
 		try {
 			return getFacade().getExperiencePoints(unit);
 		} catch (ModelException e) {
@@ -39,6 +262,9 @@ public class GameObjectInfoProvider extends UnitInfoProviderPart1 implements IGa
 
 	@Override
 	public boolean isCarryingLog(Unit unit) {
+		UnitState state = getState(unit);
+		if (state != null)
+			return state.carryingLog;
 		try {
 			return getFacade().isCarryingLog(unit);
 		} catch (ModelException e) {
@@ -49,6 +275,9 @@ public class GameObjectInfoProvider extends UnitInfoProviderPart1 implements IGa
 
 	@Override
 	public boolean isCarryingBoulder(Unit unit) {
+		UnitState state = getState(unit);
+		if (state != null)
+			return state.carryingBoulder;
 		try {
 			return getFacade().isCarryingBoulder(unit);
 		} catch (ModelException e) {
@@ -59,6 +288,9 @@ public class GameObjectInfoProvider extends UnitInfoProviderPart1 implements IGa
 
 	@Override
 	public Faction getFaction(Unit unit) {
+		UnitState state = getState(unit);
+		if (state != null)
+			return state.faction;
 		try {
 			return getFacade().getFaction(unit);
 		} catch (ModelException e) {
@@ -79,6 +311,9 @@ public class GameObjectInfoProvider extends UnitInfoProviderPart1 implements IGa
 
 	@Override
 	public double[] getPosition(Boulder object) {
+		WorldSnapshot snapshot = current;
+		if (snapshot != null && snapshot.containsCarryable(object))
+			return snapshot.getPosition(object);
 		try {
 			return getFacade().getPosition(object);
 		} catch (ModelException e) {
@@ -89,6 +324,9 @@ public class GameObjectInfoProvider extends UnitInfoProviderPart1 implements IGa
 
 	@Override
 	public double[] getPosition(Log object) {
+		WorldSnapshot snapshot = current;
+		if (snapshot != null && snapshot.containsCarryable(object))
+			return snapshot.getPosition(object);
 		try {
 			return getFacade().getPosition(object);
 		} catch (ModelException e) {
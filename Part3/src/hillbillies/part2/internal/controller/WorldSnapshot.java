@@ -0,0 +1,109 @@
+package hillbillies.part2.internal.controller;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import hillbillies.model.world.Faction;
+import hillbillies.model.world.Unit;
+import hillbillies.util.SpatialGrid;
+
+/**
+ * The state of a world that the view renders, captured on the simulation thread at the end of a tick.
+ *
+ * A snapshot is filled by GameObjectInfoProvider.capture and is never changed after it has been published, so the
+ * render thread can read it without holding the model lock.
+ */
+public class WorldSnapshot {
+
+	/**
+	 * The units and the carryables are indexed in cells of this many cubes along every axis.
+	 */
+	private static final int CELL_SIZE = 4;
+
+	/**
+	 * The state of a unit, as the facade returned it.
+	 */
+	static class UnitState {
+		double[] position;
+		int orientationInDegrees;
+		boolean attacking, working, walking, resting, sprinting;
+		String name;
+		int hitpoints, maxHitpoints, staminapoints, maxStaminapoints;
+		boolean defaultBehaviorEnabled;
+		double speed;
+		int agility, strength, toughness, weight;
+		boolean carryingLog, carryingBoulder;
+		Faction faction;
+		int experiencePoints;
+	}
+
+	private final Map<Unit, UnitState> units = new IdentityHashMap<>();
+	private final Map<Object, double[]> carryables = new IdentityHashMap<>();
+	private final SpatialGrid<Object> objects;
+	private final Set<Faction> factions = new HashSet<>();
+
+	public WorldSnapshot(int sizeX, int sizeY, int sizeZ) {
+		objects = new SpatialGrid<>(sizeX, sizeY, sizeZ, CELL_SIZE);
+	}
+
+	void addUnit(Unit unit, UnitState state) {
+		units.put(unit, state);
+		if (state.position != null)
+			objects.put(unit, state.position[0], state.position[1], state.position[2]);
+	}
+
+	void addCarryable(Object carryable, double[] position) {
+		carryables.put(carryable, position);
+		if (position != null)
+			objects.put(carryable, position[0], position[1], position[2]);
+	}
+
+	void addFaction(Faction faction) {
+		factions.add(faction);
+	}
+
+	/**
+	 * Returns the state of the given unit, or null if it was not in the world.
+	 */
+	UnitState getUnitState(Unit unit) {
+		return units.get(unit);
+	}
+
+	/**
+	 * Returns true iff the given unit was alive in the world.
+	 */
+	public boolean contains(Unit unit) {
+		return units.containsKey(unit);
+	}
+
+	/**
+	 * Returns true iff the given boulder or log was lying in the world.
+	 */
+	public boolean containsCarryable(Object carryable) {
+		return carryables.containsKey(carryable);
+	}
+
+	/**
+	 * Returns the position of the given boulder or log, or null if it was not lying in the world.
+	 */
+	public double[] getPosition(Object carryable) {
+		double[] position = carryables.get(carryable);
+		return position == null ? null : position.clone();
+	}
+
+	/**
+	 * Returns the units and the carryables whose position lies in the box [minX, maxX) x [minY, maxY) x [minZ, maxZ),
+	 * like World.getUnitsInBox and World.getCarryablesInBox.
+	 */
+	public Set<Object> getObjectsInBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		return objects.getInBox(minX, minY, minZ, maxX, maxY, maxZ, new HashSet<Object>());
+	}
+
+	public Set<Faction> getActiveFactions() {
+		return Collections.unmodifiableSet(factions);
+	}
+
+}
@@ -2,6 +2,7 @@ package hillbillies.part3;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -10,6 +11,7 @@ import hillbillies.common.internal.HillbilliesApplication;
 import hillbillies.common.internal.controller.GameController;
 import hillbillies.part3.facade.Facade;
 import hillbillies.part3.facade.IFacade;
+import hillbillies.part3.facade.RecordingFacade;
 import hillbillies.part2.internal.Part2Options;
 import hillbillies.part2.internal.map.GameMap;
 import hillbillies.part2.internal.map.GameMapReader;
@@ -81,11 +83,28 @@ public class Part3 extends HillbilliesApplication<Part2Options, IFacade, IHillbi
 		return Collections.emptyList();
 	}
 
+	/**
+	 * Returns a facade that records the session in the file given by the parameter --journal=file, if any.
+	 */
 	@Override
 	protected IFacade createFacade() {
+		String journal = getParameters().getNamed().get("journal");
+		if (journal != null) {
+			recordingFacade = new RecordingFacade(Paths.get(journal));
+			return recordingFacade;
+		}
 		return new Facade();
 	}
 
+	private RecordingFacade recordingFacade = null;
+
+	@Override
+	public void stop() throws Exception {
+		super.stop();
+		if (recordingFacade != null)
+			recordingFacade.closeJournal();
+	}
+
 	@Override
 	protected Part2Options createOptions() {
 		Part2Options options = new Part2Options();
@@ -12,9 +12,12 @@ import hillbillies.model.world.World;
 import hillbillies.part2.listener.TerrainChangeListener;
 import hillbillies.part3.programs.ITaskFactory;
 import hillbillies.part3.programs.TaskFactory;
+import hillbillies.util.BinaryWorldFile;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import ogp.framework.util.ModelException;
@@ -205,6 +208,14 @@ public class Facade implements IFacade {
 		return new World(terrainTypes, modelListener);
 	}
 
+	/**
+	 * Create a new world from the terrain of the given binary world file, without intermediate arrays.
+	 */
+	public World createWorld(BinaryWorldFile file,
+			TerrainChangeListener modelListener) throws ModelException {
+		return new World(file.getSizeX(), file.getSizeY(), file.getSizeZ(), file.getTerrain(), modelListener);
+	}
+
 	@Override
 	public int getNbCubesX(World world) throws ModelException {
 		return world.getSizeX();
@@ -257,7 +268,8 @@ public class Facade implements IFacade {
 
 	@Override
 	public Set<Unit> getUnits(World world) throws ModelException {
-		return world.getUnits();
+		// a copy, so that callers never iterate the registry of the world while it changes
+		return Collections.unmodifiableSet(new LinkedHashSet<>(world.getUnits()));
 	}
 
 	@Override
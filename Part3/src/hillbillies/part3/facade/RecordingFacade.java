@@ -0,0 +1,178 @@
+package hillbillies.part3.facade;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import hillbillies.model.scheduler.Scheduler;
+import hillbillies.model.scheduler.Task;
+import hillbillies.model.world.CommandJournal;
+import hillbillies.model.world.Unit;
+import hillbillies.model.world.World;
+import hillbillies.part2.listener.TerrainChangeListener;
+import hillbillies.util.BinaryWorldFile;
+import ogp.framework.util.ModelException;
+
+/**
+ * A facade that records the session of the last world it created in a CommandJournal, which a JournalReplayer can
+ * replay without a display.
+ *
+ * Every command is recorded before it is given to the model, so a command that fails is recorded as well and fails
+ * again in the replay. Commands to units that are not in the recorded world are not recorded.
+ */
+public class RecordingFacade extends Facade {
+
+	private final Path path;
+	private CommandJournal journal;
+
+	/**
+	 * @param path
+	 *            The file to which the journal of the next world that is created is written.
+	 */
+	public RecordingFacade(Path path) {
+		this.path = path;
+	}
+
+	/**
+	 * Returns the journal of the world that is recorded, or null if no world was created yet.
+	 */
+	public CommandJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * Writes the rest of the journal and closes it.
+	 */
+	public void closeJournal() throws IOException {
+		if (journal != null)
+			journal.close();
+	}
+
+	private World record(World world) throws ModelException {
+		try {
+			closeJournal();
+			journal = new CommandJournal(world, System.nanoTime(), path);
+		} catch (IOException e) {
+			throw new ModelException("Cannot record the world in " + path, e);
+		}
+		return world;
+	}
+
+	@Override
+	public World createWorld(int[][][] terrainTypes, TerrainChangeListener modelListener) throws ModelException {
+		return record(super.createWorld(terrainTypes, modelListener));
+	}
+
+	@Override
+	public World createWorld(BinaryWorldFile file, TerrainChangeListener modelListener) throws ModelException {
+		return record(super.createWorld(file, modelListener));
+	}
+
+	@Override
+	public void advanceTime(World world, double dt) throws ModelException {
+		if (journal != null && world == journal.getWorld())
+			journal.advanceTime(dt);
+		super.advanceTime(world, dt);
+	}
+
+	@Override
+	public void moveToAdjacent(Unit unit, int dx, int dy, int dz) throws ModelException {
+		if (journal != null)
+			journal.moveToAdjacent(unit, dx, dy, dz);
+		super.moveToAdjacent(unit, dx, dy, dz);
+	}
+
+	@Override
+	public void moveTo(Unit unit, int[] cube) throws ModelException {
+		if (journal != null)
+			journal.moveTo(unit, cube);
+		super.moveTo(unit, cube);
+	}
+
+	@Override
+	public void work(Unit unit) throws ModelException {
+		if (journal != null)
+			journal.work(unit);
+		super.work(unit);
+	}
+
+	@Override
+	public void workAt(Unit unit, int x, int y, int z) throws ModelException {
+		if (journal != null)
+			journal.workAt(unit, x, y, z);
+		super.workAt(unit, x, y, z);
+	}
+
+	@Override
+	public void fight(Unit attacker, Unit defender) throws ModelException {
+		if (journal != null)
+			journal.fight(attacker, defender);
+		super.fight(attacker, defender);
+	}
+
+	@Override
+	public void rest(Unit unit) throws ModelException {
+		if (journal != null)
+			journal.rest(unit);
+		super.rest(unit);
+	}
+
+	@Override
+	public void startSprinting(Unit unit) throws ModelException {
+		if (journal != null)
+			journal.startSprinting(unit);
+		super.startSprinting(unit);
+	}
+
+	@Override
+	public void stopSprinting(Unit unit) throws ModelException {
+		if (journal != null)
+			journal.stopSprinting(unit);
+		super.stopSprinting(unit);
+	}
+
+	@Override
+	public void setDefaultBehaviorEnabled(Unit unit, boolean value) throws ModelException {
+		if (journal != null)
+			journal.setDefaultBehaviorEnabled(unit, value);
+		super.setDefaultBehaviorEnabled(unit, value);
+	}
+
+	@Override
+	public Unit spawnUnit(World world, boolean enableDefaultBehavior) throws ModelException {
+		if (journal != null && world == journal.getWorld())
+			journal.spawnUnit(enableDefaultBehavior);
+		return super.spawnUnit(world, enableDefaultBehavior);
+	}
+
+	@Override
+	public void addUnit(Unit unit, World world) throws ModelException {
+		if (journal != null && world == journal.getWorld())
+			journal.addUnit(unit);
+		super.addUnit(unit, world);
+	}
+
+	@Override
+	public void schedule(Scheduler scheduler, Task task) throws ModelException {
+		if (journal != null)
+			record(() -> journal.schedule(scheduler, task));
+		super.schedule(scheduler, task);
+	}
+
+	@Override
+	public void replace(Scheduler scheduler, Task original, Task replacement) throws ModelException {
+		if (journal != null)
+			record(() -> journal.replace(scheduler, original, replacement));
+		super.replace(scheduler, original, replacement);
+	}
+
+	/**
+	 * Records a task, and reports a task that cannot be recorded as a ModelException.
+	 */
+	private void record(Runnable command) throws ModelException {
+		try {
+			command.run();
+		} catch (IllegalArgumentException e) {
+			throw new ModelException(e.getMessage(), e);
+		}
+	}
+}
@@ -12,7 +12,9 @@ import hillbillies.model.scheduler.Task;
 import hillbillies.model.world.Faction;
 import hillbillies.model.world.Unit;
 import hillbillies.part2.internal.controller.GameObjectInfoProvider;
+import hillbillies.part2.internal.controller.WorldSnapshot;
 import hillbillies.part3.facade.IFacade;
+import hillbillies.part3.internal.controller.WorldSnapshot3.TaskState;
 import hillbillies.part3.internal.providers.IGameObjectInfoProvider3;
 import ogp.framework.util.ModelException;
 
@@ -32,8 +34,40 @@ public class GameObjectInfoProvider3 extends GameObjectInfoProvider implements I
 		return (IFacade) super.getFacade();
 	}
 
+	@Override
+	public WorldSnapshot3 getSnapshot() {
+		return (WorldSnapshot3) super.getSnapshot();
+	}
+
+	@Override
+	protected WorldSnapshot3 createSnapshot(int sizeX, int sizeY, int sizeZ) {
+		return new WorldSnapshot3(sizeX, sizeY, sizeZ);
+	}
+
+	@Override
+	protected void fill(WorldSnapshot snapshot) throws ModelException {
+		super.fill(snapshot);
+		WorldSnapshot3 snapshot3 = (WorldSnapshot3) snapshot;
+		for (Faction faction : getFacade().getActiveFactions(getGame().getWorld())) {
+			List<Task> tasks = readTasksForFaction(faction);
+			snapshot3.addTasks(faction, tasks);
+			for (Task task : tasks) {
+				TaskState state = new TaskState();
+				state.name = getFacade().getName(task);
+				state.priority = getFacade().getPriority(task);
+				state.assignedUnit = getFacade().getAssignedUnit(task);
+				snapshot3.addTask(task, state);
+				if (state.assignedUnit != null)
+					snapshot3.addAssignedTask(state.assignedUnit, task);
+			}
+		}
+	}
+
 	@Override
 	public Set<Faction> getActiveFactions() {
+		WorldSnapshot3 snapshot = getSnapshot();
+		if (snapshot != null)
+			return snapshot.getActiveFactions();
 		try {
 			Set<Faction> result = getFacade().getActiveFactions(getGame().getWorld());
 			if (result != null)
@@ -46,33 +80,49 @@ public class GameObjectInfoProvider3 extends GameObjectInfoProvider implements I
 
 	@Override
 	public List<Task> getTasksForFaction(Faction faction) {
-		List<Task> result = new ArrayList<>();
+		WorldSnapshot3 snapshot = getSnapshot();
+		if (snapshot != null) {
+			List<Task> tasks = snapshot.getTasks(faction);
+			return tasks == null ? new ArrayList<>() : new ArrayList<>(tasks);
+		}
 		try {
-			Scheduler scheduler = getFacade().getScheduler(faction);
-			if (scheduler != null) {
-				Iterator<Task> it = getFacade().getAllTasksIterator(scheduler);
-				while (it != null && it.hasNext()) {
-					result.add(it.next());
-				}
-			}
+			return readTasksForFaction(faction);
 		} catch (ModelException e) {
 			handleError(e);
 		}
+		return new ArrayList<>();
+	}
+
+	private List<Task> readTasksForFaction(Faction faction) throws ModelException {
+		List<Task> result = new ArrayList<>();
+		Scheduler scheduler = getFacade().getScheduler(faction);
+		if (scheduler != null) {
+			Iterator<Task> it = getFacade().getAllTasksIterator(scheduler);
+			while (it != null && it.hasNext()) {
+				result.add(it.next());
+			}
+		}
 		return result;
 	}
 
+	/**
+	 * Returns the state of the given task in the snapshot the view renders, or null if the facade must be read.
+	 */
+	private TaskState getTaskState(Task task) {
+		WorldSnapshot3 snapshot = getSnapshot();
+		return snapshot == null ? null : snapshot.getTaskState(task);
+	}
+
 	@Override
 	public boolean getTaskAssigned(Task task) {
-		try {
-			return getFacade().getAssignedUnit(task) != null;
-		} catch (ModelException e) {
-			handleError(e);
-			return false;
-		}
+		return getAssignedUnit(task) != null;
 	}
 
 	@Override
 	public String getTaskName(Task task) {
+		TaskState state = getTaskState(task);
+		if (state != null)
+			return state.name;
 		try {
 			return getFacade().getName(task);
 		} catch (ModelException e) {
@@ -83,6 +133,9 @@ public class GameObjectInfoProvider3 extends GameObjectInfoProvider implements I
 
 	@Override
 	public int getTaskPriority(Task task) {
+		TaskState state = getTaskState(task);
+		if (state != null)
+			return state.priority;
 		try {
 			return getFacade().getPriority(task);
 		} catch (ModelException e) {
@@ -93,6 +146,9 @@ public class GameObjectInfoProvider3 extends GameObjectInfoProvider implements I
 
 	@Override
 	public Unit getAssignedUnit(Task task) {
+		TaskState state = getTaskState(task);
+		if (state != null)
+			return state.assignedUnit;
 		try {
 			return getFacade().getAssignedUnit(task);
 		} catch (ModelException e) {
@@ -103,6 +159,9 @@ public class GameObjectInfoProvider3 extends GameObjectInfoProvider implements I
 
 	@Override
 	public Task getAssignedTask(Unit unit) {
+		WorldSnapshot3 snapshot = getSnapshot();
+		if (snapshot != null && snapshot.contains(unit))
+			return snapshot.getAssignedTask(unit);
 		try {
 			return getFacade().getAssignedTask(unit);
 		} catch (ModelException e) {
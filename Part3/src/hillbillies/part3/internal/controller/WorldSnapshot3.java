@@ -0,0 +1,69 @@
+package hillbillies.part3.internal.controller;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import hillbillies.model.scheduler.Task;
+import hillbillies.model.world.Faction;
+import hillbillies.model.world.Unit;
+import hillbillies.part2.internal.controller.WorldSnapshot;
+
+/**
+ * A snapshot of a world that also holds the tasks of every faction.
+ */
+public class WorldSnapshot3 extends WorldSnapshot {
+
+	/**
+	 * The state of a task, as the facade returned it.
+	 */
+	static class TaskState {
+		String name;
+		int priority;
+		Unit assignedUnit;
+	}
+
+	private final Map<Faction, List<Task>> tasks = new IdentityHashMap<>();
+	private final Map<Task, TaskState> taskStates = new IdentityHashMap<>();
+	private final Map<Unit, Task> assignedTasks = new IdentityHashMap<>();
+
+	public WorldSnapshot3(int sizeX, int sizeY, int sizeZ) {
+		super(sizeX, sizeY, sizeZ);
+	}
+
+	void addTasks(Faction faction, List<Task> tasks) {
+		this.tasks.put(faction, tasks);
+	}
+
+	void addTask(Task task, TaskState state) {
+		taskStates.put(task, state);
+	}
+
+	void addAssignedTask(Unit unit, Task task) {
+		assignedTasks.put(unit, task);
+	}
+
+	/**
+	 * Returns the tasks of the given faction, or null if it was not active.
+	 */
+	List<Task> getTasks(Faction faction) {
+		List<Task> result = tasks.get(faction);
+		return result == null ? null : Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Returns the state of the given task, or null if it was not scheduled.
+	 */
+	TaskState getTaskState(Task task) {
+		return taskStates.get(task);
+	}
+
+	/**
+	 * Returns the task of the given unit, or null if it had none.
+	 */
+	Task getAssignedTask(Unit unit) {
+		return assignedTasks.get(unit);
+	}
+
+}
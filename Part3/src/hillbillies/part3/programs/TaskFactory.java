@@ -57,6 +57,8 @@ public class TaskFactory implements ITaskFactory<Expression<?>, Statement, Task>
 		for (int i = 0; i < selectedCubes.size(); i++) {
 			result.add(new Task(priority, name, a, selectedCubes.get(i)));
 		}
+		if (selectedCubes.isEmpty())
+			result.add(new Task(priority, name, a, null));
 		
 		return result;
 	}
@@ -1,6 +1,8 @@
 package hillbillies.part3.programs;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -172,7 +174,8 @@ public class TaskParser<E, S, T> {
 	}
 
 	/**
-	 * Parse task text using the given factory.
+	 * Parse task text using the given factory. Every task that is created gets
+	 * the text as its source.
 	 * 
 	 * @param text
 	 *            The text to parse
@@ -189,6 +192,8 @@ public class TaskParser<E, S, T> {
 		TaskParser<?, ?, Task> parser = create(factory);
 		Optional<List<Task>> result = parser.parseString(text, selectedCubes);
 		if (result.isPresent()) {
+			for (Task task : result.get())
+				task.setSource(text);
 			return result.get();
 		} else {
 			System.out.println("Parsing failed: " + parser.getErrors());
@@ -197,7 +202,8 @@ public class TaskParser<E, S, T> {
 	}
 
 	/**
-	 * Parse task from a file using the given factory.
+	 * Parse task from a file using the given factory. Every task that is
+	 * created gets the text of the file as its source.
 	 * 
 	 * @param filename
 	 *            The filename from which to read the task description
@@ -211,13 +217,10 @@ public class TaskParser<E, S, T> {
 	 */
 	public static <E> List<Task> parseTasksFromFile(String filename, ITaskFactory<E, ?, Task> factory,
 			List<int[]> selectedCubes) throws IOException {
-		TaskParser<?, ?, Task> parser = create(factory);
-		Optional<List<Task>> result = parser.parseFile(filename, selectedCubes);
-		if (result.isPresent()) {
-			return result.get();
-		} else {
-			System.out.println("Parsing failed: " + parser.getErrors());
-			return null;
+		String text;
+		try (InputStream input = ResourceUtils.openResource(filename)) {
+			text = new String(input.readAllBytes(), StandardCharsets.UTF_8);
 		}
+		return parseTasksFromString(text, factory, selectedCubes);
 	}
 }
@@ -0,0 +1,153 @@
+package hillbillies.tests.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import hillbillies.util.ConnectedToBorder;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Compares ConnectedToBorder with the original implementation, LegacyConnectedToBorder, on random dig sequences.
+ */
+public class ConnectedToBorderTest {
+
+	@Test
+	public void testRandomDigs() {
+		Random random = new Random(42);
+		for (int world = 0; world < 20; world++) {
+			int nbX = 3 + random.nextInt(8);
+			int nbY = 3 + random.nextInt(8);
+			int nbZ = 3 + random.nextInt(8);
+			compare(nbX, nbY, nbZ, random, 0.0d);
+		}
+	}
+
+	@Test
+	public void testRandomDigsAndFills() {
+		Random random = new Random(7);
+		for (int world = 0; world < 20; world++) {
+			int nbX = 3 + random.nextInt(8);
+			int nbY = 3 + random.nextInt(8);
+			int nbZ = 3 + random.nextInt(8);
+			compare(nbX, nbY, nbZ, random, 0.2d);
+		}
+	}
+
+	@Test
+	public void testFlatWorld() {
+		compare(12, 12, 1, new Random(3), 0.1d);
+	}
+
+	@Test
+	public void testRandomBatches() {
+		Random random = new Random(11);
+		for (int world = 0; world < 20; world++) {
+			int nbX = 3 + random.nextInt(8);
+			int nbY = 3 + random.nextInt(8);
+			int nbZ = 3 + random.nextInt(8);
+			compareBatches(nbX, nbY, nbZ, random);
+		}
+	}
+
+	/**
+	 * Applies random batches of digs and fills to ConnectedToBorder at once and to LegacyConnectedToBorder one by one,
+	 * and checks that they agree on every cube after every batch, and that the batch reports every cube whose
+	 * connection changed and only such cubes or solid cubes that are not connected.
+	 */
+	private void compareBatches(int nbX, int nbY, int nbZ, Random random) {
+		ConnectedToBorder connected = new ConnectedToBorder(nbX, nbY, nbZ);
+		LegacyConnectedToBorder legacy = new LegacyConnectedToBorder(nbX, nbY, nbZ);
+		int nbCubes = nbX * nbY * nbZ;
+		boolean[] wasConnected = new boolean[nbCubes];
+		boolean[] solid = new boolean[nbCubes];
+		for (int index = 0; index < nbCubes; index++)
+			solid[index] = true;
+		for (int batch = 0; batch < 30; batch++) {
+			int nbDigs = random.nextInt(nbCubes / 4 + 1);
+			int nbFills = batch == 0 ? 0 : random.nextInt(nbCubes / 8 + 1);
+			int[] digs = new int[nbDigs];
+			int[] fills = new int[nbFills];
+			for (int i = 0; i < nbDigs; i++)
+				digs[i] = random.nextInt(nbCubes);
+			for (int i = 0; i < nbFills; i++)
+				fills[i] = random.nextInt(nbCubes);
+			for (int index = 0; index < nbCubes; index++)
+				wasConnected[index] = isConnected(legacy, index, nbX, nbY);
+
+			Set<Integer> changed = toSet(connected.changeAll(digs, nbDigs, fills, nbFills), nbX, nbY);
+			for (int fill : fills) {
+				legacy.changePassableToSolid(fill % nbX, (fill / nbX) % nbY, fill / (nbX * nbY));
+				solid[fill] = true;
+			}
+			for (int dig : digs) {
+				legacy.changeSolidToPassable(dig % nbX, (dig / nbX) % nbY, dig / (nbX * nbY));
+				solid[dig] = false;
+			}
+
+			for (int index = 0; index < nbCubes; index++) {
+				boolean isConnected = isConnected(legacy, index, nbX, nbY);
+				assertEquals(isConnected, isConnected(connected, index, nbX, nbY));
+				if (isConnected != wasConnected[index] && (isConnected || solid[index]))
+					assertTrue(changed.contains(index));
+				if (changed.contains(index))
+					assertTrue(isConnected != wasConnected[index] || solid[index]);
+			}
+		}
+	}
+
+	private static boolean isConnected(ConnectedToBorder connected, int index, int nbX, int nbY) {
+		return connected.isSolidConnectedToBorder(index % nbX, (index / nbX) % nbY, index / (nbX * nbY));
+	}
+
+	private static boolean isConnected(LegacyConnectedToBorder connected, int index, int nbX, int nbY) {
+		return connected.isSolidConnectedToBorder(index % nbX, (index / nbX) % nbY, index / (nbX * nbY));
+	}
+
+	/**
+	 * Applies the same random changes to both implementations until nearly everything is dug out, and checks
+	 * that they return the same cubes and agree on every cube after every change.
+	 *
+	 * @param fillChance
+	 * 			The chance that a change makes a passable cube solid again instead of digging a solid cube.
+	 */
+	private void compare(int nbX, int nbY, int nbZ, Random random, double fillChance) {
+		ConnectedToBorder connected = new ConnectedToBorder(nbX, nbY, nbZ);
+		LegacyConnectedToBorder legacy = new LegacyConnectedToBorder(nbX, nbY, nbZ);
+		boolean[][][] passable = new boolean[nbX][nbY][nbZ];
+		int nbChanges = 2 * nbX * nbY * nbZ;
+		for (int change = 0; change < nbChanges; change++) {
+			int x = random.nextInt(nbX);
+			int y = random.nextInt(nbY);
+			int z = random.nextInt(nbZ);
+			boolean fill = random.nextDouble() < fillChance;
+			if (fill != passable[x][y][z])
+				continue;
+			passable[x][y][z] = !fill;
+			if (fill)
+				assertEquals(toSet(legacy.changePassableToSolid(x, y, z), nbX, nbY),
+						toSet(connected.changePassableToSolid(x, y, z), nbX, nbY));
+			else
+				assertEquals(toSet(legacy.changeSolidToPassable(x, y, z), nbX, nbY),
+						toSet(connected.changeSolidToPassable(x, y, z), nbX, nbY));
+			for (int cx = 0; cx < nbX; cx++) {
+				for (int cy = 0; cy < nbY; cy++) {
+					for (int cz = 0; cz < nbZ; cz++)
+						assertEquals(legacy.isSolidConnectedToBorder(cx, cy, cz),
+								connected.isSolidConnectedToBorder(cx, cy, cz));
+				}
+			}
+		}
+	}
+
+	private static Set<Integer> toSet(List<int[]> cubes, int nbX, int nbY) {
+		Set<Integer> result = new HashSet<>();
+		for (int[] cube : cubes)
+			result.add(cube[0] + cube[1] * nbX + cube[2] * nbX * nbY);
+		return result;
+	}
+}
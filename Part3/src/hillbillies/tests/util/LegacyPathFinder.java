@@ -0,0 +1,126 @@
+package hillbillies.tests.util;
+
+import hillbillies.model.world.World;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The original path search of {@link hillbillies.model.world.Unit}, Dijkstra's shortest path algorithm on lists of
+ * coordinates, with the walkable cubes and their edges built as the world used to build them.
+ * It is only kept as the reference for PathFinderTest.
+ */
+public class LegacyPathFinder {
+
+	private final List<int[]> walkables = new ArrayList<>();
+	private final Map<int[], Set<int[]>> edgeMap = new HashMap<int[], Set<int[]>>();
+
+	/**
+	 * Creates the walkable cubes and the edges between them for the given world, as it is now.
+	 */
+	public LegacyPathFinder(World world) {
+		for (int x = 0; x < world.getSizeX(); x++) {
+			for (int y = 0; y < world.getSizeY(); y++) {
+				for (int z = 0; z < world.getSizeZ(); z++) {
+					if (world.isWalkable(x, y, z))
+						walkables.add(new int[]{x, y, z});
+				}
+			}
+		}
+		
+		Iterator<int[]> ite1 = walkables.iterator();
+		while (ite1.hasNext()) {
+			int[] cube1 = ite1.next();
+			Set<int[]> addSet = new HashSet<int[]>();
+			Iterator<int[]> ite2 = walkables.iterator();
+			while (ite2.hasNext()) {
+				int[] cube2 = ite2.next();
+				if (Math.abs(cube1[0] - cube2[0]) <= 1 && Math.abs(cube1[1] - cube2[1]) <= 1 &&
+						Math.abs(cube1[2] - cube2[2]) <= 1) {
+					addSet.add(cube2);
+				}
+			}
+			edgeMap.put(cube1, addSet);
+		}
+	}
+
+	/**
+	 * Returns the cost of a shortest path of walkable cubes from the given start to the given walkable end, or null
+	 * if there is no such path.
+	 */
+	public Double findPathCost(int[] startPosition, int[] endPosition) {
+		Set<int[]> R = new HashSet<int[]>();
+		List<int[]> V = new ArrayList<>(walkables);
+		Map<int[], Double> L = new HashMap<int[], Double>();
+		
+		Iterator<int[]> ite = V.iterator();
+		while (ite.hasNext()) {
+			int[] current = ite.next();
+			if (current[0] == startPosition[0] && current[1] == startPosition[1] && current[2] == startPosition[2]) {
+				startPosition = current;
+				break;
+			} 
+		}
+		L.put(startPosition, new Double(0));
+		ite = V.iterator();
+		while (ite.hasNext()) {
+			int[] current = ite.next();
+			if (current[0] == endPosition[0] && current[1] == endPosition[1] && current[2] == endPosition[2]) {
+				endPosition = current;
+				break;
+			}
+		}
+		ite = V.iterator();
+		while (ite.hasNext()) {
+			int[] current = ite.next();
+			if (current != startPosition)
+				L.put(current, Double.MAX_VALUE);
+		}
+		
+		List<int[]> copyV = new ArrayList<int[]>(V);
+		while (!R.contains(endPosition)) {
+			ite = copyV.iterator();
+			int[] minCube = new int[]{-1, -1, -1};
+			Double minValue = Double.MAX_VALUE;
+			while (ite.hasNext()) {
+				int[] next = ite.next();
+				if (L.get(next).compareTo(minValue) < 0) {
+					minValue = L.get(next);
+				}
+			}
+			if (minValue.equals(Double.MAX_VALUE))
+				return null;
+			ite = copyV.iterator();
+			while (ite.hasNext()) {
+				int[] next = ite.next();
+				if (L.get(next).equals(minValue)) {
+					minCube = next;
+					break;
+				}
+			}
+			
+			R.add(minCube);
+			copyV.remove(minCube);
+			Set<int[]> neighbourCubes = edgeMap.get(minCube);
+			for (int[] neighbour : neighbourCubes) {
+				double distance = Math.sqrt((neighbour[0] - minCube[0]) * (neighbour[0] - minCube[0])
+						+ (neighbour[1] - minCube[1]) * (neighbour[1] - minCube[1])
+						+ (neighbour[2] - minCube[2]) * (neighbour[2] - minCube[2]));
+				if (neighbour[2] - minCube[2] == 1) {
+					distance *= 0.5d;
+				} else if (neighbour[2] - minCube[2] == -1) {
+					distance *= 1.2d;
+				} 
+				if (Double.sum(L.get(minCube), new Double(distance)) < L.get(neighbour).doubleValue()) {
+					L.put(neighbour, Double.sum(L.get(minCube), new Double(distance)));
+				}
+			}
+		}
+		return L.get(endPosition);
+	}
+}
@@ -0,0 +1,123 @@
+package hillbillies.tests.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import hillbillies.model.world.PathFinder;
+import hillbillies.model.world.WalkableGraph;
+import hillbillies.model.world.World;
+
+import java.io.IOException;
+import java.util.Random;
+
+import ogp.framework.util.ModelException;
+
+import org.junit.Test;
+
+/**
+ * Compares PathFinder with the original search, LegacyPathFinder, on the bundled worlds: both must agree on whether
+ * there is a path and on the cost of the shortest path. Equal-cost paths may differ.
+ */
+public class PathFinderTest {
+
+	private static final String[] WORLDS = { "resources/15x15x15.wrld", "resources/20x20x10.wrld",
+			"resources/20x40x10.wrld", "resources/25x25x25.wrld", "resources/50x50x10.wrld" };
+
+	private static final double EPSILON = 1e-9;
+
+	@Test
+	public void testRandomPairs() throws IOException, ModelException {
+		Random random = new Random(42);
+		for (String resource : WORLDS) {
+			World world = TestWorlds.createWorld(resource);
+			LegacyPathFinder legacy = new LegacyPathFinder(world);
+			WalkableGraph graph = world.getWalkableGraph();
+			for (int pair = 0; pair < 20; pair++) {
+				int[] start = toCube(graph, graph.getWalkable(random.nextInt(graph.getNbWalkables())));
+				int[] end = toCube(graph, graph.getWalkable(random.nextInt(graph.getNbWalkables())));
+				compare(world, legacy, start, end);
+			}
+		}
+	}
+
+	@Test
+	public void testUnreachableEnds() throws IOException, ModelException {
+		Random random = new Random(7);
+		int nbUnreachable = 0;
+		for (String resource : WORLDS) {
+			World world = TestWorlds.createWorld(resource);
+			LegacyPathFinder legacy = new LegacyPathFinder(world);
+			WalkableGraph graph = world.getWalkableGraph();
+			int[] start = toCube(graph, graph.getWalkable(random.nextInt(graph.getNbWalkables())));
+			for (int i = 0; i < graph.getNbWalkables() && nbUnreachable < 5 * WORLDS.length; i++) {
+				int[] end = toCube(graph, graph.getWalkable(i));
+				if (world.getPathFinder().findPath(start, end) == null) {
+					compare(world, legacy, start, end);
+					nbUnreachable++;
+				}
+			}
+		}
+		assertTrue(nbUnreachable > 0);
+	}
+
+	@Test
+	public void testNonWalkableStart() throws IOException, ModelException {
+		Random random = new Random(3);
+		for (String resource : WORLDS) {
+			World world = TestWorlds.createWorld(resource);
+			LegacyPathFinder legacy = new LegacyPathFinder(world);
+			WalkableGraph graph = world.getWalkableGraph();
+			int nbStarts = 0;
+			while (nbStarts < 5) {
+				int[] start = { random.nextInt(world.getSizeX()), random.nextInt(world.getSizeY()),
+						random.nextInt(world.getSizeZ()) };
+				if (world.isWalkable(start))
+					continue;
+				int[] end = toCube(graph, graph.getWalkable(random.nextInt(graph.getNbWalkables())));
+				assertNull(world.getPathFinder().findPath(start, end));
+				compare(world, legacy, start, end);
+				nbStarts++;
+			}
+		}
+	}
+
+	/**
+	 * Checks that both searches agree on whether there is a path from start to end, and if there is, that the path
+	 * of PathFinder is a chain of walkable neighbours to the end that costs as much as the path of the original.
+	 */
+	private static void compare(World world, LegacyPathFinder legacy, int[] start, int[] end) {
+		WalkableGraph graph = world.getWalkableGraph();
+		Double expected = legacy.findPathCost(start, end);
+		int[] path = world.getPathFinder().findPath(start, end);
+		if (expected == null) {
+			assertNull(path);
+			return;
+		}
+		assertTrue(path != null);
+		double cost = 0.0d;
+		int[] previous = start;
+		for (int index : path) {
+			int[] cube = toCube(graph, index);
+			assertTrue(graph.isWalkable(index));
+			assertTrue(Math.abs(cube[0] - previous[0]) <= 1 && Math.abs(cube[1] - previous[1]) <= 1
+					&& Math.abs(cube[2] - previous[2]) <= 1);
+			cost += getStepCost(cube[0] - previous[0], cube[1] - previous[1], cube[2] - previous[2]);
+			previous = cube;
+		}
+		assertTrue(previous[0] == end[0] && previous[1] == end[1] && previous[2] == end[2]);
+		assertEquals(expected, cost, EPSILON);
+	}
+
+	private static double getStepCost(int dx, int dy, int dz) {
+		double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+		if (dz == 1)
+			return 0.5d * distance;
+		if (dz == -1)
+			return 1.2d * distance;
+		return distance;
+	}
+
+	private static int[] toCube(WalkableGraph graph, int index) {
+		return new int[] { graph.getX(index), graph.getY(index), graph.getZ(index) };
+	}
+}
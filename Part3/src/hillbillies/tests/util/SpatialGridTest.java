@@ -0,0 +1,113 @@
+package hillbillies.tests.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import hillbillies.util.SpatialGrid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.junit.Test;
+
+/**
+ * Checks SpatialGrid.findNearest against a scan of all elements, both when it searches the cells in shells and when
+ * it falls back to scanning the elements directly.
+ */
+public class SpatialGridTest {
+
+	@Test
+	public void testTieGoesToFirstAdded() {
+		SpatialGrid<Object> grid = new SpatialGrid<>(20, 20, 20, 2);
+		Object first = new Object(), second = new Object();
+		grid.put(second, 5.5, 10.5, 10.5);
+		grid.put(first, 15.5, 10.5, 10.5);
+		// Both lie 5 away; second was added first.
+		assertEquals(second, grid.findNearest(10.5, 10.5, 10.5, null));
+
+		// Moving an element keeps the order in which it was added.
+		grid.put(second, 10.5, 15.5, 10.5);
+		assertEquals(second, grid.findNearest(10.5, 10.5, 10.5, null));
+
+		// Adding it again after removing it makes it the last one.
+		grid.remove(second);
+		grid.put(second, 10.5, 15.5, 10.5);
+		assertEquals(first, grid.findNearest(10.5, 10.5, 10.5, null));
+	}
+
+	@Test
+	public void testTieInShellAndDirectSearch() {
+		// Eight elements at the corners of a cube around the query all lie as near.
+		SpatialGrid<Integer> grid = new SpatialGrid<>(40, 40, 40, 1);
+		for (int i = 0; i < 8; i++)
+			grid.put(i, 20.5 + (i % 2 == 0 ? 1 : -1), 20.5 + (i / 2 % 2 == 0 ? 1 : -1), 20.5 + (i < 4 ? 1 : -1));
+		// With few elements, the search falls back to scanning them directly.
+		assertEquals(Integer.valueOf(0), grid.findNearest(20.5, 20.5, 20.5, null));
+		assertEquals(Integer.valueOf(3), grid.findNearest(20.5, 20.5, 20.5, i -> i >= 3));
+		// With many elements elsewhere, the search stays in the shells around the query.
+		for (int i = 8; i < 1000; i++)
+			grid.put(i, i % 10 + 0.5, i / 10 % 10 + 0.5, i / 100 + 0.5);
+		assertEquals(Integer.valueOf(0), grid.findNearest(20.5, 20.5, 20.5, null));
+		assertEquals(Integer.valueOf(3), grid.findNearest(20.5, 20.5, 20.5, i -> i >= 3));
+	}
+
+	@Test
+	public void testFilter() {
+		SpatialGrid<Integer> grid = new SpatialGrid<>(10, 10, 10, 2);
+		grid.put(1, 1.5, 1.5, 1.5);
+		grid.put(2, 3.5, 1.5, 1.5);
+		grid.put(3, 8.5, 8.5, 8.5);
+		assertEquals(Integer.valueOf(1), grid.findNearest(0.5, 0.5, 0.5, null));
+		assertEquals(Integer.valueOf(2), grid.findNearest(0.5, 0.5, 0.5, i -> i != 1));
+		assertEquals(Integer.valueOf(3), grid.findNearest(0.5, 0.5, 0.5, i -> i == 3));
+		assertNull(grid.findNearest(0.5, 0.5, 0.5, i -> i > 3));
+		assertNull(new SpatialGrid<Integer>(10, 10, 10, 2).findNearest(0.5, 0.5, 0.5, null));
+	}
+
+	@Test
+	public void testRandomQueries() {
+		Random random = new Random(42);
+		for (int round = 0; round < 200; round++) {
+			int size = 4 + random.nextInt(30);
+			int cellSize = 1 + random.nextInt(4);
+			SpatialGrid<Integer> grid = new SpatialGrid<>(size, size, size, cellSize);
+			// From a handful of elements, which are scanned directly, to enough to search shells.
+			int nbElements = 1 + random.nextInt(round % 2 == 0 ? 5 : 300);
+			List<double[]> positions = new ArrayList<>();
+			for (int i = 0; i < nbElements; i++) {
+				// Cube centres, so many elements lie at the same distance.
+				double[] position = { random.nextInt(size) + 0.5, random.nextInt(size) + 0.5,
+						random.nextInt(size) + 0.5 };
+				positions.add(position);
+				grid.put(i, position[0], position[1], position[2]);
+			}
+			for (int query = 0; query < 20; query++) {
+				double x = random.nextInt(size) + 0.5, y = random.nextInt(size) + 0.5, z = random.nextInt(size) + 0.5;
+				int modulo = 1 + random.nextInt(3);
+				Predicate<Integer> filter = i -> i % modulo == 0;
+				assertEquals(findNearest(positions, x, y, z, filter), grid.findNearest(x, y, z, filter));
+			}
+		}
+	}
+
+	/**
+	 * Returns the first element of the given positions that satisfies the given filter and lies nearest to the given
+	 * position.
+	 */
+	private static Integer findNearest(List<double[]> positions, double x, double y, double z,
+			Predicate<Integer> filter) {
+		Integer nearest = null;
+		double nearestSquared = Double.MAX_VALUE;
+		for (int i = 0; i < positions.size(); i++) {
+			double[] position = positions.get(i);
+			double dx = position[0] - x, dy = position[1] - y, dz = position[2] - z;
+			double distanceSquared = dx * dx + dy * dy + dz * dz;
+			if (distanceSquared < nearestSquared && filter.test(i)) {
+				nearest = i;
+				nearestSquared = distanceSquared;
+			}
+		}
+		return nearest;
+	}
+}
@@ -0,0 +1,44 @@
+package hillbillies.tests.util;
+
+import hillbillies.model.world.World;
+import hillbillies.part2.internal.map.GameMap;
+import hillbillies.part2.internal.map.GameMapReader;
+
+import java.io.IOException;
+
+import ogp.framework.util.ModelException;
+
+/**
+ * Builds the worlds that the tests run on, without a terrain change listener.
+ */
+public final class TestWorlds {
+
+	private TestWorlds() {
+	}
+
+	/**
+	 * Returns a new world with the terrain of the given bundled world file.
+	 */
+	public static World createWorld(String resource) throws IOException, ModelException {
+		GameMap map = new GameMapReader().readFromResource(resource);
+		int[][][] types = new int[map.getNbTilesX()][map.getNbTilesY()][map.getNbTilesZ()];
+		for (int x = 0; x < types.length; x++)
+			for (int y = 0; y < types[x].length; y++)
+				for (int z = 0; z < types[x][y].length; z++)
+					types[x][y][z] = map.getTypeAt(x, y, z).getByteValue();
+		return new World(types, (x, y, z) -> {});
+	}
+
+	/**
+	 * Returns a new world with the current terrain of the given world, which builds everything it derives from its
+	 * terrain from scratch.
+	 */
+	public static World copyTerrain(World world) throws ModelException {
+		int[][][] types = new int[world.getSizeX()][world.getSizeY()][world.getSizeZ()];
+		for (int x = 0; x < types.length; x++)
+			for (int y = 0; y < types[x].length; y++)
+				for (int z = 0; z < types[x][y].length; z++)
+					types[x][y][z] = world.getTerrainType(x, y, z);
+		return new World(types, (x, y, z) -> {});
+	}
+}
@@ -0,0 +1,165 @@
+package hillbillies.tests.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import hillbillies.util.TimerWheel;
+import hillbillies.util.TimerWheel.Timer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Checks which timers a TimerWheel fires at every advance, for timers in the lowest level, in the higher levels that
+ * are moved down, beyond the highest level and already overdue when they are scheduled.
+ */
+public class TimerWheelTest {
+
+	/**
+	 * The number of slots the wheel covers before a timer goes to the overflow list.
+	 */
+	private static final long WHEEL_SLOTS = 1L << 24;
+
+	@Test
+	public void testScheduleAndAdvance() {
+		TimerWheel<String> wheel = new TimerWheel<>(1, 0);
+		wheel.schedule("a", 3.2);
+		wheel.schedule("b", 1.5);
+		wheel.schedule("c", 1.7);
+		wheel.schedule("d", 2.0);
+		assertEquals(4, wheel.size());
+
+		assertEquals(Arrays.asList(), advance(wheel, 0.9));
+		// Timers in the same slot fire in the order they were scheduled.
+		assertEquals(Arrays.asList("b", "c"), advance(wheel, 1.1));
+		assertEquals(Arrays.asList("d"), advance(wheel, 2.0));
+		assertEquals(Arrays.asList("a"), advance(wheel, 10));
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void testOverdue() {
+		TimerWheel<String> wheel = new TimerWheel<>(1, 5);
+		wheel.schedule("late", 2);
+		wheel.schedule("now", 5.5);
+		wheel.schedule("next", 6.5);
+		// Timers in a slot that was already passed fire at the next advance, even if it does not pass a slot.
+		assertEquals(Arrays.asList("late", "now"), advance(wheel, 5.9));
+		assertEquals(Arrays.asList("next"), advance(wheel, 6));
+	}
+
+	@Test
+	public void testCancel() {
+		TimerWheel<String> wheel = new TimerWheel<>(1, 0);
+		Timer<String> near = wheel.schedule("near", 3);
+		Timer<String> far = wheel.schedule("far", 5000);
+		Timer<String> kept = wheel.schedule("kept", 4);
+		assertTrue(wheel.cancel(near));
+		assertTrue(!near.isScheduled());
+		assertTrue(!wheel.cancel(near));
+		assertTrue(wheel.cancel(far));
+		assertEquals(1, wheel.size());
+
+		assertEquals(Arrays.asList("kept"), advance(wheel, 10000));
+		assertTrue(!kept.isScheduled());
+		assertTrue(!wheel.cancel(kept));
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void testCascade() {
+		TimerWheel<String> wheel = new TimerWheel<>(1, 0);
+		// One timer in each level, and two in the same slot of level 2 that are moved down together.
+		wheel.schedule("level 3", 300000.5);
+		wheel.schedule("level 2", 5000.5);
+		wheel.schedule("level 2 later", 5001.5);
+		wheel.schedule("level 1", 100.5);
+		wheel.schedule("level 0", 10.5);
+
+		assertEquals(Arrays.asList("level 0"), advance(wheel, 10));
+		assertEquals(Arrays.asList(), advance(wheel, 99));
+		assertEquals(Arrays.asList("level 1"), advance(wheel, 100));
+		assertEquals(Arrays.asList(), advance(wheel, 4999));
+		assertEquals(Arrays.asList("level 2"), advance(wheel, 5000));
+		assertEquals(Arrays.asList("level 2 later"), advance(wheel, 5001));
+		assertEquals(Arrays.asList(), advance(wheel, 299999));
+		assertEquals(Arrays.asList("level 3"), advance(wheel, 300000));
+	}
+
+	@Test
+	public void testOverflow() {
+		TimerWheel<String> wheel = new TimerWheel<>(1, 0);
+		wheel.schedule("beyond", WHEEL_SLOTS + 7);
+		wheel.schedule("far beyond", 2 * WHEEL_SLOTS + 7);
+		wheel.schedule("inside", WHEEL_SLOTS - 1);
+
+		assertEquals(Arrays.asList(), advance(wheel, WHEEL_SLOTS - 2));
+		assertEquals(Arrays.asList("inside"), advance(wheel, WHEEL_SLOTS + 6));
+		assertEquals(Arrays.asList("beyond"), advance(wheel, WHEEL_SLOTS + 7));
+		assertEquals(Arrays.asList(), advance(wheel, 2 * WHEEL_SLOTS + 6));
+		assertEquals(Arrays.asList("far beyond"), advance(wheel, 2 * WHEEL_SLOTS + 7));
+	}
+
+	/**
+	 * Schedules and cancels random timers over all levels, and checks that every timer fires at the
+	 * first advance to its slot or later, and that the timers fired by one advance come in the order of their slots.
+	 */
+	@Test
+	public void testRandomFiringOrder() {
+		Random random = new Random(7);
+		double resolution = 0.25;
+		TimerWheel<Double> wheel = new TimerWheel<>(resolution, 0);
+		List<Timer<Double>> timers = new ArrayList<>();
+		Set<Double> cancelled = new HashSet<>();
+		double time = 0;
+		for (int round = 0; round < 200; round++) {
+			for (int i = 0; i < 20; i++) {
+				double span = Math.pow(64, random.nextInt(5)) * resolution;
+				double at = time + random.nextDouble() * span;
+				timers.add(wheel.schedule(at, at));
+			}
+			for (int i = 0; i < 5; i++) {
+				Timer<Double> timer = timers.get(random.nextInt(timers.size()));
+				if (wheel.cancel(timer))
+					cancelled.add(timer.getItem());
+			}
+
+			double previous = time;
+			time += random.nextDouble() * Math.pow(64, random.nextInt(4)) * resolution;
+			List<Double> fired = advance(wheel, time);
+			long previousSlot = (long) Math.floor(previous / resolution);
+			long slot = (long) Math.floor(time / resolution);
+			long lastSlot = Long.MIN_VALUE;
+			for (double firedTime : fired) {
+				assertTrue(!cancelled.contains(firedTime));
+				long firedSlot = (long) Math.floor(firedTime / resolution);
+				assertTrue(firedSlot <= slot);
+				// Timers of slots that were passed before fire first, at the first advance after they were scheduled.
+				if (firedSlot > previousSlot) {
+					assertTrue(firedSlot >= lastSlot);
+					lastSlot = firedSlot;
+				} else {
+					assertEquals(Long.MIN_VALUE, lastSlot);
+				}
+			}
+			for (Timer<Double> timer : timers) {
+				if (timer.isScheduled())
+					assertTrue((long) Math.floor(timer.getTime() / resolution) > slot);
+			}
+		}
+	}
+
+	/**
+	 * Advances the given wheel to the given time and returns the items it fired, in the order they were fired.
+	 */
+	private static <T> List<T> advance(TimerWheel<T> wheel, double time) {
+		List<T> fired = new ArrayList<>();
+		wheel.advance(time, fired::add);
+		return fired;
+	}
+}
@@ -0,0 +1,125 @@
+package hillbillies.tests.world;
+
+import static hillbillies.tests.util.TestWorlds.createWorld;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import hillbillies.model.world.CommandJournal;
+import hillbillies.model.world.JournalReplayer;
+import hillbillies.model.world.Unit;
+import hillbillies.model.world.UnitRegistry;
+import hillbillies.model.world.World;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import ogp.framework.util.ModelException;
+
+import org.junit.Test;
+
+/**
+ * Records a seeded session with commands in between the ticks, replays it and checks whether the replay ends in the
+ * recorded state.
+ */
+public class JournalTest {
+
+	private static final long SEED = 11;
+	private static final int NB_UNITS = 30;
+	private static final int NB_TICKS = 2000;
+	private static final double TICK = 0.05;
+
+	@Test
+	public void testRoundTrip() throws IOException, ModelException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		World recorded = record(bytes, false);
+
+		JournalReplayer replayer = new JournalReplayer(new ByteArrayInputStream(bytes.toByteArray()));
+		long[] nanos = replayer.replay();
+		assertEquals(NB_TICKS, nanos.length);
+		assertTrue(!replayer.hasDiverged());
+		World replayed = replayer.getWorld();
+		assertEquals(recorded.getTime(), replayed.getTime(), 0);
+		UnitRegistry units = recorded.getUnitRegistry();
+		assertEquals(units.size(), replayed.getUnitRegistry().size());
+		for (int i = 0; i < units.size(); i++) {
+			Unit unit = units.get(i);
+			Unit other = replayed.getUnitRegistry().get(i);
+			assertEquals(unit.getName(), other.getName());
+			assertEquals(unit.getPosition().getX(), other.getPosition().getX(), 0);
+			assertEquals(unit.getPosition().getY(), other.getPosition().getY(), 0);
+			assertEquals(unit.getPosition().getZ(), other.getPosition().getZ(), 0);
+			assertEquals(unit.getState(), other.getState());
+			assertEquals(unit.getCurrentHealth(), other.getCurrentHealth(), 0);
+		}
+	}
+
+	@Test
+	public void testDivergence() throws IOException, ModelException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		record(bytes, true);
+
+		JournalReplayer replayer = new JournalReplayer(new ByteArrayInputStream(bytes.toByteArray()));
+		replayer.replay();
+		assertTrue(replayer.hasDiverged());
+	}
+
+	@Test
+	public void testNoCoarseStepWhileRecorded() throws IOException, ModelException {
+		World world = createWorld("resources/20x20x10.wrld");
+		CommandJournal journal = new CommandJournal(world, SEED, new ByteArrayOutputStream());
+		assertTrue(world.isRecorded());
+		boolean refused = false;
+		try {
+			world.setCoarseStep(World.MAX_COARSE_STEP);
+		} catch (IllegalStateException e) {
+			refused = true;
+		}
+		assertTrue(refused);
+		assertEquals(0, world.getCoarseStep(), 0);
+
+		journal.close();
+		assertTrue(!world.isRecorded());
+		world.setCoarseStep(World.MAX_COARSE_STEP);
+		assertEquals(World.MAX_COARSE_STEP, world.getCoarseStep(), 0);
+	}
+
+	/**
+	 * Records a seeded session in the given stream: units are spawned, and now and then one of them is told to move
+	 * to another unit or to rest. If unrecorded is true, the default behaviour of one unit is also turned off without
+	 * the journal.
+	 *
+	 * @return	The world that was recorded, in its state at the end of the session.
+	 */
+	private static World record(ByteArrayOutputStream bytes, boolean unrecorded) throws IOException, ModelException {
+		World world = createWorld("resources/50x50x10.wrld");
+		CommandJournal journal = new CommandJournal(world, SEED, bytes);
+		for (int i = 0; i < NB_UNITS; i++) {
+			journal.spawnUnit(i % 2 == 0);
+			world.spawnUnit(i % 2 == 0);
+		}
+		UnitRegistry units = world.getUnitRegistry();
+		for (int tick = 0; tick < NB_TICKS; tick++) {
+			if (tick % 200 == 0) {
+				Unit unit = units.get((1 + tick / 100) % units.size());
+				Unit other = units.get(tick / 100 % units.size());
+				int[] cube = other.getPosition().toIntArray();
+				journal.moveTo(unit, cube);
+				try {
+					unit.moveTo(cube[0], cube[1], cube[2]);
+				} catch (ModelException e) {
+					// recorded anyway, it fails again in the replay
+				}
+			} else if (tick % 200 == 100) {
+				Unit unit = units.get(tick / 100 % units.size());
+				journal.rest(unit);
+				unit.startRest();
+			}
+			if (unrecorded && tick == NB_TICKS / 2)
+				units.get(0).setDefaultBehaviorEnabled(false);
+			journal.advanceTime(TICK);
+			world.advanceTime(TICK);
+		}
+		journal.close();
+		return world;
+	}
+}
@@ -0,0 +1,84 @@
+package hillbillies.tests.world;
+
+import static hillbillies.tests.util.TestWorlds.createWorld;
+import static org.junit.Assert.assertEquals;
+import hillbillies.model.world.Unit;
+import hillbillies.model.world.UnitRegistry;
+import hillbillies.model.world.World;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import ogp.framework.util.ModelException;
+
+import org.junit.Test;
+
+/**
+ * Checks that the optional ways to run the ticks of a world give the same game as the default sequential ticks,
+ * on a seeded world with units that dig, fight and fall for a long time.
+ */
+public class TickModesTest {
+
+	private static final long SEED = 5;
+	private static final int NB_UNITS = 100;
+	private static final int NB_TICKS = 8000;
+	private static final double TICK = 0.05;
+
+	@Test
+	public void testPathPrefetch() throws IOException, ModelException {
+		assertEquals(run(world -> {}), run(world -> world.setPathPrefetchEnabled(true)));
+	}
+
+	@Test
+	public void testReadingTimedState() throws IOException, ModelException {
+		assertEquals(run(world -> {}), run(world -> {}, world -> {
+			UnitRegistry units = world.getUnitRegistry();
+			for (int i = 0; i < units.size(); i++) {
+				Unit unit = units.get(i);
+				unit.getCurrentHealth();
+				unit.getCurrentStamina();
+			}
+		}));
+	}
+
+	private static List<String> run(Consumer<World> setup) throws IOException, ModelException {
+		return run(setup, world -> {});
+	}
+
+	/**
+	 * Runs a seeded world, with the given setup done after the units are spawned and the given read done after
+	 * every tick, and returns its end state: the position, state, health and stamina of every unit, the number of
+	 * carryables and the solid cubes.
+	 */
+	private static List<String> run(Consumer<World> setup, Consumer<World> afterTick)
+			throws IOException, ModelException {
+		World world = createWorld("resources/50x50x10.wrld");
+		world.setSeed(SEED);
+		for (int i = 0; i < NB_UNITS; i++)
+			world.spawnUnit(true);
+		setup.accept(world);
+		for (int tick = 0; tick < NB_TICKS; tick++) {
+			world.advanceTime(TICK);
+			afterTick.accept(world);
+		}
+
+		List<String> state = new ArrayList<>();
+		UnitRegistry units = world.getUnitRegistry();
+		for (int i = 0; i < units.size(); i++) {
+			Unit unit = units.get(i);
+			state.add(unit.getName() + " at " + unit.getPosition().getX() + ", " + unit.getPosition().getY() + ", "
+					+ unit.getPosition().getZ() + " " + unit.getState() + " hp " + unit.getCurrentHealth()
+					+ " stamina " + unit.getCurrentStamina());
+		}
+		state.add(world.getCarryables().size() + " carryables");
+		StringBuilder solid = new StringBuilder("solid:");
+		for (int x = 0; x < world.getSizeX(); x++)
+			for (int y = 0; y < world.getSizeY(); y++)
+				for (int z = 0; z < world.getSizeZ(); z++)
+					solid.append(world.isSolidAt(x, y, z) ? '#' : '.');
+		state.add(solid.toString());
+		return state;
+	}
+}
@@ -0,0 +1,106 @@
+package hillbillies.tests.world;
+
+import static hillbillies.tests.util.TestWorlds.copyTerrain;
+import static hillbillies.tests.util.TestWorlds.createWorld;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import hillbillies.model.world.WalkableGraph;
+import hillbillies.model.world.World;
+import hillbillies.util.IndexSet;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import ogp.framework.util.ModelException;
+
+import org.junit.Test;
+
+/**
+ * Compares the walkable graph and the spawn points that a world updates around the cubes it removes with the ones
+ * a new world builds from scratch for the same terrain, on the bundled worlds.
+ */
+public class WalkableGraphTest {
+
+	private static final double TICK = 0.1;
+
+	@Test
+	public void testRandomRemovals() throws IOException, ModelException {
+		Random random = new Random(42);
+		for (String resource : new String[] { "resources/20x20x10.wrld", "resources/25x25x25.wrld" }) {
+			World world = createWorld(resource);
+			for (int step = 0; step < 60; step++) {
+				int nbCubes = 1 + random.nextInt(step % 10 == 0 ? 40 : 3);
+				for (int i = 0; i < nbCubes; i++)
+					world.removeCube(random.nextInt(world.getSizeX()), random.nextInt(world.getSizeY()),
+							random.nextInt(world.getSizeZ()));
+				world.advanceTime(TICK);
+				compare(world);
+			}
+		}
+	}
+
+	@Test
+	public void testCaveIns() throws IOException, ModelException {
+		Random random = new Random(7);
+		World world = createWorld("resources/20x20x10.wrld");
+		int nbCaveIns = 0;
+		for (int step = 0; step < 40; step++) {
+			// Digging whole layers out of the middle of the world cuts the cubes around them from the border.
+			int z = 1 + random.nextInt(world.getSizeZ() - 2);
+			for (int x = 1; x < world.getSizeX() - 1; x++)
+				for (int y = 1; y < world.getSizeY() - 1; y++)
+					if (random.nextInt(3) == 0)
+						world.removeCube(x, y, z);
+			world.advanceTime(TICK);
+			compare(world);
+
+			world.setTimeTillCaveIn(5);
+			world.advanceTime(TICK);
+			nbCaveIns += world.getCubesToRemove().size();
+			world.advanceTime(TICK);
+			compare(world);
+		}
+		assertTrue(nbCaveIns > 0);
+	}
+
+	/**
+	 * Checks that the walkable graph and the spawn points of the given world equal those of a new world with the
+	 * same terrain: the same walkable cubes, the same solid cubes around every cube and the same edges in the same
+	 * order for every cube.
+	 */
+	private static void compare(World world) throws ModelException {
+		World rebuilt = copyTerrain(world);
+		WalkableGraph graph = world.getWalkableGraph();
+		WalkableGraph expected = rebuilt.getWalkableGraph();
+		int nbCubes = world.getSizeX() * world.getSizeY() * world.getSizeZ();
+		for (int index = 0; index < nbCubes; index++) {
+			assertEquals(expected.isWalkable(index), graph.isWalkable(index));
+			assertEquals(expected.hasSolidAround(index), graph.hasSolidAround(index));
+			assertEquals(expected.getEndEdge(index) - expected.getFirstEdge(index),
+					graph.getEndEdge(index) - graph.getFirstEdge(index));
+			for (int edge = expected.getFirstEdge(index), other = graph.getFirstEdge(index);
+					edge < expected.getEndEdge(index); edge++, other++) {
+				assertEquals(expected.getNeighbour(edge), graph.getNeighbour(other));
+				assertEquals(expected.getDirection(edge), graph.getDirection(other));
+			}
+		}
+		assertEquals(toSet(expected), toSet(graph));
+		assertEquals(toSet(rebuilt.getSpawnPoints()), toSet(world.getSpawnPoints()));
+	}
+
+	private static Set<Integer> toSet(WalkableGraph graph) {
+		Set<Integer> result = new HashSet<>();
+		for (int i = 0; i < graph.getNbWalkables(); i++)
+			result.add(graph.getWalkable(i));
+		return result;
+	}
+
+	private static Set<Integer> toSet(IndexSet indices) {
+		Set<Integer> result = new HashSet<>();
+		for (int i = 0; i < indices.size(); i++)
+			result.add(indices.get(i));
+		return result;
+	}
+}
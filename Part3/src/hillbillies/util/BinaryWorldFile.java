@@ -0,0 +1,290 @@
+package hillbillies.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A class to read and write worlds in a compact binary format.
+ *
+ * A file starts with a header of {@link #HEADER_SIZE} bytes: the magic number {@link #MAGIC} as an integer,
+ * the version and the flags as one byte each, and the sizes in x, y and z as integers. All integers are big-endian.
+ * The terrain follows as one typeInt per cube, the cube (x, y, z) at index x + y*sizeX + z*sizeX*sizeY.
+ * If {@link #FLAG_RLE} is set the terrain is stored as pairs of an unsigned run length (1 to 255) and a typeInt.
+ *
+ * An uncompressed file is mapped into memory through {@link FileChannel#map}, so its terrain is never copied
+ * before the world reads it.
+ *
+ * @author HF corp.
+ * @version 1.0
+ */
+public class BinaryWorldFile {
+
+	public static final int MAGIC = 0x48425744; // "HBWD"
+	public static final byte VERSION = 1;
+	public static final byte FLAG_RLE = 1;
+	public static final int HEADER_SIZE = 4 + 1 + 1 + 3 * 4;
+
+	private static final int MAX_RUN = 255;
+
+	private final int sizeX, sizeY, sizeZ;
+	/**
+	 * The terrain, from position 0 to limit, without any header.
+	 */
+	private final ByteBuffer terrain;
+
+	private BinaryWorldFile(int sizeX, int sizeY, int sizeZ, ByteBuffer terrain) {
+		this.sizeX = sizeX;
+		this.sizeY = sizeY;
+		this.sizeZ = sizeZ;
+		this.terrain = terrain;
+	}
+
+	/**
+	 * Opens the binary world file at the given path.
+	 *
+	 * @param path
+	 * @return	The header of the file and its terrain, mapped into memory if it is not compressed.
+	 * @throws IOException
+	 * 			If the file cannot be read or is not a valid binary world file.
+	 */
+	public static BinaryWorldFile open(Path path) throws IOException {
+		ByteBuffer file;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		return read(file);
+	}
+
+	/**
+	 * Reads a binary world from the given buffer, from its position to its limit.
+	 *
+	 * @param file
+	 * @throws IOException
+	 * 			If the buffer does not hold a valid binary world.
+	 */
+	public static BinaryWorldFile read(ByteBuffer file) throws IOException {
+		if (file.remaining() < HEADER_SIZE || file.getInt() != MAGIC)
+			throw new IOException("Not a binary world file");
+		byte version = file.get();
+		if (version != VERSION)
+			throw new IOException("Unsupported version: " + version);
+		byte flags = file.get();
+		int sizeX = file.getInt();
+		int sizeY = file.getInt();
+		int sizeZ = file.getInt();
+		if (sizeX <= 0 || sizeY <= 0 || sizeZ <= 0)
+			throw new IOException("Invalid size: " + sizeX + "x" + sizeY + "x" + sizeZ);
+		int nbCubes = sizeX * sizeY * sizeZ;
+
+		ByteBuffer terrain;
+		if ((flags & FLAG_RLE) != 0) {
+			byte[] cubes = new byte[nbCubes];
+			int index = 0;
+			while (index < nbCubes) {
+				if (file.remaining() < 2)
+					throw new IOException("Unexpected end of file at cube " + index);
+				int run = file.get() & 0xFF;
+				byte value = file.get();
+				if (run == 0 || index + run > nbCubes)
+					throw new IOException("Invalid run length at cube " + index);
+				for (int i = 0; i < run; i++)
+					cubes[index++] = value;
+			}
+			terrain = ByteBuffer.wrap(cubes);
+		} else {
+			if (file.remaining() < nbCubes)
+				throw new IOException("Unexpected end of file, expected " + nbCubes + " cubes");
+			terrain = file.slice();
+			terrain.limit(nbCubes);
+		}
+		return new BinaryWorldFile(sizeX, sizeY, sizeZ, terrain);
+	}
+
+	/**
+	 * Writes a binary world with the given sizes and terrain to the given path.
+	 *
+	 * @param path
+	 * @param sizeX
+	 * @param sizeY
+	 * @param sizeZ
+	 * @param terrain
+	 * 			The typeInts of all cubes, the cube (x, y, z) at index x + y*sizeX + z*sizeX*sizeY.
+	 * @param compress
+	 * 			Whether to run-length encode the terrain.
+	 * @throws IOException
+	 */
+	public static void write(Path path, int sizeX, int sizeY, int sizeZ, byte[] terrain, boolean compress)
+			throws IOException {
+		int nbCubes = sizeX * sizeY * sizeZ;
+		ByteBuffer file = ByteBuffer.allocate(HEADER_SIZE + (compress ? 2 * nbCubes : nbCubes));
+		file.putInt(MAGIC);
+		file.put(VERSION);
+		file.put(compress ? FLAG_RLE : 0);
+		file.putInt(sizeX);
+		file.putInt(sizeY);
+		file.putInt(sizeZ);
+		if (compress) {
+			int index = 0;
+			while (index < nbCubes) {
+				byte value = terrain[index];
+				int run = 1;
+				while (run < MAX_RUN && index + run < nbCubes && terrain[index + run] == value)
+					run++;
+				file.put((byte) run);
+				file.put(value);
+				index += run;
+			}
+		} else {
+			file.put(terrain, 0, nbCubes);
+		}
+		file.flip();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (file.hasRemaining())
+				channel.write(file);
+		}
+	}
+
+	/**
+	 * Converts the text world (.wrld) at the given source path to a binary world at the given target path.
+	 *
+	 * A text world starts with a line with the sizes in x, y and z. For every z from the top down there follows
+	 * an empty line and then one line per y with one character per x: '.' for air, 'R' for rock, 'S' for wood
+	 * and 'W' for a workshop.
+	 *
+	 * @throws IOException
+	 * 			If the source cannot be read, is not a valid text world or the target cannot be written.
+	 */
+	public static void convert(Path source, Path target, boolean compress) throws IOException {
+		BinaryWorldFile world = readText(source);
+		byte[] terrain = new byte[world.terrain.remaining()];
+		world.getTerrain().get(terrain);
+		write(target, world.sizeX, world.sizeY, world.sizeZ, terrain, compress);
+	}
+
+	/**
+	 * Reads the text world (.wrld) at the given path, as described at convert.
+	 *
+	 * @throws IOException
+	 * 			If the file cannot be read or is not a valid text world.
+	 */
+	public static BinaryWorldFile readText(Path path) throws IOException {
+		byte[] text = Files.readAllBytes(path);
+		int[] position = {0};
+		String[] sizes = nextLine(text, position).trim().split("\\s+");
+		if (sizes.length != 3)
+			throw new IOException("Expected the sizes on the first line");
+		int sizeX = Integer.parseInt(sizes[0]);
+		int sizeY = Integer.parseInt(sizes[1]);
+		int sizeZ = Integer.parseInt(sizes[2]);
+		byte[] terrain = new byte[sizeX * sizeY * sizeZ];
+		for (int z = sizeZ - 1; z >= 0; z--) {
+			if (!nextLine(text, position).trim().isEmpty())
+				throw new IOException("Expected an empty line before z = " + z);
+			for (int y = 0; y < sizeY; y++) {
+				String line = nextLine(text, position).trim();
+				if (line.length() != sizeX)
+					throw new IOException("Expected " + sizeX + " cubes for z = " + z + " and y = " + y);
+				int offset = y * sizeX + z * sizeX * sizeY;
+				for (int x = 0; x < sizeX; x++)
+					terrain[offset + x] = toTypeInt(line.charAt(x));
+			}
+		}
+		return new BinaryWorldFile(sizeX, sizeY, sizeZ, ByteBuffer.wrap(terrain));
+	}
+
+	/**
+	 * Loads the world at the given path, which is either a binary world or a text world.
+	 *
+	 * @return	| if the file starts with MAGIC then result == open(path) else result == readText(path)
+	 * @throws IOException
+	 * 			If the file cannot be read or is neither a valid binary world nor a valid text world.
+	 */
+	public static BinaryWorldFile load(Path path) throws IOException {
+		ByteBuffer magic = ByteBuffer.allocate(4);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			while (magic.hasRemaining() && channel.read(magic) >= 0)
+				;
+		}
+		magic.flip();
+		if (magic.remaining() == 4 && magic.getInt() == MAGIC)
+			return open(path);
+		return readText(path);
+	}
+
+	/**
+	 * Returns the line of the given text that starts at position[0], and moves position[0] past it.
+	 */
+	private static String nextLine(byte[] text, int[] position) throws IOException {
+		int start = position[0];
+		if (start >= text.length)
+			throw new IOException("Unexpected end of file");
+		int end = start;
+		while (end < text.length && text[end] != '\n')
+			end++;
+		position[0] = end + 1;
+		return new String(text, start, end - start, StandardCharsets.US_ASCII);
+	}
+
+	private static byte toTypeInt(char c) throws IOException {
+		switch (c) {
+		case '.':
+			return 0;
+		case 'R':
+			return 1;
+		case 'S':
+			return 2;
+		case 'W':
+			return 3;
+		default:
+			throw new IOException("Unknown type: " + c);
+		}
+	}
+
+	/**
+	 * Converts a text world to a binary world.
+	 * Usage: BinaryWorldFile source.wrld target [-rle]
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: BinaryWorldFile source.wrld target [-rle]");
+			return;
+		}
+		convert(Paths.get(args[0]), Paths.get(args[1]), args.length > 2 && args[2].equals("-rle"));
+	}
+
+	/**
+	 * Returns the size in x of the world in this file.
+	 */
+	public int getSizeX() {
+		return sizeX;
+	}
+
+	/**
+	 * Returns the size in y of the world in this file.
+	 */
+	public int getSizeY() {
+		return sizeY;
+	}
+
+	/**
+	 * Returns the size in z of the world in this file.
+	 */
+	public int getSizeZ() {
+		return sizeZ;
+	}
+
+	/**
+	 * Returns a read-only view of the terrain of this file, one typeInt per cube, the cube (x, y, z) at
+	 * index x + y*sizeX + z*sizeX*sizeY.
+	 */
+	public ByteBuffer getTerrain() {
+		return terrain.asReadOnlyBuffer();
+	}
+}
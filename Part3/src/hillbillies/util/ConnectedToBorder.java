@@ -3,32 +3,34 @@ package hillbillies.util;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
-import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Interface for a (somewhat efficient) algorithm that determines whether a
  * solid cube is connected to a border of the world through other directly
  * adjacent solid cubes.
- * 
+ *
  * The algorithm assumes two things: (1) initially, the entire world is solid;
  * (2) a cube can only transition from solid to passable.
- * 
+ *
  * USAGE: Create ONE instance of {@link ConnectedToBorder} for a world,
  * initialized with the dimensions of the world. Initially, the world is assumed
  * to be completely composed of SOLID tiles. Update the algorithm state using
  * the {@link #changeSolidToPassable(int, int, int)} method. At any point, use
  * the {@link #isSolidConnectedToBorder(int, int, int)} method to find out if a
  * cube is connected to the world.
- * 
+ *
+ * Cubes are identified by their flat index x + y * nbX + z * nbX * nbY. All
+ * searches run on reusable int arrays, and the cubes visited by a search are
+ * marked with a stamp instead of being put in a set, so an update allocates
+ * nothing but its result.
+ *
+ * Many cubes can be changed at once with {@link #changeAll(int[], int, int[], int)}.
+ * Every solid blob touched by the batch is then labelled once, instead of once
+ * per changed cube.
+ *
  * @author Koen Yskout
- * 
+ *
  * @note The problem to solve is an instance of the 'decremental dynamic
  *       connectivity' graph problem; better algorithms probably exist.
  */
@@ -38,7 +40,7 @@ public class ConnectedToBorder {
 	/**
 	 * Create a new instance of the algorithm, initialized for a world of the
 	 * given dimensions where all cubes are solid.
-	 * 
+	 *
 	 * @param nbX
 	 * @param nbY
 	 * @param nbZ
@@ -47,17 +49,26 @@ public class ConnectedToBorder {
 		this.nbX = nbX;
 		this.nbY = nbY;
 		this.nbZ = nbZ;
-		this.passable = new boolean[nbX * nbY * nbZ];
-		this.notConnected = new boolean[nbX * nbY * nbZ];
+		this.nbXY = nbX * nbY;
+		int nbCubes = nbXY * nbZ;
+		this.passable = new boolean[nbCubes];
+		this.notConnected = new boolean[nbCubes];
+		this.visitedBy = new int[nbCubes];
+		this.queue = new int[nbCubes];
+		this.tested = new int[nbCubes];
+		this.verdicts = new boolean[NB_DIRECTIONS];
+		this.search = 0;
+		this.dug = new int[1];
+		this.filled = new int[1];
 	}
 
 	/**
 	 * Returns whether the cube at the given position is a solid cube that is
 	 * connected to a border of the world through other directly adjacent solid
 	 * cubes.
-	 * 
+	 *
 	 * @note The result is pre-computed, so this query returns immediately.
-	 * 
+	 *
 	 * @param x
 	 *            The x-coordinate of the cube to test
 	 * @param y
@@ -67,25 +78,24 @@ public class ConnectedToBorder {
 	 * @return true if the cube is connected; false otherwise
 	 */
 	public boolean isSolidConnectedToBorder(int x, int y, int z) {
-		int index = getIndex(x, y, z);
-		return isSolid(index) && !notConnected[index];
+		return isSolidConnectedToBorder(getIndex(x, y, z));
 	}
 
 	/**
 	 * Make the cube at the given position solid instead of passable, and return
 	 * the list of coordinates that became connected to a border of the world
 	 * due to this change.
-	 * 
+	 *
 	 * @note This operation possibly iterates over the whole world, so it could
 	 *       take some time.
-	 * 
+	 *
 	 * @param x
 	 *            The x-coordinate of the cube to make solid
 	 * @param y
 	 *            The y-coordinate of the cube to make solid
 	 * @param z
 	 *            The z-coordinate of the cube to make solid
-	 * 
+	 *
 	 * @return The list of cube coordinates (where each coordinate is an array
 	 *         {x, y, z}) that have become connected to the border by performing
 	 *         this change. If non-empty, this always includes the provided
@@ -97,52 +107,31 @@ public class ConnectedToBorder {
 			return Collections.emptyList();
 		}
 		passable[index] = false;
-		List<Integer> coord = Arrays.asList(x, y, z);
-		// if the coordinate is at the border, or one of its solid neighbours is known to be connected, the coordinate becomes connected as well
-		// any adjacent non-connected neighbours now also become connected, and this repeats recursively
-		if (isBorder(coord) || getDirectlyAdjacentSolids(coord).stream().anyMatch(c -> isSolidConnectedToBorder(c.get(0), c.get(1), c.get(2)))) {
-			List<int[]> result = new ArrayList<>();
-			Set<List<Integer>> alreadyMadeConnected = new HashSet<>();
-			Queue<List<Integer>> stillToMakeConnected = new LinkedList<>();
-			stillToMakeConnected.add(coord);
-			while (!stillToMakeConnected.isEmpty()) {
-				List<Integer> coordToMakeConnected = stillToMakeConnected.poll();
-				if (alreadyMadeConnected.contains(coordToMakeConnected)) {
-					continue;
-				}
-				notConnected[getIndex(coordToMakeConnected)] = false;
-				alreadyMadeConnected.add(coordToMakeConnected);
-				result.add(new int[] { coordToMakeConnected.get(0), coordToMakeConnected.get(1), coordToMakeConnected.get(2) });
-				for (List<Integer> neighbour : getDirectlyAdjacentSolids(coordToMakeConnected)) {
-					if (!alreadyMadeConnected.contains(neighbour) && !isSolidConnectedToBorder(neighbour.get(0), neighbour.get(1), neighbour.get(2))) {
-						stillToMakeConnected.add(neighbour);
-					}
-				}
-			}
-			return result;
-		}
-		return Collections.emptyList();
+		filled[0] = index;
+		IndexSet changed = getReported();
+		reportConnected(filled, 1, changed);
+		return toCoordinates(changed);
 	}
 
-	
+
 	/**
 	 * Make the cube at the given position passable instead of solid, and return
 	 * the list of coordinates that are no longer connected to a border of the
 	 * world due to this change.
-	 * 
+	 *
 	 * @note This operation possibly iterates over the whole world, so it could
 	 *       take some time.
-	 * 
+	 *
 	 * @param x
 	 *            The x-coordinate of the cube to make passable
 	 * @param y
 	 *            The y-coordinate of the cube to make passable
 	 * @param z
 	 *            The z-coordinate of the cube to make passable
-	 * 
+	 *
 	 * @return The list of cube coordinates (where each coordinate is an array
 	 *         {x, y, z}) that have become disconnected from the border by
-	 *         performing this change.
+	 *         performing this change. Every coordinate occurs at most once.
 	 */
 	public List<int[]> changeSolidToPassable(int x, int y, int z) {
 		int index = getIndex(x, y, z);
@@ -151,40 +140,86 @@ public class ConnectedToBorder {
 
 		passable[index] = true;
 		notConnected[index] = true;
+		dug[0] = index;
+		IndexSet changed = getReported();
+		reportDisconnected(dug, 1, changed);
+		return toCoordinates(changed);
+	}
 
-		Set<List<Integer>> knownConnectedToBorder = new HashSet<>();
-		Set<List<Integer>> knownNotConnectedToBorder = new HashSet<>();
-		List<int[]> changed = new ArrayList<>();
-		// get all solid neighbours
-		for (List<Integer> neighbour : getDirectlyAdjacentSolids(Arrays.asList(x, y, z))) {
-			if (knownConnectedToBorder.contains(neighbour) || knownNotConnectedToBorder.contains(neighbour)) {
-				// if we already know the state of this neighbour, go to the
-				// next one
-				continue;
-			} else {
-				// if we don't already know the state of this neighbour, try to
-				// find a path to the border
-				// We want to keep track of all cubes tested while trying to
-				// find a path.
-				Set<List<Integer>> testedWhenFindingPath = new HashSet<>();
-				if (!existsPathToBorder(neighbour, knownConnectedToBorder, knownNotConnectedToBorder,
-						testedWhenFindingPath)) {
-					// no path is found, so all tested cubes are definitely NOT
-					// connected to the border
-					for (List<Integer> testedCoord : testedWhenFindingPath) {
-						knownNotConnectedToBorder.add(testedCoord);
-						notConnected[getIndex(testedCoord)] = true;
-						changed.add(new int[] { testedCoord.get(0), testedCoord.get(1), testedCoord.get(2) });
-					}
-				} else {
-					// neighbour is still connected via some path; don't
-					// change anything (but now we also know that all tested
-					// cubes are also definitely connected)
-					knownConnectedToBorder.addAll(testedWhenFindingPath);
-				}
+	/**
+	 * Make the first nbSolidToPassable of the given solidToPassable cubes
+	 * passable and the first nbPassableToSolid of the given passableToSolid
+	 * cubes solid, all at once, and return the list of coordinates whose
+	 * connection to the border changed.
+	 *
+	 * The state afterwards is the same as after making the cubes solid and then
+	 * passable one by one, but every solid blob that is touched is searched
+	 * only once.
+	 *
+	 * @param solidToPassable
+	 *            The flat indices (x + y * nbX + z * nbX * nbY) of the cubes to
+	 *            make passable. Cubes that are already passable are ignored.
+	 * @param nbSolidToPassable
+	 * @param passableToSolid
+	 *            The flat indices of the cubes to make solid. Cubes that are
+	 *            already solid, or that are also made passable, are ignored.
+	 * @param nbPassableToSolid
+	 *
+	 * @return The list of cube coordinates (where each coordinate is an array
+	 *         {x, y, z}) that have become disconnected from the border or
+	 *         connected to the border by performing these changes; use
+	 *         {@link #isSolidConnectedToBorder(int, int, int)} to tell them
+	 *         apart. Every coordinate occurs at most once.
+	 */
+	public List<int[]> changeAll(int[] solidToPassable, int nbSolidToPassable, int[] passableToSolid,
+			int nbPassableToSolid) {
+		IndexSet changed = getReported();
+		changeAll(solidToPassable, nbSolidToPassable, passableToSolid, nbPassableToSolid, changed);
+		return toCoordinates(changed);
+	}
+
+	/**
+	 * Does the same as {@link #changeAll(int[], int, int[], int)}, but adds the
+	 * flat indices of the cubes whose connection to the border changed to the
+	 * given set instead of returning their coordinates.
+	 *
+	 * @param changed
+	 *            A set for the flat indices of this world; it may already
+	 *            contain other cubes.
+	 */
+	public void changeAll(int[] solidToPassable, int nbSolidToPassable, int[] passableToSolid,
+			int nbPassableToSolid, IndexSet changed) {
+		if (filled.length < nbPassableToSolid)
+			filled = new int[nbPassableToSolid];
+		if (dug.length < nbSolidToPassable)
+			dug = new int[nbSolidToPassable];
+
+		int nbFilled = 0;
+		for (int i = 0; i < nbPassableToSolid; i++) {
+			int index = passableToSolid[i];
+			if (passable[index]) {
+				passable[index] = false;
+				filled[nbFilled++] = index;
+			}
+		}
+		int nbDug = 0;
+		for (int i = 0; i < nbSolidToPassable; i++) {
+			int index = solidToPassable[i];
+			if (!passable[index]) {
+				passable[index] = true;
+				notConnected[index] = true;
+				dug[nbDug++] = index;
 			}
 		}
-		return changed;
+
+		// Digging can only disconnect blobs and filling can only connect them,
+		// so the blobs around the dug cubes are labelled first, against the
+		// final terrain. After that every cube marked as connected really is,
+		// and the filled cubes can spread the connection. A blob found to be
+		// disconnected has no path to the border, so it is never connected
+		// again by the filled cubes.
+		reportDisconnected(dug, nbDug, changed);
+		reportConnected(filled, nbFilled, changed);
 	}
 
 	/*
@@ -192,83 +227,258 @@ public class ConnectedToBorder {
 	 * IMPLEMENTATION
 	 */
 
+	private static final int NB_DIRECTIONS = 6;
+
 	private final int nbX;
 	private final int nbY;
 	private final int nbZ;
+	private final int nbXY;
 
 	private final boolean[] passable;
 	private final boolean[] notConnected;
 
-	private int getIndex(List<Integer> coord) {
-		return getIndex(coord.get(0), coord.get(1), coord.get(2));
+	/**
+	 * The search that last visited every cube. The searches of one update have
+	 * consecutive ids, so cubes visited during an earlier update are never
+	 * mistaken for cubes of the current one.
+	 */
+	private final int[] visitedBy;
+	private int search;
+	/**
+	 * Whether the search with id first + i of the current update found the
+	 * border.
+	 */
+	private boolean[] verdicts;
+
+	/**
+	 * Reusable buffers for the cubes still to visit and the cubes tested by a
+	 * search. Every cube is added at most once per search, so they never
+	 * overflow.
+	 */
+	private final int[] queue;
+	private final int[] tested;
+
+	/**
+	 * Reusable buffers for the cubes changed by one update.
+	 */
+	private int[] dug;
+	private int[] filled;
+
+	/**
+	 * A reusable set for the cubes reported by one update that returns their
+	 * coordinates, made when it is first needed.
+	 */
+	private IndexSet reported;
+
+	private IndexSet getReported() {
+		if (reported == null)
+			reported = new IndexSet(passable.length);
+		reported.clear();
+		return reported;
 	}
 
-	private int getIndex(int x, int y, int z) {
-		return x + y * nbX + z * (nbX * nbY);
+	private List<int[]> toCoordinates(IndexSet cubes) {
+		if (cubes.isEmpty())
+			return Collections.emptyList();
+		List<int[]> result = new ArrayList<>(cubes.size());
+		for (int i = 0; i < cubes.size(); i++)
+			result.add(toCoordinate(cubes.get(i)));
+		return result;
 	}
 
-	private boolean isSolid(int index) {
-		return !passable[index];
+	/**
+	 * Searches the solid blobs around the given cubes, which have just become
+	 * passable, and adds the cubes of the blobs that are not connected to the
+	 * border to changed.
+	 */
+	private void reportDisconnected(int[] dug, int nbDug, IndexSet changed) {
+		if (nbDug == 0)
+			return;
+		// every solid neighbour gets its own search; a search that runs into a
+		// cube of an earlier search of this update has the same verdict
+		int nbSearches = NB_DIRECTIONS * nbDug;
+		if (verdicts.length < nbSearches)
+			verdicts = new boolean[nbSearches];
+		int first = nextSearch(nbSearches);
+		int id = first;
+		for (int i = 0; i < nbDug; i++) {
+			for (int direction = 0; direction < NB_DIRECTIONS; direction++) {
+				int neighbour = getSolidNeighbour(dug[i], direction);
+				if (neighbour < 0 || visitedBy[neighbour] >= first)
+					continue;
+				int nbTested = searchBorder(neighbour, id++, first);
+				// no path is found, so all tested cubes are definitely NOT
+				// connected to the border
+				for (int j = 0; j < nbTested; j++) {
+					notConnected[tested[j]] = true;
+					changed.add(tested[j]);
+				}
+			}
+		}
 	}
 
-	private boolean isBorder(List<Integer> coord) {
-		int x = coord.get(0);
-		int y = coord.get(1);
-		int z = coord.get(2);
-		return x == 0 || x == nbX - 1 || y == 0 || y == nbY - 1 || z == 0 || z == nbZ - 1;
+	/**
+	 * Makes the given cubes, which have just become solid, connected if they
+	 * lie on the border or next to a connected cube, together with every solid
+	 * cube that is reachable from them through cubes that are not yet
+	 * connected, and adds those cubes to changed.
+	 */
+	private void reportConnected(int[] filled, int nbFilled, IndexSet changed) {
+		if (nbFilled == 0)
+			return;
+		int id = nextSearch(1);
+		for (int i = 0; i < nbFilled; i++) {
+			int index = filled[i];
+			if (!isSolid(index) || visitedBy[index] == id)
+				continue;
+			if (!isBorder(index) && !hasSolidNeighbourConnectedToBorder(index))
+				continue;
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = index;
+			visitedBy[index] = id;
+			while (head < tail) {
+				int cube = queue[head++];
+				notConnected[cube] = false;
+				changed.add(cube);
+				for (int direction = 0; direction < NB_DIRECTIONS; direction++) {
+					int neighbour = getSolidNeighbour(cube, direction);
+					if (neighbour >= 0 && visitedBy[neighbour] != id && notConnected[neighbour]) {
+						visitedBy[neighbour] = id;
+						queue[tail++] = neighbour;
+					}
+				}
+			}
+		}
 	}
 
-	private final int[][] directAdjacentOffsets = new int[][] { { -1, 0, 0 }, { +1, 0, 0 }, { 0, -1, 0 }, { 0, +1, 0 },
-			{ 0, 0, -1 }, { 0, 0, +1 } };
-
-	private boolean existsPathToBorder(List<Integer> origin, Set<List<Integer>> knownAdjacent,
-			Set<List<Integer>> knownNonAdjacent, Set<List<Integer>> visited) {
-		// visited == part of solid blob connected to origin that has been
-		// visited (but not necessarily tested)
-		Deque<List<Integer>> cubesToVisit = new LinkedList<>();
-		cubesToVisit.add(origin);
-		visited.add(origin);
-		while (!cubesToVisit.isEmpty()) {
+	/**
+	 * Searches a path to the border through the solid cubes connected to the
+	 * given origin, depth first.
+	 *
+	 * @return 0 if a path was found or all tested cubes were already reported
+	 *         by an earlier search of this update; otherwise the number of
+	 *         tested cubes, which are stored at the start of tested.
+	 */
+	private int searchBorder(int origin, int id, int first) {
+		int top = 0;
+		int nbTested = 0;
+		queue[top++] = origin;
+		visitedBy[origin] = id;
+		while (top > 0) {
 			// this might take a long time - check if the impatient user has
 			// stopped us yet
-			if (Thread.currentThread().isInterrupted()) {
+			if ((nbTested & 0xFFF) == 0 && Thread.currentThread().isInterrupted()) {
 				throw new IllegalStateException();
 			}
-			List<Integer> cube = cubesToVisit.pollFirst();
-			if (knownAdjacent.contains(cube)) {
-				return true;
-			}
-			if (knownNonAdjacent.contains(cube)) {
-				return false;
-			}
+			int cube = queue[--top];
+			tested[nbTested++] = cube;
 			if (isBorder(cube)) {
-				knownAdjacent.add(cube);
-				return true;
+				verdicts[id - first] = true;
+				return 0;
 			}
-			for (List<Integer> neighbour : getDirectlyAdjacentSolids(cube)) {
-				if (!visited.contains(neighbour)) {
-					visited.add(neighbour);
-					cubesToVisit.addFirst(neighbour);
+			for (int direction = 0; direction < NB_DIRECTIONS; direction++) {
+				int neighbour = getSolidNeighbour(cube, direction);
+				if (neighbour < 0 || visitedBy[neighbour] == id)
+					continue;
+				if (visitedBy[neighbour] >= first) {
+					// the same solid blob as an earlier search of this update
+					verdicts[id - first] = verdicts[visitedBy[neighbour] - first];
+					return 0;
 				}
+				visitedBy[neighbour] = id;
+				queue[top++] = neighbour;
 			}
 		}
+		verdicts[id - first] = false;
+		return nbTested;
+	}
+
+	/**
+	 * Reserves the given number of consecutive search ids and returns the
+	 * first one.
+	 */
+	private int nextSearch(int nbSearches) {
+		if (search > Integer.MAX_VALUE - nbSearches) {
+			Arrays.fill(visitedBy, 0);
+			search = 0;
+		}
+		int first = search + 1;
+		search += nbSearches;
+		return first;
+	}
+
+	private boolean hasSolidNeighbourConnectedToBorder(int index) {
+		for (int direction = 0; direction < NB_DIRECTIONS; direction++) {
+			int neighbour = getSolidNeighbour(index, direction);
+			if (neighbour >= 0 && isSolidConnectedToBorder(neighbour))
+				return true;
+		}
 		return false;
 	}
 
-	private List<List<Integer>> getDirectlyAdjacentSolids(List<Integer> coord) {
-		return getDirectlyAdjacentCoordinates(coord).filter(c -> {
-			int x = c.get(0);
-			int y = c.get(1);
-			int z = c.get(2);
-			return x >= 0 && x < nbX && y >= 0 && y < nbY && z >= 0 && z < nbZ && isSolid(getIndex(c));
-		}).collect(Collectors.toList());
+	/**
+	 * Returns the index of the directly adjacent cube in the given direction if
+	 * it lies inside the world and is solid, and -1 otherwise.
+	 */
+	private int getSolidNeighbour(int index, int direction) {
+		int neighbour;
+		switch (direction) {
+		case 0:
+			if (index % nbX == 0)
+				return -1;
+			neighbour = index - 1;
+			break;
+		case 1:
+			if (index % nbX == nbX - 1)
+				return -1;
+			neighbour = index + 1;
+			break;
+		case 2:
+			if ((index / nbX) % nbY == 0)
+				return -1;
+			neighbour = index - nbX;
+			break;
+		case 3:
+			if ((index / nbX) % nbY == nbY - 1)
+				return -1;
+			neighbour = index + nbX;
+			break;
+		case 4:
+			if (index < nbXY)
+				return -1;
+			neighbour = index - nbXY;
+			break;
+		default:
+			if (index >= passable.length - nbXY)
+				return -1;
+			neighbour = index + nbXY;
+			break;
+		}
+		return isSolid(neighbour) ? neighbour : -1;
+	}
+
+	private int getIndex(int x, int y, int z) {
+		return x + y * nbX + z * nbXY;
+	}
+
+	private int[] toCoordinate(int index) {
+		return new int[] { index % nbX, (index / nbX) % nbY, index / nbXY };
 	}
 
-	private Stream<List<Integer>> getDirectlyAdjacentCoordinates(List<Integer> coord) {
-		List<int[]> shuffledOffsets = new ArrayList<>(Arrays.asList(directAdjacentOffsets));
-		Collections.shuffle(shuffledOffsets);
-		return shuffledOffsets.stream().map(
-				offset -> Arrays.asList(coord.get(0) + offset[0], coord.get(1) + offset[1], coord.get(2) + offset[2]));
+	private boolean isSolid(int index) {
+		return !passable[index];
+	}
+
+	private boolean isSolidConnectedToBorder(int index) {
+		return isSolid(index) && !notConnected[index];
+	}
+
+	private boolean isBorder(int index) {
+		int x = index % nbX;
+		int y = (index / nbX) % nbY;
+		int z = index / nbXY;
+		return x == 0 || x == nbX - 1 || y == 0 || y == nbY - 1 || z == 0 || z == nbZ - 1;
 	}
 
 	@Override
@@ -0,0 +1,101 @@
+package hillbillies.util;
+
+/**
+ * A set of integers in 0 .. capacity-1 that supports adding, removing and membership tests in constant time,
+ * and random access to its elements by position.
+ *
+ * Removing an element moves the last element into its place, so the order of the elements is not stable.
+ *
+ * @author HF corp.
+ * @version 1.0
+ */
+public class IndexSet {
+
+	private final int[] elements;
+	/**
+	 * The position of every value in elements, or -1 if the value is not in this set.
+	 */
+	private final int[] positions;
+	private int size;
+
+	/**
+	 * Creates a new empty set for the values 0 .. capacity-1.
+	 *
+	 * @param capacity
+	 */
+	public IndexSet(int capacity) {
+		elements = new int[capacity];
+		positions = new int[capacity];
+		for (int i = 0; i < capacity; i++)
+			positions[i] = -1;
+	}
+
+	/**
+	 * Adds the given value to this set.
+	 *
+	 * @return	True iff the value was not yet in this set.
+	 */
+	public boolean add(int value) {
+		if (positions[value] >= 0)
+			return false;
+		positions[value] = size;
+		elements[size++] = value;
+		return true;
+	}
+
+	/**
+	 * Removes the given value from this set.
+	 *
+	 * @return	True iff the value was in this set.
+	 */
+	public boolean remove(int value) {
+		int position = positions[value];
+		if (position < 0)
+			return false;
+		int last = elements[--size];
+		elements[position] = last;
+		positions[last] = position;
+		positions[value] = -1;
+		return true;
+	}
+
+	/**
+	 * Returns true iff the given value is in this set.
+	 */
+	public boolean contains(int value) {
+		return positions[value] >= 0;
+	}
+
+	/**
+	 * Returns the element at the given position.
+	 *
+	 * @param position
+	 * 			A number in [0, size()).
+	 */
+	public int get(int position) {
+		return elements[position];
+	}
+
+	/**
+	 * Returns the number of elements in this set.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns true iff this set is empty.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all elements from this set, in time proportional to its size.
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++)
+			positions[elements[i]] = -1;
+		size = 0;
+	}
+}
@@ -0,0 +1,154 @@
+package hillbillies.util;
+
+import java.util.NoSuchElementException;
+
+/**
+ * An indexed binary min-heap over the integer keys 0 .. capacity-1, ordered by a double priority.
+ *
+ * Every key can be in the heap at most once. Its priority can be lowered in O(log n) through
+ * {@link #insertOrDecrease(int, double)}, which makes this heap suitable for Dijkstra and A*.
+ *
+ * @author HF corp.
+ * @version 1.0
+ */
+public class IndexedMinHeap {
+
+	/**
+	 * The keys in heap order.
+	 */
+	private final int[] heap;
+	/**
+	 * The position of every key in the heap, or -1 if the key is not in the heap.
+	 */
+	private final int[] position;
+	/**
+	 * The priority of every key in the heap.
+	 */
+	private final double[] priority;
+	private int size;
+
+	/**
+	 * Creates a new empty heap for the keys 0 .. capacity-1.
+	 *
+	 * @param capacity
+	 * 			The number of distinct keys this heap can hold.
+	 */
+	public IndexedMinHeap(int capacity) {
+		heap = new int[capacity];
+		position = new int[capacity];
+		priority = new double[capacity];
+		for (int i = 0; i < capacity; i++)
+			position[i] = -1;
+	}
+
+	/**
+	 * Returns true iff this heap contains no keys.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the number of keys in this heap.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns true iff the given key is in this heap.
+	 */
+	public boolean contains(int key) {
+		return position[key] >= 0;
+	}
+
+	/**
+	 * Inserts the given key with the given priority, or lowers the priority of the key if it
+	 * is already in the heap with a higher priority.
+	 *
+	 * @param key
+	 * @param newPriority
+	 */
+	public void insertOrDecrease(int key, double newPriority) {
+		int pos = position[key];
+		if (pos < 0) {
+			pos = size++;
+			heap[pos] = key;
+			position[key] = pos;
+			priority[key] = newPriority;
+			siftUp(pos);
+		} else if (newPriority < priority[key]) {
+			priority[key] = newPriority;
+			siftUp(pos);
+		}
+	}
+
+	/**
+	 * Removes the key with the lowest priority from this heap and returns it.
+	 *
+	 * @throws NoSuchElementException
+	 * 			If this heap is empty.
+	 */
+	public int poll() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		int result = heap[0];
+		position[result] = -1;
+		size--;
+		if (size > 0) {
+			int last = heap[size];
+			heap[0] = last;
+			position[last] = 0;
+			siftDown(0);
+		}
+		return result;
+	}
+
+	/**
+	 * Removes all keys from this heap. This takes time proportional to the size of the heap,
+	 * not to its capacity.
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++)
+			position[heap[i]] = -1;
+		size = 0;
+	}
+
+	private void siftUp(int pos) {
+		int key = heap[pos];
+		double keyPriority = priority[key];
+		while (pos > 0) {
+			int parentPos = (pos - 1) >>> 1;
+			int parent = heap[parentPos];
+			if (priority[parent] <= keyPriority)
+				break;
+			heap[pos] = parent;
+			position[parent] = pos;
+			pos = parentPos;
+		}
+		heap[pos] = key;
+		position[key] = pos;
+	}
+
+	private void siftDown(int pos) {
+		int key = heap[pos];
+		double keyPriority = priority[key];
+		int half = size >>> 1;
+		while (pos < half) {
+			int childPos = 2 * pos + 1;
+			int child = heap[childPos];
+			int rightPos = childPos + 1;
+			if (rightPos < size && priority[heap[rightPos]] < priority[child]) {
+				childPos = rightPos;
+				child = heap[childPos];
+			}
+			if (keyPriority <= priority[child])
+				break;
+			heap[pos] = child;
+			position[child] = pos;
+			pos = childPos;
+		}
+		heap[pos] = key;
+		position[key] = pos;
+	}
+}
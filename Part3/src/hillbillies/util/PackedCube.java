@@ -0,0 +1,73 @@
+package hillbillies.util;
+
+/**
+ * Static helpers to pack the coordinates of a cube into a single long.
+ *
+ * Every coordinate takes 21 bits, as a two's complement number, so coordinates from -2^20 to 2^20-1 can be packed,
+ * including the coordinates just outside a world. Two packed cubes are equal iff their coordinates are, so packed
+ * cubes can be compared with == and used as keys by value, unlike int arrays {x, y, z}.
+ *
+ * Inside a single world the flat index x + y * sizeX + z * sizeX * sizeY is used instead, see World.getIndex.
+ *
+ * @author HF corp.
+ * @version 1.0
+ */
+public final class PackedCube {
+
+	private static final int BITS = 21;
+	private static final long MASK = (1L << BITS) - 1;
+
+	/**
+	 * The value that stands for no cube at all. It is never the result of pack.
+	 */
+	public static final long NONE = Long.MIN_VALUE;
+
+	private PackedCube() {
+	}
+
+	/**
+	 * Returns the packed cube with the given coordinates.
+	 *
+	 * @return	| getX(result) == x && getY(result) == y && getZ(result) == z
+	 */
+	public static long pack(int x, int y, int z) {
+		return ((x & MASK) << (2 * BITS)) | ((y & MASK) << BITS) | (z & MASK);
+	}
+
+	/**
+	 * Returns the packed cube with the given coordinates {x, y, z}, or NONE if the given array is null.
+	 */
+	public static long pack(int[] cube) {
+		if (cube == null)
+			return NONE;
+		return pack(cube[0], cube[1], cube[2]);
+	}
+
+	public static int getX(long cube) {
+		return (int) ((cube << (64 - 3 * BITS)) >> (64 - BITS));
+	}
+
+	public static int getY(long cube) {
+		return (int) ((cube << (64 - 2 * BITS)) >> (64 - BITS));
+	}
+
+	public static int getZ(long cube) {
+		return (int) ((cube << (64 - BITS)) >> (64 - BITS));
+	}
+
+	/**
+	 * Returns the coordinates {x, y, z} of the given packed cube, or null if it is NONE.
+	 */
+	public static int[] toArray(long cube) {
+		if (cube == NONE)
+			return null;
+		return new int[] { getX(cube), getY(cube), getZ(cube) };
+	}
+
+	/**
+	 * Returns the given packed cube as "(x, y, z)".
+	 */
+	public static String toString(long cube) {
+		return "(" + getX(cube) + ", " + getY(cube) + ", " + getZ(cube) + ")";
+	}
+}
@@ -0,0 +1,70 @@
+package hillbillies.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a loop over a range of integers in parallel on a fork-join pool.
+ *
+ * The range is split in halves until the parts hold at most grain integers, and every part is run by one thread.
+ * The body must only write state that belongs to the integers of its own part, so the result does not depend on
+ * how the parts are scheduled.
+ *
+ * @author HF corp.
+ * @version 1.0
+ */
+public final class ParallelRange {
+
+	/**
+	 * The body of a loop, run for the integers from, ..., to-1.
+	 */
+	public static interface Body {
+		void run(int from, int to);
+	}
+
+	private ParallelRange() {
+	}
+
+	/**
+	 * Runs the given body for the integers from, ..., to-1, on the given pool.
+	 *
+	 * @param pool
+	 * 			The pool to run on, or null to run the whole range on the calling thread. A pool with a parallelism of
+	 * 			1 also runs it on the calling thread.
+	 * @param grain
+	 * 			The largest number of integers that is not split any further.
+	 */
+	public static void run(ForkJoinPool pool, int from, int to, int grain, Body body) {
+		if (pool == null || pool.getParallelism() <= 1 || to - from <= grain) {
+			if (from < to)
+				body.run(from, to);
+			return;
+		}
+		pool.invoke(new Part(from, to, Math.max(grain, 1), body));
+	}
+
+	private static class Part extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from, to, grain;
+		private final Body body;
+
+		private Part(int from, int to, int grain, Body body) {
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+			this.body = body;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= grain) {
+				body.run(from, to);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new Part(from, middle, grain, body), new Part(middle, to, grain, body));
+		}
+	}
+}
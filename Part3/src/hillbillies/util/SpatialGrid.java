@@ -0,0 +1,343 @@
+package hillbillies.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A uniform grid over a world of sizeX by sizeY by sizeZ cubes that indexes elements by their position.
+ *
+ * The grid is divided into cells of cellSize by cellSize by cellSize cubes. Every cell keeps the elements
+ * whose position lies in it, so point, box and radius queries only visit the cells they overlap instead of
+ * every element. Moving an element within its cell only updates its stored position.
+ *
+ * Elements are compared by equals, like the keys of a HashMap. Every element also gets a sequence number when it
+ * is added, which breaks ties between elements at the same distance, so queries do not depend on hash codes.
+ *
+ * @author HF corp.
+ * @version 1.0
+ */
+public class SpatialGrid<T> {
+
+	/**
+	 * An element of this grid with its position and the cell it lies in.
+	 */
+	private static class Entry<T> {
+		private final T element;
+		/**
+		 * The number of elements that were added to the grid before this one.
+		 */
+		private final long sequence;
+		private double x, y, z;
+		private int cell;
+
+		private Entry(T element, long sequence) {
+			this.element = element;
+			this.sequence = sequence;
+		}
+
+		/**
+		 * Returns true iff this entry, at the given squared distance, lies nearer than the given entry at the
+		 * other squared distance, or as near and was added before it.
+		 */
+		private boolean isNearerThan(double distanceSquared, Entry<T> other, double otherSquared) {
+			return other == null || distanceSquared < otherSquared
+					|| (distanceSquared == otherSquared && sequence < other.sequence);
+		}
+	}
+
+	private final int cellSize;
+	private final int nbCellsX, nbCellsY, nbCellsZ;
+	/**
+	 * The entries in every cell, or null for a cell that never held one.
+	 */
+	private final ArrayList<Entry<T>>[] cells;
+	private final Map<T, Entry<T>> entries = new HashMap<>();
+	private long nbAdded;
+
+	/**
+	 * Creates a new empty grid over a world with the given sizes.
+	 *
+	 * @param sizeX
+	 * @param sizeY
+	 * @param sizeZ
+	 * @param cellSize
+	 * 			The size in cubes of a cell along every axis, 1 to key the elements by cube.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public SpatialGrid(int sizeX, int sizeY, int sizeZ, int cellSize) {
+		if (cellSize <= 0)
+			throw new IllegalArgumentException("Invalid cell size: " + cellSize);
+		this.cellSize = cellSize;
+		nbCellsX = (sizeX + cellSize - 1) / cellSize;
+		nbCellsY = (sizeY + cellSize - 1) / cellSize;
+		nbCellsZ = (sizeZ + cellSize - 1) / cellSize;
+		cells = new ArrayList[nbCellsX * nbCellsY * nbCellsZ];
+	}
+
+	/**
+	 * Adds the given element at the given position, or moves it there if it is already in this grid.
+	 */
+	public void put(T element, double x, double y, double z) {
+		Entry<T> entry = entries.get(element);
+		int cell = getCell(x, y, z);
+		if (entry == null) {
+			entry = new Entry<>(element, nbAdded++);
+			entries.put(element, entry);
+			addToCell(entry, cell);
+		} else if (entry.cell != cell) {
+			removeFromCell(entry);
+			addToCell(entry, cell);
+		}
+		entry.x = x;
+		entry.y = y;
+		entry.z = z;
+	}
+
+	/**
+	 * Removes the given element from this grid.
+	 *
+	 * @return	True iff the element was in this grid.
+	 */
+	public boolean remove(T element) {
+		Entry<T> entry = entries.remove(element);
+		if (entry == null)
+			return false;
+		removeFromCell(entry);
+		return true;
+	}
+
+	/**
+	 * Returns true iff the given element is in this grid.
+	 */
+	public boolean contains(T element) {
+		return entries.containsKey(element);
+	}
+
+	/**
+	 * Returns the number of elements in this grid.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Removes all elements from this grid.
+	 */
+	public void clear() {
+		for (Entry<T> entry : entries.values())
+			cells[entry.cell].clear();
+		entries.clear();
+	}
+
+	/**
+	 * Returns an element whose position lies in the cube (x, y, z) and that satisfies the given filter,
+	 * or null if there is none.
+	 *
+	 * @param filter
+	 * 			The filter, or null to accept every element.
+	 */
+	public T findInCube(int x, int y, int z, Predicate<? super T> filter) {
+		if (!isInGrid(x, y, z))
+			return null;
+		ArrayList<Entry<T>> cell = cells[getCell(x, y, z)];
+		if (cell == null)
+			return null;
+		for (int i = 0; i < cell.size(); i++) {
+			Entry<T> entry = cell.get(i);
+			if ((int) entry.x == x && (int) entry.y == y && (int) entry.z == z
+					&& (filter == null || filter.test(entry.element)))
+				return entry.element;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the element that satisfies the given filter and whose position lies nearest to the given position,
+	 * or null if there is none. Of the elements that lie nearest, the one that was added first is returned.
+	 *
+	 * The cells are searched in shells of growing distance around the cell of the given position, until no
+	 * unvisited cell can hold an element nearer than the best one found. Once more cells would be visited than
+	 * there are elements, the remaining elements are scanned directly instead.
+	 *
+	 * @param filter
+	 * 			The filter, or null to accept every element.
+	 */
+	public T findNearest(double x, double y, double z, Predicate<? super T> filter) {
+		int centerX = clamp(x, nbCellsX), centerY = clamp(y, nbCellsY), centerZ = clamp(z, nbCellsZ);
+		int maxShell = Math.max(Math.max(Math.max(centerX, nbCellsX - 1 - centerX),
+				Math.max(centerY, nbCellsY - 1 - centerY)), Math.max(centerZ, nbCellsZ - 1 - centerZ));
+		Entry<T> nearest = null;
+		double nearestSquared = Double.MAX_VALUE;
+		int nbVisited = 0;
+		for (int shell = 0; shell <= maxShell; shell++) {
+			if (nbVisited > entries.size())
+				return findNearestDirectly(x, y, z, filter);
+			int lowZ = Math.max(centerZ - shell, 0), highZ = Math.min(centerZ + shell, nbCellsZ - 1);
+			int lowY = Math.max(centerY - shell, 0), highY = Math.min(centerY + shell, nbCellsY - 1);
+			int lowX = Math.max(centerX - shell, 0), highX = Math.min(centerX + shell, nbCellsX - 1);
+			for (int cz = lowZ; cz <= highZ; cz++) {
+				for (int cy = lowY; cy <= highY; cy++) {
+					boolean onShell = Math.abs(cz - centerZ) == shell || Math.abs(cy - centerY) == shell;
+					// Inside the shell only its two faces along x remain.
+					int step = onShell ? 1 : 2 * shell;
+					for (int cx = onShell ? lowX : centerX - shell; cx <= highX; cx += step) {
+						if (cx < 0)
+							continue;
+						nbVisited++;
+						ArrayList<Entry<T>> cell = cells[(cz * nbCellsY + cy) * nbCellsX + cx];
+						if (cell == null)
+							continue;
+						for (int i = 0; i < cell.size(); i++) {
+							Entry<T> entry = cell.get(i);
+							double dx = entry.x - x, dy = entry.y - y, dz = entry.z - z;
+							double distanceSquared = dx * dx + dy * dy + dz * dz;
+							if (entry.isNearerThan(distanceSquared, nearest, nearestSquared)
+									&& (filter == null || filter.test(entry.element))) {
+								nearest = entry;
+								nearestSquared = distanceSquared;
+							}
+						}
+					}
+				}
+			}
+			// Every unvisited cell lies at least shell cells away from the cell of the given position, an element in it
+			// can still tie with the nearest one.
+			double bound = (double) shell * cellSize;
+			if (nearest != null && nearestSquared < bound * bound)
+				break;
+		}
+		return nearest == null ? null : nearest.element;
+	}
+
+	/**
+	 * Returns the element that satisfies the given filter and whose position lies nearest to the given position,
+	 * by scanning every element.
+	 */
+	private T findNearestDirectly(double x, double y, double z, Predicate<? super T> filter) {
+		Entry<T> nearest = null;
+		double nearestSquared = Double.MAX_VALUE;
+		for (Entry<T> entry : entries.values()) {
+			double dx = entry.x - x, dy = entry.y - y, dz = entry.z - z;
+			double distanceSquared = dx * dx + dy * dy + dz * dz;
+			if (entry.isNearerThan(distanceSquared, nearest, nearestSquared)
+					&& (filter == null || filter.test(entry.element))) {
+				nearest = entry;
+				nearestSquared = distanceSquared;
+			}
+		}
+		return nearest == null ? null : nearest.element;
+	}
+
+	/**
+	 * Adds every element whose position lies in the cube (x, y, z) to the given collection.
+	 *
+	 * @return	The given collection.
+	 */
+	public <C extends Collection<? super T>> C getInCube(int x, int y, int z, C result) {
+		return getInBox(x, y, z, x + 1, y + 1, z + 1, result);
+	}
+
+	/**
+	 * Adds every element whose position lies in the box [minX, maxX) x [minY, maxY) x [minZ, maxZ) to the
+	 * given collection.
+	 *
+	 * @return	The given collection.
+	 */
+	public <C extends Collection<? super T>> C getInBox(double minX, double minY, double minZ, double maxX,
+			double maxY, double maxZ, C result) {
+		int lowX = clamp(minX, nbCellsX), highX = clamp(maxX, nbCellsX);
+		int lowY = clamp(minY, nbCellsY), highY = clamp(maxY, nbCellsY);
+		int lowZ = clamp(minZ, nbCellsZ), highZ = clamp(maxZ, nbCellsZ);
+		for (int cz = lowZ; cz <= highZ; cz++) {
+			for (int cy = lowY; cy <= highY; cy++) {
+				int offset = (cz * nbCellsY + cy) * nbCellsX;
+				for (int cx = lowX; cx <= highX; cx++) {
+					ArrayList<Entry<T>> cell = cells[offset + cx];
+					if (cell == null)
+						continue;
+					for (int i = 0; i < cell.size(); i++) {
+						Entry<T> entry = cell.get(i);
+						if (minX <= entry.x && entry.x < maxX && minY <= entry.y && entry.y < maxY
+								&& minZ <= entry.z && entry.z < maxZ)
+							result.add(entry.element);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Adds every element whose position lies at a distance of at most the given radius from the given position
+	 * to the given collection.
+	 *
+	 * @return	The given collection.
+	 */
+	public <C extends Collection<? super T>> C getInRadius(double x, double y, double z, double radius,
+			C result) {
+		int lowX = clamp(x - radius, nbCellsX), highX = clamp(x + radius, nbCellsX);
+		int lowY = clamp(y - radius, nbCellsY), highY = clamp(y + radius, nbCellsY);
+		int lowZ = clamp(z - radius, nbCellsZ), highZ = clamp(z + radius, nbCellsZ);
+		double radiusSquared = radius * radius;
+		for (int cz = lowZ; cz <= highZ; cz++) {
+			for (int cy = lowY; cy <= highY; cy++) {
+				int offset = (cz * nbCellsY + cy) * nbCellsX;
+				for (int cx = lowX; cx <= highX; cx++) {
+					ArrayList<Entry<T>> cell = cells[offset + cx];
+					if (cell == null)
+						continue;
+					for (int i = 0; i < cell.size(); i++) {
+						Entry<T> entry = cell.get(i);
+						double dx = entry.x - x, dy = entry.y - y, dz = entry.z - z;
+						if (dx * dx + dy * dy + dz * dz <= radiusSquared)
+							result.add(entry.element);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private boolean isInGrid(int x, int y, int z) {
+		return x >= 0 && y >= 0 && z >= 0 && x / cellSize < nbCellsX && y / cellSize < nbCellsY
+				&& z / cellSize < nbCellsZ;
+	}
+
+	/**
+	 * Returns the cell that holds the given position. Positions outside the world are put in the nearest cell.
+	 */
+	private int getCell(double x, double y, double z) {
+		return (clamp(z, nbCellsZ) * nbCellsY + clamp(y, nbCellsY)) * nbCellsX + clamp(x, nbCellsX);
+	}
+
+	/**
+	 * Returns the cell coordinate of the given coordinate, clamped to 0 .. nbCells-1.
+	 */
+	private int clamp(double coordinate, int nbCells) {
+		if (coordinate <= 0)
+			return 0;
+		int cell = (int) coordinate / cellSize;
+		return cell < nbCells ? cell : nbCells - 1;
+	}
+
+	private void addToCell(Entry<T> entry, int cell) {
+		if (cells[cell] == null)
+			cells[cell] = new ArrayList<>(2);
+		cells[cell].add(entry);
+		entry.cell = cell;
+	}
+
+	/**
+	 * Removes the given entry from its cell by moving the last entry of that cell into its place.
+	 */
+	private void removeFromCell(Entry<T> entry) {
+		ArrayList<Entry<T>> cell = cells[entry.cell];
+		int last = cell.size() - 1;
+		int position = cell.indexOf(entry);
+		cell.set(position, cell.get(last));
+		cell.remove(last);
+	}
+}
@@ -0,0 +1,234 @@
+package hillbillies.util;
+
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timer wheel, which fires the items that are scheduled at a time once it is advanced to that time.
+ *
+ * Time is divided into slots of a fixed resolution. The lowest level of the wheel has a list of timers for each of
+ * the next SLOTS slots, every next level has a list for each of the next SLOTS blocks of the level below it. A timer
+ * is kept in the lowest level whose block it shares with the current slot; when the wheel reaches the block of a list
+ * of a higher level, the timers in that list are moved down. Timers that lie beyond the highest level wait in a
+ * separate list until the highest level wraps around.
+ *
+ * Scheduling and cancelling a timer take constant time. Advancing the wheel takes time in proportion to the number
+ * of slots it passes and the number of timers it fires or moves down. A timer fires at the first advance to a time
+ * in its slot or later, so it may fire up to one resolution before its time, but never after it.
+ *
+ * @author HF corp.
+ * @version 1.0
+ */
+public class TimerWheel<T> {
+
+	private static final int BITS = 6;
+	private static final int SLOTS = 1 << BITS;
+	private static final int MASK = SLOTS - 1;
+	private static final int LEVELS = 4;
+
+	/**
+	 * A scheduled item, which can be cancelled as long as it has not fired.
+	 */
+	public static final class Timer<T> {
+
+		private final T item;
+		private final double time;
+		private final long slot;
+		private Timer<T> previous, next;
+
+		private Timer(T item, double time, long slot) {
+			this.item = item;
+			this.time = time;
+			this.slot = slot;
+		}
+
+		public T getItem() {
+			return item;
+		}
+
+		/**
+		 * Returns the time at which this timer fires.
+		 */
+		public double getTime() {
+			return time;
+		}
+
+		/**
+		 * Returns true iff this timer has neither fired nor been cancelled.
+		 */
+		public boolean isScheduled() {
+			return next != null;
+		}
+	}
+
+	private final double resolution;
+	/**
+	 * The sentinels of the circular lists of every slot of every level.
+	 */
+	private final Timer<T>[][] lists;
+	/**
+	 * The sentinel of the list of timers that lie beyond the highest level.
+	 */
+	private final Timer<T> overflow;
+	/**
+	 * The sentinel of the list of timers whose slot had already been passed when they were scheduled.
+	 */
+	private final Timer<T> overdue;
+	/**
+	 * The last slot that was passed.
+	 */
+	private long current;
+	private int size;
+
+	/**
+	 * Creates a new empty wheel.
+	 *
+	 * @param resolution
+	 * 			The length of one slot.
+	 * @param time
+	 * 			The time to which the wheel has been advanced.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public TimerWheel(double resolution, double time) {
+		if (!(resolution > 0))
+			throw new IllegalArgumentException("The resolution must be positive: " + resolution);
+		this.resolution = resolution;
+		lists = new Timer[LEVELS][SLOTS];
+		for (int level = 0; level < LEVELS; level++) {
+			for (int index = 0; index < SLOTS; index++)
+				lists[level][index] = sentinel();
+		}
+		overflow = sentinel();
+		overdue = sentinel();
+		current = slotOf(time);
+	}
+
+	private static <T> Timer<T> sentinel() {
+		Timer<T> sentinel = new Timer<T>(null, 0, 0);
+		sentinel.previous = sentinel;
+		sentinel.next = sentinel;
+		return sentinel;
+	}
+
+	/**
+	 * Returns the number of scheduled timers.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Schedules the given item at the given time.
+	 *
+	 * @return	A timer through which the item can be cancelled.
+	 */
+	public Timer<T> schedule(T item, double time) {
+		Timer<T> timer = new Timer<T>(item, time, slotOf(time));
+		place(timer, timer.slot <= current);
+		size++;
+		return timer;
+	}
+
+	/**
+	 * Cancels the given timer.
+	 *
+	 * @return	True iff the timer had neither fired nor been cancelled.
+	 */
+	public boolean cancel(Timer<T> timer) {
+		if (!timer.isScheduled())
+			return false;
+		unlink(timer);
+		size--;
+		return true;
+	}
+
+	/**
+	 * Advances this wheel to the given time, and gives the item of every timer that fires to the given action.
+	 * The action may schedule and cancel timers. Timers it schedules at or before the given time fire at the next
+	 * advance.
+	 */
+	public void advance(double time, Consumer<? super T> action) {
+		long target = slotOf(time);
+		int nbOverdue = 0;
+		for (Timer<T> timer = overdue.next; timer != overdue; timer = timer.next)
+			nbOverdue++;
+		fire(overdue, nbOverdue, action);
+		if (size == 0) {
+			current = Math.max(current, target);
+			return;
+		}
+		while (current < target) {
+			current++;
+			for (int level = LEVELS - 1; level > 0; level--) {
+				if ((current & ((1L << (BITS * level)) - 1)) == 0)
+					cascade(lists[level][index(current, level)]);
+			}
+			if ((current & ((1L << (BITS * LEVELS)) - 1)) == 0)
+				cascade(overflow);
+			Timer<T> list = lists[0][index(current, 0)];
+			if (list.next != list)
+				fire(list, Integer.MAX_VALUE, action);
+		}
+	}
+
+	/**
+	 * Fires at most the given number of timers from the front of the given list.
+	 */
+	private void fire(Timer<T> list, int count, Consumer<? super T> action) {
+		for (int i = 0; i < count && list.next != list; i++) {
+			Timer<T> timer = list.next;
+			unlink(timer);
+			size--;
+			action.accept(timer.item);
+		}
+	}
+
+	/**
+	 * Moves the timers in the given list to the level at which they now belong. Timers in the current slot go to
+	 * the lowest level, which fires them right after.
+	 */
+	private void cascade(Timer<T> list) {
+		Timer<T> timer = list.next;
+		list.next = list;
+		list.previous = list;
+		while (timer != list) {
+			Timer<T> next = timer.next;
+			place(timer, false);
+			timer = next;
+		}
+	}
+
+	private void place(Timer<T> timer, boolean overdue) {
+		long slot = timer.slot;
+		Timer<T> list;
+		if (overdue) {
+			list = this.overdue;
+		} else {
+			list = overflow;
+			for (int level = 0; level < LEVELS; level++) {
+				if ((slot >> (BITS * (level + 1))) == (current >> (BITS * (level + 1)))) {
+					list = lists[level][index(slot, level)];
+					break;
+				}
+			}
+		}
+		timer.previous = list.previous;
+		timer.next = list;
+		list.previous.next = timer;
+		list.previous = timer;
+	}
+
+	private void unlink(Timer<T> timer) {
+		timer.previous.next = timer.next;
+		timer.next.previous = timer.previous;
+		timer.previous = null;
+		timer.next = null;
+	}
+
+	private static int index(long slot, int level) {
+		return (int) (slot >> (BITS * level)) & MASK;
+	}
+
+	private long slotOf(double time) {
+		return (long) Math.floor(time / resolution);
+	}
+}
@@ -0,0 +1,134 @@
+package ogp.framework.game;
+
+/**
+ * Turns elapsed wall-clock time into a number of ticks of a fixed length.
+ *
+ * Elapsed time, multiplied by the time scale, is added to an accumulator, and every whole tick in it is run. At most
+ * maxTicksPerUpdate ticks times the time scale are run for one update; the in-game time of the ticks beyond that is
+ * dropped rather than carried over, so a game that cannot keep up slows down instead of falling ever further behind.
+ * The time that is left in the accumulator, less than one tick, is the lag of the game behind the wall clock.
+ *
+ * With an UNLIMITED time scale the game is not tied to the wall clock at all; it runs as many ticks as it can, and
+ * advance returns no ticks.
+ *
+ * The settings may be changed from any thread, but advance must always be called from the same thread.
+ */
+public class FixedTimestep {
+
+	/**
+	 * The time scale at which the game runs as fast as possible.
+	 */
+	public static final double UNLIMITED = Double.POSITIVE_INFINITY;
+
+	private volatile double tickLength;
+	private volatile int maxTicksPerUpdate;
+	private volatile double timeScale = 1;
+
+	private volatile double accumulator;
+	private volatile double droppedTime;
+
+	/**
+	 * @param tickLength
+	 *            The in-game time of one tick, in seconds.
+	 * @param maxTicksPerUpdate
+	 *            The largest number of ticks that one update runs.
+	 */
+	public FixedTimestep(double tickLength, int maxTicksPerUpdate) {
+		setTickLength(tickLength);
+		setMaxTicksPerUpdate(maxTicksPerUpdate);
+	}
+
+	/**
+	 * Adds the given wall-clock time, and returns the number of ticks to run now.
+	 *
+	 * @param elapsed
+	 *            The wall-clock time since the previous update, in seconds.
+	 */
+	public int advance(double elapsed) {
+		double tick = tickLength;
+		double scale = timeScale;
+		if (scale == UNLIMITED) {
+			accumulator = 0;
+			return 0;
+		}
+		double time = accumulator + Math.max(elapsed, 0) * scale;
+		int ticks = (int) Math.min(time / tick, Math.ceil(maxTicksPerUpdate * Math.max(scale, 1)));
+		time -= ticks * tick;
+		if (time >= tick) {
+			double dropped = time - time % tick;
+			droppedTime += dropped;
+			time -= dropped;
+		}
+		accumulator = time;
+		return ticks;
+	}
+
+	/**
+	 * Returns the wall-clock time until the next tick is due, in seconds, which is 0 if the time scale is unlimited.
+	 */
+	public double getTimeUntilNextTick() {
+		return Math.max(tickLength - accumulator, 0) / timeScale;
+	}
+
+	/**
+	 * Forgets the time in the accumulator, for example when the game is paused.
+	 */
+	public void resetLag() {
+		accumulator = 0;
+	}
+
+	public double getTickLength() {
+		return tickLength;
+	}
+
+	public void setTickLength(double tickLength) {
+		if (!(tickLength > 0))
+			throw new IllegalArgumentException("The tick length must be positive: " + tickLength);
+		this.tickLength = tickLength;
+	}
+
+	public int getMaxTicksPerUpdate() {
+		return maxTicksPerUpdate;
+	}
+
+	public void setMaxTicksPerUpdate(int maxTicksPerUpdate) {
+		if (maxTicksPerUpdate < 1)
+			throw new IllegalArgumentException("At least one tick must be allowed: " + maxTicksPerUpdate);
+		this.maxTicksPerUpdate = maxTicksPerUpdate;
+	}
+
+	public double getTimeScale() {
+		return timeScale;
+	}
+
+	/**
+	 * Returns true iff the game runs as fast as possible.
+	 */
+	public boolean isUnlimited() {
+		return timeScale == UNLIMITED;
+	}
+
+	/**
+	 * Sets the number of in-game seconds per wall-clock second, or UNLIMITED to run as fast as possible.
+	 */
+	public void setTimeScale(double timeScale) {
+		if (!(timeScale > 0))
+			throw new IllegalArgumentException("The time scale must be positive: " + timeScale);
+		this.timeScale = timeScale;
+	}
+
+	/**
+	 * Returns the in-game time that has not been run yet, less than one tick, in seconds.
+	 */
+	public double getLag() {
+		return accumulator;
+	}
+
+	/**
+	 * Returns the in-game time that was dropped because an update would have run more than maxTicksPerUpdate
+	 * ticks times the time scale, in seconds.
+	 */
+	public double getDroppedTime() {
+		return droppedTime;
+	}
+}
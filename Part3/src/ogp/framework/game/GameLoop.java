@@ -3,65 +3,176 @@ package ogp.framework.game;
 import javafx.animation.AnimationTimer;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 
+/**
+ * Updates a game in ticks of a fixed length and refreshes its view every frame.
+ *
+ * The wall-clock time of every frame, multiplied by the time scale, is turned into whole ticks by a FixedTimestep,
+ * so the game always advances by the same step whatever the frame rate. A frame runs at most maxTicksPerFrame
+ * ticks times the time scale; the time beyond that is dropped and shows up in the dropped time. However many ticks
+ * a frame runs, only the state after the last one is rendered. With an UNLIMITED time scale, every frame runs ticks
+ * for UNLIMITED_FRAME_BUDGET of wall-clock time.
+ */
 public class GameLoop {
+
+	public static final double DEFAULT_TICK_LENGTH = 0.02;
+	public static final int DEFAULT_MAX_TICKS_PER_FRAME = 10;
+	public static final double UNLIMITED = FixedTimestep.UNLIMITED;
+	/**
+	 * The wall-clock time a frame spends on ticks when the game runs as fast as possible, in seconds; the rest of a
+	 * frame at 60 frames per second is left for rendering.
+	 */
+	public static final double UNLIMITED_FRAME_BUDGET = 0.012;
+
 	private final AnimationTimer mainLoop;
 
 	private BooleanProperty paused = new SimpleBooleanProperty(false);
 	private DoubleProperty inGameTime = new SimpleDoubleProperty();
+	private DoubleProperty timeScale = new SimpleDoubleProperty(1);
+	private ReadOnlyDoubleWrapper tickLag = new ReadOnlyDoubleWrapper();
+	private ReadOnlyDoubleWrapper droppedTime = new ReadOnlyDoubleWrapper();
+
+	private final FixedTimestep timestep = new FixedTimestep(DEFAULT_TICK_LENGTH, DEFAULT_MAX_TICKS_PER_FRAME);
 
-	private final double DEFAULT_MAX_IN_GAME_TIMESTEP = Double.POSITIVE_INFINITY;
+	private final IGameController<?> game;
 
-	private double maxTimeStep;
+	/**
+	 * The thread that updates the game, or null if the game is updated on the render thread before every frame.
+	 */
+	private SimulationThread simulation;
 
 	public GameLoop(IGameController<?> game) {
+		this.game = game;
 		IGameView view = game.getView();
-		this.maxTimeStep = DEFAULT_MAX_IN_GAME_TIMESTEP;
 		mainLoop = new AnimationTimer() {
 			private long previous = 0;
 
 			@Override
 			public void handle(long now) {
 				if (!paused.get()) {
-					if (previous > 0) {
-						double dt = (now - previous) / 1e9;
-						double dtStep = Math.min(dt, getMaxTimeStep());
-						for (int i = 0; i < dtStep / dt; i++) {
-							inGameTime.set(inGameTime.get() + dtStep);
-							game.updateGame(dtStep);
+					if (simulation != null) {
+						inGameTime.set(simulation.getInGameTime());
+						((IConcurrentGameController<?>) game).consumeSnapshot();
+					} else if (timestep.isUnlimited()) {
+						long end = System.nanoTime() + (long) (UNLIMITED_FRAME_BUDGET * 1e9);
+						double tickLength = timestep.getTickLength();
+						do {
+							inGameTime.set(inGameTime.get() + tickLength);
+							game.updateGame(tickLength);
+						} while (System.nanoTime() < end);
+					} else if (previous > 0) {
+						int ticks = timestep.advance((now - previous) / 1e9);
+						double tickLength = timestep.getTickLength();
+						for (int i = 0; i < ticks; i++) {
+							inGameTime.set(inGameTime.get() + tickLength);
+							game.updateGame(tickLength);
 						}
 					}
+					tickLag.set(timestep.getLag());
+					droppedTime.set(timestep.getDroppedTime());
 					view.refreshDisplay();
 				}
 				previous = now;
 			}
 		};
+		paused.addListener((observable, oldValue, newValue) -> {
+			if (simulation != null)
+				simulation.setPaused(newValue);
+			else
+				timestep.resetLag();
+		});
+		timeScale.addListener((observable, oldValue, newValue) -> timestep.setTimeScale(newValue.doubleValue()));
+	}
+
+	/**
+	 * Updates the game on its own thread from now on, with the same ticks. Every frame then renders the latest
+	 * snapshot the game published, so a slow update never delays a frame.
+	 *
+	 * @throws IllegalStateException
+	 *             If the game does not support being updated on another thread, or this loop already uses a
+	 *             simulation thread.
+	 */
+	public void useSimulationThread() {
+		if (!(game instanceof IConcurrentGameController))
+			throw new IllegalStateException("The game must be updated on the render thread");
+		if (simulation != null)
+			throw new IllegalStateException("This loop already uses a simulation thread");
+		simulation = new SimulationThread((IConcurrentGameController<?>) game, timestep);
+		simulation.setPaused(paused.get());
+	}
+
+	/**
+	 * Returns the thread that updates the game, or null if the game is updated on the render thread.
+	 */
+	public SimulationThread getSimulationThread() {
+		return simulation;
+	}
+
+	/**
+	 * Returns the in-game time of one tick, in seconds.
+	 */
+	public double getTickLength() {
+		return timestep.getTickLength();
 	}
 
-	protected double getMaxTimeStep() {
-		return maxTimeStep;
+	public void setTickLength(double tickLength) {
+		timestep.setTickLength(tickLength);
 	}
 
-	public void setMaxTimeStep(double maxTimeStep) {
-		this.maxTimeStep = maxTimeStep;
+	/**
+	 * Returns the largest number of ticks that are run to catch up with the wall clock at once.
+	 */
+	public int getMaxTicksPerFrame() {
+		return timestep.getMaxTicksPerUpdate();
+	}
+
+	public void setMaxTicksPerFrame(int maxTicksPerFrame) {
+		timestep.setMaxTicksPerUpdate(maxTicksPerFrame);
 	}
 
 	public DoubleProperty inGameTimeProperty() {
 		return inGameTime;
 	}
 
+	/**
+	 * The number of in-game seconds per wall-clock second, 1 by default, or UNLIMITED to run as fast as possible.
+	 */
+	public DoubleProperty timeScaleProperty() {
+		return timeScale;
+	}
+
+	/**
+	 * The in-game time that the game lags behind the wall clock, less than one tick, in seconds.
+	 */
+	public ReadOnlyDoubleProperty tickLagProperty() {
+		return tickLag.getReadOnlyProperty();
+	}
+
+	/**
+	 * The in-game time that was dropped because the game could not keep up, in seconds.
+	 */
+	public ReadOnlyDoubleProperty droppedTimeProperty() {
+		return droppedTime.getReadOnlyProperty();
+	}
+
 	public BooleanProperty pausedProperty() {
 		return paused;
 	}
 
 	public void start() {
+		if (simulation != null)
+			simulation.start();
 		mainLoop.start();
 	}
 
 	public void stop() {
 		mainLoop.stop();
+		if (simulation != null)
+			simulation.stop();
 	}
 
 	public void togglePause() {
@@ -0,0 +1,33 @@
+package ogp.framework.game;
+
+import java.util.concurrent.locks.Lock;
+
+/**
+ * A game controller whose model can be updated on a simulation thread while the view is rendered on the render
+ * thread.
+ *
+ * The simulation thread holds the model lock while it updates the model and publishes a snapshot of the state the
+ * view renders. The render thread consumes the latest published snapshot before every refresh and renders it
+ * without touching the model, so it never waits for an update. Any other access to the model from the render
+ * thread must hold the model lock.
+ */
+public interface IConcurrentGameController<V extends IGameView> extends IGameController<V> {
+
+	/**
+	 * Returns the lock that guards the model.
+	 */
+	public Lock getModelLock();
+
+	/**
+	 * Publishes a snapshot of the current state of the model. Called on the simulation thread after every batch of
+	 * updates, with the model lock held.
+	 */
+	public void publishSnapshot();
+
+	/**
+	 * Makes the latest published snapshot the one the view renders. Called on the render thread before every
+	 * refresh of the view, without the model lock.
+	 */
+	public void consumeSnapshot();
+
+}
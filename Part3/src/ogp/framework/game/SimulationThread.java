@@ -0,0 +1,144 @@
+package ogp.framework.game;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Updates a game on its own thread, in ticks of a fixed length.
+ *
+ * The thread wakes up whenever a tick is due, but at most once every PUBLISH_INTERVAL, and runs the ticks its
+ * FixedTimestep asks for. Every tick advances the game by the tick length with the model lock held; after the last
+ * tick of a batch, a snapshot is published. A sped up game thus runs several ticks per rendered frame, and only the
+ * state after the last one is rendered. Ticks that take longer than their in-game time make the game fall behind
+ * the wall clock; the timestep then drops the time it cannot catch up on. If the time scale is unlimited, the thread
+ * runs ticks back to back and publishes a snapshot every PUBLISH_INTERVAL.
+ */
+public class SimulationThread {
+
+	/**
+	 * The shortest wall-clock time between two batches of ticks, and so between two snapshots, in seconds.
+	 */
+	public static final double PUBLISH_INTERVAL = 1.0 / 60;
+
+	private final IConcurrentGameController<?> game;
+	private final FixedTimestep timestep;
+
+	private volatile boolean paused;
+	private volatile boolean running;
+	private volatile double inGameTime;
+
+	private Thread thread;
+
+	public SimulationThread(IConcurrentGameController<?> game, FixedTimestep timestep) {
+		this.game = game;
+		this.timestep = timestep;
+	}
+
+	public FixedTimestep getTimestep() {
+		return timestep;
+	}
+
+	/**
+	 * Returns the in-game time of all ticks so far.
+	 */
+	public double getInGameTime() {
+		return inGameTime;
+	}
+
+	public boolean isPaused() {
+		return paused;
+	}
+
+	public void setPaused(boolean paused) {
+		this.paused = paused;
+		if (thread != null)
+			LockSupport.unpark(thread);
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	public synchronized void start() {
+		if (running)
+			return;
+		running = true;
+		thread = new Thread(this::run, "Simulation");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops this thread after its current tick, and waits for it to finish.
+	 */
+	public synchronized void stop() {
+		if (!running)
+			return;
+		running = false;
+		LockSupport.unpark(thread);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		thread = null;
+	}
+
+	private void run() {
+		long previous = System.nanoTime();
+		while (running) {
+			long now = System.nanoTime();
+			if (paused) {
+				timestep.resetLag();
+				previous = now;
+				LockSupport.park();
+				continue;
+			}
+			if (timestep.isUnlimited()) {
+				long publish = now + (long) (PUBLISH_INTERVAL * 1e9);
+				do {
+					tick(timestep.getTickLength());
+				} while (running && !paused && timestep.isUnlimited() && System.nanoTime() < publish);
+				publish();
+				previous = System.nanoTime();
+				continue;
+			}
+			int ticks = timestep.advance((now - previous) / 1e9);
+			previous = now;
+			for (int i = 0; i < ticks && running; i++) {
+				tick(timestep.getTickLength());
+			}
+			if (ticks > 0)
+				publish();
+			long wait = Math.max((long) (timestep.getTimeUntilNextTick() * 1e9),
+					now + (long) (PUBLISH_INTERVAL * 1e9) - System.nanoTime());
+			if (wait > 0)
+				LockSupport.parkNanos(wait);
+		}
+	}
+
+	private void tick(double tickLength) {
+		Lock lock = game.getModelLock();
+		lock.lock();
+		try {
+			game.updateGame(tickLength);
+			inGameTime += tickLength;
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void publish() {
+		Lock lock = game.getModelLock();
+		lock.lock();
+		try {
+			game.publishSnapshot();
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package ogp.framework.util.internal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Wraps an object in a proxy that holds a lock during every call, so that an object that is not thread-safe, such
+ * as a facade, can be shared by several threads.
+ */
+public class LockingProxy implements InvocationHandler {
+
+	private final Object target;
+	private final Lock lock;
+
+	private LockingProxy(Object target, Lock lock) {
+		this.target = target;
+		this.lock = lock;
+	}
+
+	/**
+	 * Returns a proxy that implements all interfaces of the given target, and calls the target with the given lock
+	 * held.
+	 */
+	public static Object wrap(Object target, Lock lock) {
+		Set<Class<?>> interfaces = new LinkedHashSet<>();
+		for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+			for (Class<?> i : type.getInterfaces())
+				interfaces.add(i);
+		}
+		return Proxy.newProxyInstance(target.getClass().getClassLoader(), interfaces.toArray(new Class<?>[0]),
+				new LockingProxy(target, lock));
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		lock.lock();
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}